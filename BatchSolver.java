@@ -0,0 +1,237 @@
+package TermProject;
+
+import stdlib.StdOut;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Solves a file of puzzles, one per line as one symbol per cell (81 characters for 9x9, '0' or '.' for empty cells).
+// Writes one line per puzzle: the solution, "unsolvable" or "invalid", and reports the throughput at the end.
+// Usage: BatchSolver [--engine BACKTRACKING|DANCING_LINKS] [--threads N] inputFile [outputFile], the output goes to standard out when no file is given.
+// With --threads the input is memory-mapped and split between N workers, and each solution is written over its puzzle in a copy of the input
+public class BatchSolver {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final String USAGE = "Usage: BatchSolver [--engine BACKTRACKING|DANCING_LINKS] [--threads N] inputFile [outputFile]";
+
+    private final SudokuSolver solver;
+    private final int[][] board; // Reused for every puzzle
+    private final int[] cells; // Reused for every puzzle of a mapped region
+    private long solvedCount;
+    private long unsolvableCount;
+    private long invalidCount;
+
+    public BatchSolver(SudokuSolver solver) {
+        this.solver = solver;
+        this.board = new int[solver.getBoardSize()][solver.getBoardSize()];
+        this.cells = new int[solver.getBoardSize() * solver.getBoardSize()];
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        SudokuSolver.Engine engine = SudokuSolver.Engine.BACKTRACKING;
+        int threads = 0; // 0 reads the input line by line, otherwise it is mapped and solved by this many workers
+        int argIndex = 0;
+        while (args.length - argIndex > 1 && args[argIndex].startsWith("--")) {
+            if (args[argIndex].equals("--engine")) {
+                engine = SudokuSolver.Engine.valueOf(args[argIndex + 1].toUpperCase());
+            } else if (args[argIndex].equals("--threads")) {
+                threads = Integer.parseInt(args[argIndex + 1]);
+            } else {
+                break;
+            }
+            argIndex += 2;
+        }
+        if (args.length - argIndex < 1 || args[argIndex].startsWith("--")) {
+            StdOut.println(USAGE);
+            return;
+        }
+        Path input = Paths.get(args[argIndex]);
+        Path output = args.length - argIndex > 1 ? Paths.get(args[argIndex + 1]) : null;
+
+        if (threads > 0) {
+            if (output == null) {
+                StdOut.println("An output file is needed with --threads");
+                StdOut.println(USAGE);
+                return;
+            }
+            StdOut.println(solveMappedFile(input, output, threads, engine));
+            return;
+        }
+
+        try (BufferedReader reader = Files.newBufferedReader(input, StandardCharsets.US_ASCII);
+             Writer writer = output == null
+                     ? new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.US_ASCII), BUFFER_SIZE)
+                     : Files.newBufferedWriter(output, StandardCharsets.US_ASCII)) {
+            BatchSolver batchSolver = null;
+            long start = System.nanoTime();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty()) {
+                    continue;
+                }
+                if (batchSolver == null) {
+                    // Every puzzle in the file uses the box size of the first one
+                    SudokuSolver solver = new SudokuSolver(boxSizeForCells(line.length()));
+                    solver.setEngine(engine);
+                    batchSolver = new BatchSolver(solver);
+                }
+                writer.write(batchSolver.solveLine(line));
+                writer.write('\n');
+            }
+            writer.flush();
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            // Keep the report off standard out when the solutions are written there
+            String report = batchSolver == null ? "No puzzles found" : batchSolver.report(seconds);
+            if (output == null) {
+                System.err.println(report);
+            } else {
+                StdOut.println(report);
+            }
+        }
+    }
+
+    // Solves one puzzle line and returns the line to write for it
+    public String solveLine(String line) {
+        try {
+            solver.readSymbols(line, board);
+            if (solver.solveInPlace(board)) {
+                solvedCount++;
+                return solver.toSymbolString(board);
+            }
+            unsolvableCount++;
+            return "unsolvable";
+        } catch (IllegalArgumentException e) {
+            // Also covers NumberFormatException for unknown symbols
+            invalidCount++;
+            return "invalid";
+        }
+    }
+
+    // Solves every record of a mapped region, writing each solution over its puzzle in the output region.
+    // The region is copied first, so puzzles that are unsolvable or invalid stay as they were
+    public void solveRegion(MappedPuzzleReader reader, MappedByteBuffer output) {
+        byte[] symbols = symbolBytes(solver.getBoardSize());
+        reader.copyRegion(output);
+        reader.rewind();
+        int result;
+        while ((result = reader.next(cells)) != MappedPuzzleReader.END_OF_REGION) {
+            if (result == MappedPuzzleReader.INVALID_RECORD) {
+                invalidCount++;
+                continue;
+            }
+            try {
+                if (!solver.solveInPlace(cells)) {
+                    unsolvableCount++;
+                    continue;
+                }
+            } catch (IllegalArgumentException e) {
+                // Repeated numbers in a row, column or box
+                invalidCount++;
+                continue;
+            }
+            solvedCount++;
+            int offset = (int) (reader.recordOffset() - reader.regionStart());
+            for (int cell = 0; cell < cells.length; cell++) {
+                output.put(offset + cell, symbols[cells[cell]]);
+            }
+        }
+    }
+
+    // Splits the input between workers that each solve their own mapped region, and returns the report.
+    // The output file is the same size as the input, with every solution at the position of its puzzle
+    static String solveMappedFile(Path input, Path output, int threads, SudokuSolver.Engine engine) throws IOException, InterruptedException {
+        int boxSize = boxSizeForCells(firstLineLength(input));
+        MappedPuzzleReader[] readers = MappedPuzzleReader.split(input, threads, boxSize);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        SudokuSolver solver = new SudokuSolver(boxSize);
+        solver.setEngine(engine);
+        long start = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            List<Future<BatchSolver>> workers = new ArrayList<>();
+            for (MappedPuzzleReader reader : readers) {
+                // Mapping past the end of the file grows it, so the output ends up the size of the input
+                MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_WRITE, reader.regionStart(), reader.regionSize());
+                workers.add(executor.submit(() -> {
+                    // The solver is shared, each worker has its own board and counts
+                    BatchSolver batchSolver = new BatchSolver(solver);
+                    batchSolver.solveRegion(reader, region);
+                    region.force();
+                    return batchSolver;
+                }));
+            }
+
+            BatchSolver total = new BatchSolver(new SudokuSolver(boxSize));
+            for (Future<BatchSolver> worker : workers) {
+                BatchSolver batchSolver = worker.get();
+                total.solvedCount += batchSolver.solvedCount;
+                total.unsolvableCount += batchSolver.unsolvableCount;
+                total.invalidCount += batchSolver.invalidCount;
+            }
+            return total.report((System.nanoTime() - start) / 1e9);
+        } catch (ExecutionException e) {
+            throw new IOException("Worker failed while solving " + input, e.getCause());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    // Returns the length of the first non-empty line of the file
+    private static int firstLineLength(Path input) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(input, StandardCharsets.US_ASCII)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (!line.isEmpty()) {
+                    return line.length();
+                }
+            }
+        }
+        throw new IllegalArgumentException(String.format("No puzzles found in %s", input));
+    }
+
+    // Returns the symbol byte of every number, '0' for an empty cell
+    private static byte[] symbolBytes(int boardSize) {
+        byte[] symbols = new byte[boardSize + 1];
+        symbols[0] = '0';
+        for (int num = 1; num <= boardSize; num++) {
+            symbols[num] = (byte) SudokuSolver.SYMBOLS.charAt(num - 1);
+        }
+        return symbols;
+    }
+
+    // Returns the counts and the throughput in puzzles per second
+    public String report(double seconds) {
+        long total = solvedCount + unsolvableCount + invalidCount;
+        return String.format("Solved %d of %d puzzles (%d unsolvable, %d invalid) in %.3f s: %.0f puzzles/s",
+                solvedCount, total, unsolvableCount, invalidCount, seconds, total / seconds);
+    }
+
+    // Returns the box size whose board has cellCount cells, e.g. 3 for 81
+    static int boxSizeForCells(int cellCount) {
+        for (int boxSize = BoardGeometry.MIN_BOX_SIZE; boxSize <= BoardGeometry.MAX_BOX_SIZE; boxSize++) {
+            if (boxSize * boxSize * boxSize * boxSize == cellCount) {
+                return boxSize;
+            }
+        }
+        throw new IllegalArgumentException(String.format("No board has %d cells", cellCount));
+    }
+}
@@ -0,0 +1,147 @@
+package TermProject;
+
+import stdlib.StdOut;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+
+// Throughput of BinarySolveServer on localhost against the number of connections. Every connection has its own client and
+// keeps a window of pipelined solve requests in flight, sending the next one as soon as an answer comes back, over the easy
+// corpus of SudokuBenchmarkSuite, where framing costs the most next to the solve. With --http the same number of clients also
+// run against SolveService, one request at a time each, for comparison.
+// Usage: BinaryProtocolBenchmark [--connections 1,2,4,8,16] [--window N] [--seconds N] [--warmup N] [--workers N] [--http]
+public class BinaryProtocolBenchmark {
+
+    private final InetSocketAddress address;
+    private final PackedBoard[] puzzles;
+
+    public BinaryProtocolBenchmark(InetSocketAddress address) {
+        this.address = address;
+        int[][][] easy = SudokuBenchmarkSuite.buildCorpora(new SudokuSolver()).get("easy");
+        this.puzzles = new PackedBoard[easy.length];
+        for (int i = 0; i < easy.length; i++) {
+            puzzles[i] = PackedBoard.fromBoard(easy[i]);
+        }
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int[] connectionCounts = { 1, 2, 4, 8, 16 };
+        int window = 32;
+        int seconds = 3;
+        int warmupSeconds = 1;
+        int workers = 0;
+        boolean http = false;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--connections":
+                    String[] counts = args[++i].split(",");
+                    connectionCounts = new int[counts.length];
+                    for (int c = 0; c < counts.length; c++) {
+                        connectionCounts[c] = Integer.parseInt(counts[c].trim());
+                    }
+                    break;
+                case "--window":
+                    window = Integer.parseInt(args[++i]);
+                    break;
+                case "--seconds":
+                    seconds = Integer.parseInt(args[++i]);
+                    break;
+                case "--warmup":
+                    warmupSeconds = Integer.parseInt(args[++i]);
+                    break;
+                case "--workers":
+                    workers = Integer.parseInt(args[++i]);
+                    break;
+                case "--http":
+                    http = true;
+                    break;
+                default:
+                    StdOut.println("Usage: BinaryProtocolBenchmark [--connections 1,2,4,8,16] [--window N] [--seconds N] [--warmup N] [--workers N] [--http]");
+                    return;
+            }
+        }
+
+        InetSocketAddress loopback = new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+        try (BinarySolveServer server = new BinarySolveServer(SudokuSolver.BOX_SIZE, loopback, workers, window);
+             SolveService service = http ? new SolveService(SudokuSolver.BOX_SIZE, loopback, 2 * Runtime.getRuntime().availableProcessors()) : null) {
+            server.start();
+            BinaryProtocolBenchmark benchmark = new BinaryProtocolBenchmark(new InetSocketAddress(InetAddress.getLoopbackAddress(), server.getPort()));
+            if (service != null) {
+                service.start();
+            }
+            StdOut.format("Solving easy puzzles with %d requests in flight per connection, %s\n", window, workers == 0 ? "on the selector thread" : workers + " workers");
+            StdOut.println(http ? "connections     binary req/s       http req/s" : "connections     binary req/s");
+            for (int connections : connectionCounts) {
+                benchmark.run(connections, window, Duration.ofSeconds(warmupSeconds)); // Lets the JIT compile the server and the search first
+                double binary = benchmark.run(connections, window, Duration.ofSeconds(seconds));
+                if (service == null) {
+                    StdOut.format("%11d %16.1f\n", connections, binary);
+                    continue;
+                }
+                SolveServiceLoadTest loadTest = new SolveServiceLoadTest(String.format("http://localhost:%d", service.getPort()), connections);
+                loadTest.run("solve", Duration.ofSeconds(warmupSeconds));
+                StdOut.format("%11d %16.1f %16.1f\n", connections, binary, loadTest.run("solve", Duration.ofSeconds(seconds)).getRequestsPerSecond());
+            }
+        }
+    }
+
+    // Keeps window requests in flight on each of the connections for the duration and returns the answers per second
+    public double run(int connections, int window, Duration duration) throws IOException, InterruptedException {
+        if (connections < 1 || window < 1) {
+            throw new IllegalArgumentException(String.format("Connections and window must be at least 1, found %d and %d", connections, window));
+        }
+        BinarySolveClient[] clients = new BinarySolveClient[connections];
+        LongAdder answered = new LongAdder();
+        LongAdder failed = new LongAdder();
+        Thread[] senders = new Thread[connections];
+        try {
+            for (int c = 0; c < connections; c++) {
+                clients[c] = new BinarySolveClient(address);
+            }
+            long end = System.nanoTime() + duration.toNanos();
+            long start = System.nanoTime();
+            for (int c = 0; c < connections; c++) {
+                BinarySolveClient client = clients[c];
+                int first = c;
+                senders[c] = new Thread(() -> {
+                    Semaphore slots = new Semaphore(window);
+                    try {
+                        for (int i = first; System.nanoTime() < end; i++) {
+                            slots.acquire();
+                            client.solve(puzzles[i % puzzles.length]).whenComplete((reply, error) -> {
+                                if (error == null && reply.getStatus() == BinarySolveServer.Status.OK) {
+                                    answered.increment();
+                                } else {
+                                    failed.increment();
+                                }
+                                slots.release();
+                            });
+                        }
+                        slots.acquire(window); // Waits for the last answers
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }, "sudoku-binary-sender-" + c);
+                senders[c].start();
+            }
+            for (Thread sender : senders) {
+                sender.join();
+            }
+            long nanos = System.nanoTime() - start;
+            if (failed.sum() > 0) {
+                StdOut.format("%d requests failed with %d connections\n", failed.sum(), connections);
+            }
+            return answered.sum() * 1e9 / nanos;
+        } finally {
+            for (BinarySolveClient client : clients) {
+                if (client != null) {
+                    client.close();
+                }
+            }
+        }
+    }
+}
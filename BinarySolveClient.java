@@ -0,0 +1,193 @@
+package TermProject;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Client for BinarySolveServer. Every call sends its request straight away and returns a future for the answer, so a caller can
+// keep many requests in flight on one connection. One reader thread matches answers to requests by correlation ID, in whatever
+// order they come back, and completes the futures on that thread. Calls are thread safe, and the futures of requests still
+// in flight fail with an IOException when the connection closes
+public class BinarySolveClient implements AutoCloseable {
+
+    // An answer from the server
+    public static final class Reply {
+        private final BinarySolveServer.Status status;
+        private final PackedBoard solution;
+        private final long solutionCount;
+        private final int firstInvalidUnit;
+        private final String message;
+
+        Reply(BinarySolveServer.Status status, PackedBoard solution, long solutionCount, int firstInvalidUnit, String message) {
+            this.status = status;
+            this.solution = solution;
+            this.solutionCount = solutionCount;
+            this.firstInvalidUnit = firstInvalidUnit;
+            this.message = message;
+        }
+
+        public BinarySolveServer.Status getStatus() {
+            return status;
+        }
+
+        // Returns the solved board of a SOLVE answered OK, otherwise null
+        public PackedBoard getSolution() {
+            return solution;
+        }
+
+        // Returns the solutions found by a COUNT, up to its limit, and only a lower bound when it is BUDGET_EXCEEDED
+        public long getSolutionCount() {
+            return solutionCount;
+        }
+
+        // Returns the first invalid unit found by a VALIDATE, SolutionValidator.VALID for a valid solution
+        public int getFirstInvalidUnit() {
+            return firstInvalidUnit;
+        }
+
+        // Returns why a BAD_REQUEST was turned down, otherwise null
+        public String getMessage() {
+            return message;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("status=%s solution=%s solutions=%d unit=%d message=%s", status, solution, solutionCount, firstInvalidUnit, message);
+        }
+    }
+
+    // A request waiting for its answer
+    private static final class Call {
+        private final BinarySolveServer.Operation operation;
+        private final CompletableFuture<Reply> future = new CompletableFuture<>();
+
+        Call(BinarySolveServer.Operation operation) {
+            this.operation = operation;
+        }
+    }
+
+    private static final int READ_BUFFER_BYTES = 1 << 16;
+    private static final BinarySolveServer.Status[] STATUSES = BinarySolveServer.Status.values();
+
+    private final SocketChannel channel; // Blocking, written by callers and read by the reader thread
+    private final ByteBuffer writeBuffer = ByteBuffer.allocateDirect(READ_BUFFER_BYTES); // Guarded by itself
+    private final ConcurrentHashMap<Integer, Call> calls = new ConcurrentHashMap<>();
+    private final AtomicInteger nextCorrelationId = new AtomicInteger();
+    private final Thread reader;
+    private volatile boolean closed;
+
+    public BinarySolveClient(InetSocketAddress address) throws IOException {
+        this.channel = SocketChannel.open(address);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        this.reader = new Thread(this::readAnswers, "sudoku-binary-client");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    public CompletableFuture<Reply> solve(PackedBoard puzzle) {
+        return send(BinarySolveServer.Operation.SOLVE, 0, puzzle);
+    }
+
+    // Counts solutions up to limit, which is at most Integer.MAX_VALUE on the wire
+    public CompletableFuture<Reply> count(PackedBoard puzzle, int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException(String.format("Count limit must be at least 1, found %d", limit));
+        }
+        return send(BinarySolveServer.Operation.COUNT, limit, puzzle);
+    }
+
+    public CompletableFuture<Reply> validate(PackedBoard solution) {
+        return send(BinarySolveServer.Operation.VALIDATE, 0, solution);
+    }
+
+    private CompletableFuture<Reply> send(BinarySolveServer.Operation operation, int limit, PackedBoard board) {
+        int correlationId = nextCorrelationId.getAndIncrement();
+        Call call = new Call(operation);
+        calls.put(correlationId, call); // Before sending, the answer can come back before write returns
+        try {
+            synchronized (writeBuffer) {
+                if (closed) {
+                    throw new IOException("Connection closed");
+                }
+                writeBuffer.clear();
+                writeBuffer.putInt(0).putInt(correlationId).put((byte) operation.ordinal());
+                if (operation == BinarySolveServer.Operation.COUNT) {
+                    writeBuffer.putInt(limit);
+                }
+                board.writeTo(writeBuffer);
+                writeBuffer.putInt(0, writeBuffer.position() - 4);
+                writeBuffer.flip();
+                while (writeBuffer.hasRemaining()) {
+                    channel.write(writeBuffer);
+                }
+            }
+        } catch (IOException e) {
+            calls.remove(correlationId);
+            call.future.completeExceptionally(e);
+        }
+        return call.future;
+    }
+
+    // Reads answers until the connection closes, then fails every call still waiting
+    private void readAnswers() {
+        ByteBuffer in = ByteBuffer.allocateDirect(READ_BUFFER_BYTES);
+        try {
+            while (channel.read(in) >= 0) {
+                in.flip();
+                while (in.remaining() >= 4 && in.remaining() >= 4 + in.getInt(in.position())) {
+                    int end = in.position() + 4 + in.getInt();
+                    Call call = calls.remove(in.getInt());
+                    BinarySolveServer.Status status = STATUSES[in.get()];
+                    if (call != null) {
+                        call.future.complete(readReply(call.operation, status, in, end));
+                    }
+                    in.position(end);
+                }
+                in.compact();
+            }
+        } catch (IOException | RuntimeException e) {
+            // Closed locally or by the server, or an answer that doesn't parse
+        }
+        closed = true;
+        IOException closedException = new IOException("Connection closed");
+        for (Integer correlationId : calls.keySet()) {
+            Call call = calls.remove(correlationId);
+            if (call != null) {
+                call.future.completeExceptionally(closedException);
+            }
+        }
+    }
+
+    private static Reply readReply(BinarySolveServer.Operation operation, BinarySolveServer.Status status, ByteBuffer in, int end) {
+        if (status == BinarySolveServer.Status.BAD_REQUEST) {
+            byte[] message = new byte[end - in.position()];
+            in.get(message);
+            return new Reply(status, null, 0, 0, new String(message, StandardCharsets.UTF_8));
+        }
+        switch (operation) {
+            case SOLVE:
+                return new Reply(status, status == BinarySolveServer.Status.OK ? PackedBoard.readFrom(in) : null, 0, 0, null);
+            case COUNT:
+                return new Reply(status, null, in.getLong(), 0, null);
+            default:
+                return new Reply(status, null, 0, in.getInt(), null);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        channel.close();
+        try {
+            reader.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,396 @@
+package TermProject;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Solve server for service to service traffic, speaking a length prefixed binary protocol over TCP on one Selector thread.
+// Every frame is big endian: a 4 byte length of the rest of the frame, a 4 byte correlation ID chosen by the client and one byte,
+// the operation of a request or the status of an answer, then the payload. Boards are in the packed board binary format, see PackedBoard.
+//   SOLVE     request: board                answer: OK with the solution, NO_SOLUTION or BUDGET_EXCEEDED with nothing
+//   COUNT     request: 4 byte limit, board  answer: OK or BUDGET_EXCEEDED with the 8 byte count of solutions found
+//   VALIDATE  request: board                answer: OK with the 4 byte first invalid unit, SolutionValidator.VALID for a valid solution
+// A request the server can't answer gets BAD_REQUEST with a UTF-8 message, and a frame longer than 64 KiB closes the connection.
+// A client can send any number of requests without waiting. Up to maxInFlight of them per connection are worked on at once, and
+// answers go back as they finish, so they can come back in a different order and are matched to requests by correlation ID.
+// The selector thread only moves bytes: requests are solved by a fixed pool of workers, which write answers straight into the
+// connection's direct write buffer and hand the connection back to the selector thread to flush. With 0 workers every request
+// is answered on the selector thread as it is read, which is fastest when puzzles are easy and there are few cores.
+// A connection's write buffer holds the largest answer of every request in flight, so reading stops while it is full
+public class BinarySolveServer implements AutoCloseable {
+
+    // Request operations, the wire byte is the ordinal
+    public enum Operation {
+        SOLVE, COUNT, VALIDATE
+    }
+
+    // Answer statuses, the wire byte is the ordinal
+    public enum Status {
+        OK, NO_SOLUTION, BUDGET_EXCEEDED, BAD_REQUEST
+    }
+
+    static final int HEADER_BYTES = 9; // Length, correlation ID and operation or status
+    static final int MAX_MESSAGE_BYTES = 200; // Longer BAD_REQUEST messages are cut short
+    private static final Operation[] OPERATIONS = Operation.values();
+    private static final int READ_BUFFER_BYTES = 1 << 16; // Also the longest frame
+    private static final Duration TIMEOUT = Duration.ofSeconds(5); // Stops a hard puzzle from holding a worker
+
+    private final SudokuSolver solver;
+    private final int boxSize;
+    private final int cellCount;
+    private final int maxAnswerBytes; // A solution or a message, header included
+    private final int maxInFlight;
+    private final SolveOptions options = SolveOptions.NONE.withTimeout(TIMEOUT);
+    private final ThreadLocal<SolutionValidator> validators; // Validators aren't thread safe
+    private final ServerSocketChannel serverChannel;
+    private final Selector selector;
+    private final ExecutorService workers; // Null to answer on the selector thread
+    private final Queue<Connection> flushQueue = new ConcurrentLinkedQueue<>(); // Connections with answers from workers to flush
+    private final Thread selectorThread;
+    private volatile boolean running = true;
+
+    // One client connection. The read buffer and interest ops belong to the selector thread, the rest is guarded by the connection
+    private final class Connection {
+        private final SocketChannel channel;
+        private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_BYTES);
+        private final ByteBuffer writeBuffer = ByteBuffer.allocateDirect(maxInFlight * maxAnswerBytes); // Answers not yet written
+        private SelectionKey key;
+        private int inFlight; // Requests read but not answered
+        private boolean queued; // Already in flushQueue
+        private boolean readPaused; // Reading stopped until answers make room
+
+        Connection(SocketChannel channel) {
+            this.channel = channel;
+        }
+    }
+
+    // Server for boards of boxSize x boxSize boxes, bound to the address but not started. Port 0 picks a free port
+    public BinarySolveServer(int boxSize, InetSocketAddress address, int workers, int maxInFlight) throws IOException {
+        if (workers < 0) {
+            throw new IllegalArgumentException(String.format("Number of workers must not be negative, found %d", workers));
+        }
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException(String.format("Requests in flight must be at least 1, found %d", maxInFlight));
+        }
+        this.solver = new SudokuSolver(boxSize);
+        this.boxSize = boxSize;
+        this.cellCount = solver.getBoardSize() * solver.getBoardSize();
+        int encodedLength = new PackedBoard(boxSize).getEncodedLength();
+        this.maxAnswerBytes = HEADER_BYTES + Math.max(encodedLength, MAX_MESSAGE_BYTES);
+        this.maxInFlight = maxInFlight;
+        this.validators = ThreadLocal.withInitial(() -> new SolutionValidator(boxSize));
+        this.workers = workers == 0 ? null : Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "sudoku-binary-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.selector = Selector.open();
+        this.serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(address);
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        this.selectorThread = new Thread(this::serve, "sudoku-binary-selector");
+        selectorThread.setDaemon(true);
+    }
+
+    public void start() {
+        selectorThread.start();
+    }
+
+    // Returns the port the server listens on, the one picked when it was created with port 0
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    // Stops the selector thread and the workers and closes every connection
+    @Override
+    public void close() {
+        running = false;
+        selector.wakeup();
+        try {
+            if (selectorThread.isAlive()) {
+                selectorThread.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (workers != null) {
+            workers.shutdownNow();
+        }
+        try {
+            for (SelectionKey key : selector.keys()) {
+                key.channel().close();
+            }
+            selector.close();
+        } catch (IOException e) {
+            // Closing anyway
+        }
+    }
+
+    private void serve() {
+        try {
+            while (running) {
+                selector.select();
+                for (Connection connection = flushQueue.poll(); connection != null; connection = flushQueue.poll()) {
+                    handleFlush(connection);
+                }
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                        continue;
+                    }
+                    Connection connection = (Connection) key.attachment();
+                    if (key.isReadable()) {
+                        handleRead(connection);
+                    }
+                    if (key.isValid() && key.isWritable()) {
+                        handleFlush(connection);
+                    }
+                }
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            running = false; // The selector itself failed, nothing left to serve with
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true); // Answers are small and a client may be waiting on each one
+        Connection connection = new Connection(channel);
+        connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+    }
+
+    private void handleRead(Connection connection) {
+        try {
+            if (connection.channel.read(connection.readBuffer) < 0) {
+                closeConnection(connection);
+                return;
+            }
+            serveRequests(connection);
+        } catch (IOException e) {
+            closeConnection(connection);
+        }
+    }
+
+    // Writes what answers it can, and reads more requests when answers made room for them
+    private void handleFlush(Connection connection) {
+        if (!connection.channel.isOpen()) {
+            return;
+        }
+        try {
+            flush(connection);
+            if (connection.readPaused) {
+                serveRequests(connection);
+            }
+        } catch (IOException e) {
+            closeConnection(connection);
+        }
+    }
+
+    // Starts the whole requests read so far. Answering on the selector thread, it writes the answers and goes on while that makes
+    // room for more, until the requests run out or the socket stops taking answers and OP_WRITE picks up from there
+    private void serveRequests(Connection connection) throws IOException {
+        dispatch(connection);
+        while (workers == null && connection.channel.isOpen() && !flush(connection) && connection.readPaused) {
+            dispatch(connection);
+        }
+    }
+
+    // Starts every whole request in the read buffer while the write buffer has room for its answer, and stops reading when it hasn't
+    private void dispatch(Connection connection) throws IOException {
+        ByteBuffer in = connection.readBuffer;
+        in.flip();
+        boolean full = false;
+        while (in.remaining() >= 4) {
+            int length = in.getInt(in.position());
+            if (length < HEADER_BYTES - 4 || length > READ_BUFFER_BYTES - 4) {
+                closeConnection(connection); // Can't tell where the next frame starts
+                return;
+            }
+            if (in.remaining() < 4 + length) {
+                break;
+            }
+            synchronized (connection) {
+                full = connection.inFlight == maxInFlight || connection.writeBuffer.remaining() < (connection.inFlight + 1) * maxAnswerBytes;
+                if (full) {
+                    break;
+                }
+                connection.inFlight++;
+            }
+            int end = in.position() + 4 + length;
+            in.getInt();
+            int correlationId = in.getInt();
+            int operation = in.get();
+            ByteBuffer payload = in.slice().limit(end - in.position());
+            in.position(end);
+            if (workers == null) {
+                answer(connection, correlationId, operation, payload);
+            } else {
+                Request request = new Request(connection, correlationId, operation, payload);
+                workers.execute(request);
+            }
+        }
+        in.compact();
+        setReadPaused(connection, full);
+    }
+
+    // A request handed to a worker, with its payload copied out of the read buffer, which is reused for the next requests
+    private final class Request implements Runnable {
+        private final Connection connection;
+        private final int correlationId;
+        private final int operation;
+        private final ByteBuffer payload;
+
+        Request(Connection connection, int correlationId, int operation, ByteBuffer payload) {
+            this.connection = connection;
+            this.correlationId = correlationId;
+            this.operation = operation;
+            this.payload = ByteBuffer.allocate(payload.remaining()).put(payload).flip();
+        }
+
+        @Override
+        public void run() {
+            answer(connection, correlationId, operation, payload);
+        }
+    }
+
+    // Works out the answer to one request and writes it into the connection's write buffer
+    private void answer(Connection connection, int correlationId, int operation, ByteBuffer payload) {
+        Status status = Status.OK;
+        PackedBoard board = null;
+        long solutionCount = 0;
+        int unit = 0;
+        String message = null;
+        try {
+            if (operation < 0 || operation >= OPERATIONS.length) {
+                throw new IllegalArgumentException(String.format("Unknown operation %d", operation));
+            }
+            long limit = OPERATIONS[operation] == Operation.COUNT ? payload.getInt() : 1;
+            board = PackedBoard.readFrom(payload);
+            if (board.getBoxSize() != boxSize) {
+                throw new IllegalArgumentException(String.format("Cannot solve a %dx%d board on a %dx%d server", board.getBoardSize(), board.getBoardSize(), solver.getBoardSize(), solver.getBoardSize()));
+            }
+            int[] cells = new int[cellCount];
+            board.copyTo(cells);
+            switch (OPERATIONS[operation]) {
+                case SOLVE:
+                    SolveResult solved = solver.solveWithStats(cells, options);
+                    status = solved.isSolved() ? Status.OK : solved.isComplete() ? Status.NO_SOLUTION : Status.BUDGET_EXCEEDED;
+                    board.copyFrom(cells);
+                    break;
+                case COUNT:
+                    SolveResult counted = solver.countWithStats(cells, limit, options);
+                    status = counted.isComplete() ? Status.OK : Status.BUDGET_EXCEEDED;
+                    solutionCount = counted.getSolutionCount();
+                    break;
+                default:
+                    unit = validators.get().firstInvalidUnit(cells);
+            }
+        } catch (IllegalArgumentException | BufferUnderflowException e) {
+            status = Status.BAD_REQUEST;
+            message = String.valueOf(e.getMessage());
+        }
+
+        boolean wasQueued;
+        synchronized (connection) {
+            ByteBuffer out = connection.writeBuffer;
+            int start = out.position();
+            out.putInt(0).putInt(correlationId).put((byte) status.ordinal());
+            if (status == Status.BAD_REQUEST) {
+                byte[] bytes = message.getBytes(StandardCharsets.UTF_8);
+                out.put(bytes, 0, messageLength(bytes));
+            } else if (OPERATIONS[operation] == Operation.SOLVE && status == Status.OK) {
+                board.writeTo(out);
+            } else if (OPERATIONS[operation] == Operation.COUNT) {
+                out.putLong(solutionCount);
+            } else if (OPERATIONS[operation] == Operation.VALIDATE) {
+                out.putInt(unit);
+            }
+            out.putInt(start, out.position() - start - 4);
+            connection.inFlight--;
+            wasQueued = connection.queued;
+            connection.queued = true;
+        }
+        if (!wasQueued && Thread.currentThread() != selectorThread) {
+            flushQueue.add(connection);
+            selector.wakeup();
+        }
+    }
+
+    // Writes as much of the write buffer as the socket takes, and waits to be writable again when some is left.
+    // Returns true when some is left
+    private boolean flush(Connection connection) throws IOException {
+        boolean pending;
+        synchronized (connection) {
+            connection.queued = false;
+            ByteBuffer out = connection.writeBuffer;
+            out.flip();
+            if (out.hasRemaining()) {
+                connection.channel.write(out);
+            }
+            pending = out.hasRemaining();
+            out.compact();
+        }
+        SelectionKey key = connection.key;
+        if (key.isValid()) {
+            int ops = key.interestOps();
+            key.interestOps(pending ? ops | SelectionKey.OP_WRITE : ops & ~SelectionKey.OP_WRITE);
+        }
+        return pending;
+    }
+
+    // Returns how many bytes of a UTF-8 message to send, at most MAX_MESSAGE_BYTES, backing up over continuation bytes
+    // so a cut never splits a character
+    static int messageLength(byte[] bytes) {
+        if (bytes.length <= MAX_MESSAGE_BYTES) {
+            return bytes.length;
+        }
+        int length = MAX_MESSAGE_BYTES;
+        while (length > 0 && (bytes[length] & 0xC0) == 0x80) {
+            length--;
+        }
+        return length;
+    }
+
+    private void setReadPaused(Connection connection, boolean paused) {
+        connection.readPaused = paused;
+        SelectionKey key = connection.key;
+        if (key.isValid()) {
+            int ops = key.interestOps();
+            key.interestOps(paused ? ops & ~SelectionKey.OP_READ : ops | SelectionKey.OP_READ);
+        }
+    }
+
+    private void closeConnection(Connection connection) {
+        connection.key.cancel();
+        try {
+            connection.channel.close();
+        } catch (IOException e) {
+            // Already gone
+        }
+    }
+}
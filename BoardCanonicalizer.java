@@ -0,0 +1,424 @@
+package TermProject;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Maps a board to one representative of its class under the symmetries that keep a sudoku valid: relabeling the numbers,
+// reordering the bands and stacks, reordering the rows within a band and the columns within a stack, and transposing.
+// Two boards get the same key exactly when one is a transformed copy of the other.
+// The representative first has the clues as far up and left as they go, comparing the rows in order as bit masks of their clues,
+// then the smallest numbers in row order when they are relabeled in order of first appearance. Comparing masks is cheap, and
+// only the column orders that can give the best first row are searched, so most boards take a few thousand steps.
+// Boards with boxes larger than 3x3 have too many column orders to search, they are keyed as they are
+final class BoardCanonicalizer {
+
+    static final int MAX_BOX_SIZE = 3; // 9x9 has 1296 column orders, 16x16 would have 7962624
+    private static final int SEARCH_LIMIT = 50_000; // Search steps before a board counts as too symmetric to key, e.g. the empty board
+
+    private final int boxSize;
+    private final int boardSize;
+    private final int[][] permutations; // Every permutation of boxSize lines, for the stacks and for the columns within a stack
+    private final int[][] lineOrders; // Every order of the columns that keeps the stacks together, new column j is old column lineOrders[k][j]
+    private final int[][] groupOrders; // Old stack at every new stack position, for each column order
+    private final int[][] segmentOrders; // Index into segmentBits of the column order within every new stack position, for each column order
+    private final int[][] segmentBits; // Bits of a stack's mask reordered by every permutation of boxSize columns
+
+    BoardCanonicalizer(int boxSize) {
+        this.boxSize = boxSize;
+        this.boardSize = boxSize * boxSize;
+        if (boxSize > MAX_BOX_SIZE) {
+            this.permutations = null;
+            this.lineOrders = new int[][] {identity(boardSize)};
+            this.groupOrders = null;
+            this.segmentOrders = null;
+            this.segmentBits = null;
+            return;
+        }
+
+        // Column order k is the stack order groupOrders[k] with the column order permutations[segmentOrders[k][g]] in stack position g
+        permutations = permutations(boxSize);
+        int count = permutations.length;
+        for (int group = 0; group < boxSize; group++) {
+            count *= permutations.length;
+        }
+        lineOrders = new int[count][boardSize];
+        groupOrders = new int[count][];
+        segmentOrders = new int[count][boxSize];
+        for (int k = 0; k < count; k++) {
+            int index = k;
+            groupOrders[k] = permutations[index % permutations.length];
+            index /= permutations.length;
+            for (int group = 0; group < boxSize; group++) {
+                segmentOrders[k][group] = index % permutations.length;
+                index /= permutations.length;
+                int[] lineOrder = permutations[segmentOrders[k][group]];
+                for (int i = 0; i < boxSize; i++) {
+                    lineOrders[k][group * boxSize + i] = groupOrders[k][group] * boxSize + lineOrder[i];
+                }
+            }
+        }
+
+        // Bit boxSize - 1 - i of a stack's mask is its column i, so reordering the columns moves the bits
+        segmentBits = new int[permutations.length][1 << boxSize];
+        for (int p = 0; p < permutations.length; p++) {
+            for (int bits = 0; bits < 1 << boxSize; bits++) {
+                for (int i = 0; i < boxSize; i++) {
+                    if ((bits & (1 << (boxSize - 1 - permutations[p][i]))) != 0) {
+                        segmentBits[p][bits] |= 1 << (boxSize - 1 - i);
+                    }
+                }
+            }
+        }
+    }
+
+    // The transform from a board to its representative: representative[i][j] = labels[source[rowOrder[i]][columnOrder[j]]],
+    // where source is the board, or the board transposed when transposed is true
+    static final class Canonical {
+        final String key; // The representative puzzle, one char per cell
+        final boolean transposed;
+        final int[] rowOrder;
+        final int[] columnOrder;
+        final int[] labels; // Label of every original number, a bijection on 1 to boardSize with labels[0] = 0
+
+        Canonical(String key, boolean transposed, int[] rowOrder, int[] columnOrder, int[] labels) {
+            this.key = key;
+            this.transposed = transposed;
+            this.rowOrder = rowOrder;
+            this.columnOrder = columnOrder;
+            this.labels = labels;
+        }
+
+        // Returns a solution of the original board in the representative's orientation and labels, one number per cell
+        byte[] toCanonical(int[][] solution) {
+            int size = rowOrder.length;
+            byte[] canonical = new byte[size * size];
+            for (int i = 0; i < size; i++) {
+                for (int j = 0; j < size; j++) {
+                    int num = transposed ? solution[columnOrder[j]][rowOrder[i]] : solution[rowOrder[i]][columnOrder[j]];
+                    canonical[i * size + j] = (byte) labels[num];
+                }
+            }
+            return canonical;
+        }
+
+        // Writes a solution in the representative's orientation and labels back onto the original board
+        void fromCanonical(byte[] canonical, int[][] board) {
+            int size = rowOrder.length;
+            int[] numbers = new int[size + 1];
+            for (int num = 0; num <= size; num++) {
+                numbers[labels[num]] = num;
+            }
+            for (int i = 0; i < size; i++) {
+                for (int j = 0; j < size; j++) {
+                    int num = numbers[canonical[i * size + j]];
+                    if (transposed) {
+                        board[columnOrder[j]][rowOrder[i]] = num;
+                    } else {
+                        board[rowOrder[i]][columnOrder[j]] = num;
+                    }
+                }
+            }
+        }
+    }
+
+    // Returns the representative of a board that passed the start board check, with the transform that leads to it.
+    // Returns null for a board so symmetric that the search would take longer than solving it
+    Canonical canonicalize(int[][] board) {
+        if (boxSize > MAX_BOX_SIZE) {
+            int[] labels = identity(boardSize + 1);
+            return new Canonical(keyOf(board, false, identity(boardSize), lineOrders[0], labels), false, identity(boardSize), lineOrders[0], labels);
+        }
+        Search search = new Search(board);
+        if (!search.findPatterns()) {
+            return null;
+        }
+        return search.bestNumbers();
+    }
+
+    // State of one canonicalize call, so one canonicalizer can be shared by every thread
+    private final class Search {
+        private final int[][][] sources = new int[2][][]; // The board and the board transposed
+        private final int[][][] stackMasks = new int[2][boardSize][boxSize]; // Clue bits of every row in every stack, for each source
+        private final int[] rowMasks = new int[boardSize]; // Clue bits of every row of the source with the current column order
+        private final int[] bestPattern = new int[boardSize]; // Row masks of the best pattern found so far
+        private int bestRows; // Rows of bestPattern that belong to the best pattern, the rest is left over from other branches
+        private final List<int[]> transforms = new ArrayList<>(); // Source, column order and row order of every transform giving the best pattern
+        private final int[] rowOrder = new int[boardSize];
+        private final int[] firstRowColumnOrders = new int[lineOrders.length];
+        private final int[][] segmentChoices = new int[boxSize][permutations.length]; // Orders within each stack position that keep the best first row
+        private final int[] choiceCounts = new int[boxSize];
+        private final int[] choices = new int[boxSize];
+        private int source;
+        private int columnOrder;
+        private int steps;
+
+        Search(int[][] board) {
+            sources[0] = board;
+            sources[1] = new int[boardSize][boardSize];
+            for (int row = 0; row < boardSize; row++) {
+                for (int col = 0; col < boardSize; col++) {
+                    sources[1][col][row] = board[row][col];
+                }
+            }
+            for (int t = 0; t < 2; t++) {
+                for (int row = 0; row < boardSize; row++) {
+                    for (int col = 0; col < boardSize; col++) {
+                        if (sources[t][row][col] != 0) {
+                            stackMasks[t][row][col / boxSize] |= 1 << (boxSize - 1 - col % boxSize);
+                        }
+                    }
+                }
+            }
+        }
+
+        // Finds every transform giving the best pattern of clues, returns false when there are too many to search
+        boolean findPatterns() {
+            // The best first row puts the stacks with the most clues first and the clues first within each stack,
+            // so only the rows and column orders reaching the best such row start a search
+            int bestFirstRow = 0;
+            int[][] firstRows = new int[2][boardSize];
+            for (int t = 0; t < 2; t++) {
+                for (int row = 0; row < boardSize; row++) {
+                    firstRows[t][row] = bestFirstRow(stackMasks[t][row]);
+                    bestFirstRow = Math.max(bestFirstRow, firstRows[t][row]);
+                }
+            }
+            bestPattern[0] = bestFirstRow;
+            bestRows = 1;
+            for (source = 0; source < 2; source++) {
+                for (int firstRow = 0; firstRow < boardSize; firstRow++) {
+                    if (firstRows[source][firstRow] != bestFirstRow) {
+                        continue;
+                    }
+                    int orderCount = firstRowOrders(firstRow, bestFirstRow);
+                    for (int i = 0; i < orderCount; i++) {
+                        columnOrder = firstRowColumnOrders[i];
+                        for (int row = 0; row < boardSize; row++) {
+                            rowMasks[row] = rowMask(row);
+                        }
+                        rowOrder[0] = firstRow;
+                        if (!chooseRow(1, 1 << firstRow, 1 << (firstRow / boxSize))) {
+                            return false;
+                        }
+                    }
+                }
+            }
+            return true;
+        }
+
+        // Writes the column orders that turn the row into the best first row to firstRowColumnOrders and returns their count.
+        // Only stack orders with the clue counts in the best row's order are tried, and within each stack only the orders putting the clues first
+        private int firstRowOrders(int row, int bestFirstRow) {
+            int[] stacks = stackMasks[source][row];
+            int segmentMask = (1 << boxSize) - 1;
+            int count = 0;
+            for (int groupOrder = 0; groupOrder < permutations.length; groupOrder++) {
+                boolean possible = true;
+                for (int group = 0; group < boxSize && possible; group++) {
+                    int bits = stacks[permutations[groupOrder][group]];
+                    int segment = (bestFirstRow >> (boxSize * (boxSize - 1 - group))) & segmentMask;
+                    choiceCounts[group] = 0;
+                    if (Integer.bitCount(bits) == Integer.bitCount(segment)) {
+                        for (int p = 0; p < permutations.length; p++) {
+                            if (segmentBits[p][bits] == segment) {
+                                segmentChoices[group][choiceCounts[group]++] = p;
+                            }
+                        }
+                    }
+                    possible = choiceCounts[group] > 0;
+                }
+                if (!possible) {
+                    continue;
+                }
+
+                // Every combination of the choices, counting through them like an odometer. The index matches the constructor's layout
+                Arrays.fill(choices, 0);
+                while (true) {
+                    int order = 0;
+                    for (int group = boxSize - 1; group >= 0; group--) {
+                        order = order * permutations.length + segmentChoices[group][choices[group]];
+                    }
+                    firstRowColumnOrders[count++] = order * permutations.length + groupOrder;
+                    int group = 0;
+                    while (group < boxSize && ++choices[group] == choiceCounts[group]) {
+                        choices[group++] = 0;
+                    }
+                    if (group == boxSize) {
+                        break;
+                    }
+                }
+            }
+            return count;
+        }
+
+        // Follows every row with the largest mask at this level. usedRows and usedBands are bit sets of source rows and bands.
+        // Returns false once the search has taken too many steps
+        private boolean chooseRow(int level, int usedRows, int usedBands) {
+            if (++steps > SEARCH_LIMIT) {
+                return false;
+            }
+            if (level == boardSize) {
+                int[] transform = new int[boardSize + 2];
+                transform[0] = source;
+                transform[1] = columnOrder;
+                System.arraycopy(rowOrder, 0, transform, 2, boardSize);
+                transforms.add(transform);
+                return true;
+            }
+            int currentBand = level % boxSize == 0 ? -1 : rowOrder[level - 1] / boxSize;
+            int largest = -1;
+            int largestRows = 0; // Bit set of the source rows with the largest mask
+            for (int row = 0; row < boardSize; row++) {
+                int band = row / boxSize;
+                if ((usedRows & (1 << row)) != 0 || (currentBand < 0 ? (usedBands & (1 << band)) != 0 : band != currentBand)) {
+                    continue;
+                }
+                if (rowMasks[row] > largest) {
+                    largest = rowMasks[row];
+                    largestRows = 1 << row;
+                } else if (rowMasks[row] == largest) {
+                    largestRows |= 1 << row;
+                }
+            }
+
+            // Compare with the best pattern, which has the same rows above this level when bestRows is past it
+            if (bestRows > level) {
+                if (largest < bestPattern[level]) {
+                    return true;
+                }
+                if (largest > bestPattern[level]) {
+                    bestRows = level;
+                }
+            }
+            if (bestRows == level) {
+                // A better pattern, the transforms found so far give a worse one
+                bestPattern[level] = largest;
+                bestRows = level + 1;
+                transforms.clear();
+            }
+
+            for (int rowSet = largestRows; rowSet != 0; rowSet &= rowSet - 1) {
+                int row = Integer.numberOfTrailingZeros(rowSet);
+                rowOrder[level] = row;
+                if (!chooseRow(level + 1, usedRows | (1 << row), usedBands | (1 << (row / boxSize)))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // Returns the clue bits of a row of the current source in the current column order, new column 0 is the highest bit
+        private int rowMask(int row) {
+            int mask = 0;
+            for (int group = 0; group < boxSize; group++) {
+                int bits = stackMasks[source][row][groupOrders[columnOrder][group]];
+                mask = (mask << boxSize) | segmentBits[segmentOrders[columnOrder][group]][bits];
+            }
+            return mask;
+        }
+
+        // Returns the largest mask a row can reach: stacks with more clues first, and the clues first within each stack
+        private int bestFirstRow(int[] stacks) {
+            int[] counts = new int[boxSize];
+            for (int group = 0; group < boxSize; group++) {
+                counts[group] = Integer.bitCount(stacks[group]);
+            }
+            Arrays.sort(counts);
+            int mask = 0;
+            for (int group = boxSize - 1; group >= 0; group--) {
+                mask = (mask << boxSize) | (((1 << counts[group]) - 1) << (boxSize - counts[group]));
+            }
+            return mask;
+        }
+
+        // Returns the transform with the best pattern whose numbers are smallest in row order after relabeling
+        Canonical bestNumbers() {
+            int[] bestTransform = null;
+            int[] bestKey = new int[boardSize * boardSize];
+            int[] key = new int[boardSize * boardSize];
+            int[] labels = new int[boardSize + 1];
+            for (int[] transform : transforms) {
+                int[][] board = sources[transform[0]];
+                int[] columns = lineOrders[transform[1]];
+                Arrays.fill(labels, 0);
+                int nextLabel = 1;
+                int order = bestTransform == null ? -1 : 0;
+                for (int cell = 0; cell < key.length && order <= 0; cell++) {
+                    int num = board[transform[2 + cell / boardSize]][columns[cell % boardSize]];
+                    if (num != 0 && labels[num] == 0) {
+                        labels[num] = nextLabel++;
+                    }
+                    key[cell] = labels[num];
+                    if (order == 0) {
+                        order = Integer.compare(key[cell], bestKey[cell]);
+                    }
+                }
+                if (order < 0) {
+                    System.arraycopy(key, 0, bestKey, 0, key.length);
+                    bestTransform = transform;
+                }
+            }
+
+            // Relabel again for the best transform, numbers not on the board get the labels left over in order so the labels are a bijection
+            int[][] board = sources[bestTransform[0]];
+            int[] columns = lineOrders[bestTransform[1]];
+            int[] rows = Arrays.copyOfRange(bestTransform, 2, bestTransform.length);
+            Arrays.fill(labels, 0);
+            int nextLabel = 1;
+            for (int cell = 0; cell < key.length; cell++) {
+                int num = board[rows[cell / boardSize]][columns[cell % boardSize]];
+                if (num != 0 && labels[num] == 0) {
+                    labels[num] = nextLabel++;
+                }
+            }
+            for (int num = 1; num <= boardSize; num++) {
+                if (labels[num] == 0) {
+                    labels[num] = nextLabel++;
+                }
+            }
+            boolean transposed = bestTransform[0] == 1;
+            return new Canonical(keyOf(sources[0], transposed, rows, columns, labels), transposed, rows, columns, labels);
+        }
+    }
+
+    // Returns the board in the transform's orientation and labels, one char per cell
+    private String keyOf(int[][] board, boolean transposed, int[] rows, int[] columns, int[] labels) {
+        char[] key = new char[boardSize * boardSize];
+        for (int i = 0; i < boardSize; i++) {
+            for (int j = 0; j < boardSize; j++) {
+                int num = transposed ? board[columns[j]][rows[i]] : board[rows[i]][columns[j]];
+                key[i * boardSize + j] = (char) ('0' + labels[num]);
+            }
+        }
+        return new String(key);
+    }
+
+    // Returns every permutation of 0 to n - 1
+    private static int[][] permutations(int n) {
+        if (n == 1) {
+            return new int[][] {{0}};
+        }
+        int[][] smaller = permutations(n - 1);
+        int[][] result = new int[smaller.length * n][];
+        int k = 0;
+        for (int[] permutation : smaller) {
+            for (int position = 0; position < n; position++) {
+                int[] longer = new int[n];
+                for (int i = 0, j = 0; i < n; i++) {
+                    longer[i] = i == position ? n - 1 : permutation[j++];
+                }
+                result[k++] = longer;
+            }
+        }
+        return result;
+    }
+
+    private static int[] identity(int n) {
+        int[] identity = new int[n];
+        for (int i = 0; i < n; i++) {
+            identity[i] = i;
+        }
+        return identity;
+    }
+}
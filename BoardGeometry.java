@@ -0,0 +1,75 @@
+package TermProject;
+
+// Sizes and precomputed lookup tables for a board made of boxSize x boxSize boxes, shared by every solver of that size
+public final class BoardGeometry {
+
+    public static final int MIN_BOX_SIZE = 2;
+    public static final int MAX_BOX_SIZE = 7; // Numbers 1 to 49 still fit in the bits of a long mask
+
+    private static final BoardGeometry[] GEOMETRIES = new BoardGeometry[MAX_BOX_SIZE + 1];
+
+    public final int boxSize; // Length and width of the box set
+    public final int boardSize; // Length and width of the board
+    public final int cellCount; // Number of cells on the board
+    public final int peerCount; // Cells sharing a row, column or box with a cell
+    public final long fullMask; // Bits 1 to boardSize set, bit n stands for number n
+
+    // Row, column and box of every flat cell index, so the search never divides to find them
+    final int[] cellRow;
+    final int[] cellCol;
+    final int[] cellBox;
+    // Flat indices of the peers of every flat cell index
+    final int[][] peers;
+    // Flat indices of the cells of every unit: rows 0 to boardSize - 1, then the columns, then the boxes
+    final int[][] units;
+
+    private BoardGeometry(int boxSize) {
+        this.boxSize = boxSize;
+        this.boardSize = boxSize * boxSize;
+        this.cellCount = boardSize * boardSize;
+        this.peerCount = 3 * boardSize - 2 * boxSize - 1;
+        this.fullMask = ((1L << boardSize) - 1) << 1;
+
+        cellRow = new int[cellCount];
+        cellCol = new int[cellCount];
+        cellBox = new int[cellCount];
+        for (int cell = 0; cell < cellCount; cell++) {
+            cellRow[cell] = cell / boardSize;
+            cellCol[cell] = cell % boardSize;
+            cellBox[cell] = (cellRow[cell] / boxSize) * boxSize + cellCol[cell] / boxSize;
+        }
+
+        peers = new int[cellCount][peerCount];
+        for (int cell = 0; cell < cellCount; cell++) {
+            int count = 0;
+            for (int other = 0; other < cellCount; other++) {
+                boolean isPeer = cellRow[other] == cellRow[cell] || cellCol[other] == cellCol[cell] || cellBox[other] == cellBox[cell];
+                if (other != cell && isPeer) {
+                    peers[cell][count++] = other;
+                }
+            }
+        }
+
+        units = new int[3 * boardSize][boardSize];
+        int[] unitSizes = new int[3 * boardSize];
+        for (int cell = 0; cell < cellCount; cell++) {
+            int rowUnit = cellRow[cell];
+            int colUnit = boardSize + cellCol[cell];
+            int boxUnit = 2 * boardSize + cellBox[cell];
+            units[rowUnit][unitSizes[rowUnit]++] = cell;
+            units[colUnit][unitSizes[colUnit]++] = cell;
+            units[boxUnit][unitSizes[boxUnit]++] = cell;
+        }
+    }
+
+    // Returns the shared geometry for boxSize, building its tables the first time the size is used
+    public static synchronized BoardGeometry of(int boxSize) {
+        if (boxSize < MIN_BOX_SIZE || boxSize > MAX_BOX_SIZE) {
+            throw new IllegalArgumentException(String.format("Box size must be between %d and %d, found %d", MIN_BOX_SIZE, MAX_BOX_SIZE, boxSize));
+        }
+        if (GEOMETRIES[boxSize] == null) {
+            GEOMETRIES[boxSize] = new BoardGeometry(boxSize);
+        }
+        return GEOMETRIES[boxSize];
+    }
+}
@@ -0,0 +1,42 @@
+package TermProject;
+
+// Computes the candidate masks of every cell at once from the row, column and box masks, for the one sweep of the backtracking
+// search that looks at the whole board: bucketing the empty cells by candidate count when a search starts. After that the buckets
+// are kept up to date cell by cell, and propagation only reads the cells of the units it is working on, where a whole board
+// sweep per round measured slower than reading the masks of each cell, with either kernel.
+// The scalar kernel is always there. The Vector API kernel in vector/VectorCandidateKernel.java works out several cells of a row
+// per instruction. It is only compiled and run with --add-modules jdk.incubator.vector, so it is loaded by name and
+// the scalar kernel is used whenever it is missing. Both give the same masks, so the search takes the same steps with either
+interface CandidateKernel {
+
+    // Fills candidates[cell] with the numbers the masks leave open at every cell, filled or not
+    void candidates(long[] rowMasks, long[] columnMasks, long[] boxMasks, long[] candidates);
+
+    // Returns the kernel for searches of the geometry: the Vector API one when -Dsudoku.vector=true asks for it and it is available,
+    // otherwise the scalar one
+    static CandidateKernel create(BoardGeometry geometry) {
+        CandidateKernel vector = Boolean.getBoolean("sudoku.vector") ? vector(geometry) : null;
+        return vector != null ? vector : scalar(geometry);
+    }
+
+    static CandidateKernel scalar(BoardGeometry geometry) {
+        int[] cellRow = geometry.cellRow;
+        int[] cellCol = geometry.cellCol;
+        int[] cellBox = geometry.cellBox;
+        long fullMask = geometry.fullMask;
+        return (rowMasks, columnMasks, boxMasks, candidates) -> {
+            for (int cell = 0; cell < candidates.length; cell++) {
+                candidates[cell] = ~(rowMasks[cellRow[cell]] | columnMasks[cellCol[cell]] | boxMasks[cellBox[cell]]) & fullMask;
+            }
+        };
+    }
+
+    // Returns the Vector API kernel, or null when it wasn't compiled in or the jdk.incubator.vector module isn't loaded
+    static CandidateKernel vector(BoardGeometry geometry) {
+        try {
+            return (CandidateKernel) Class.forName("TermProject.VectorCandidateKernel").getDeclaredConstructor(BoardGeometry.class).newInstance(geometry);
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+}
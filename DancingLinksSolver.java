@@ -0,0 +1,294 @@
+package TermProject;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Exact cover solver (Knuth's Algorithm X with dancing links) for boards of any box size.
+// Columns are the constraints: every cell filled, and every number once per row, column and box (4 * boardSize^2 columns).
+// Rows are the candidates: one per cell and number (boardSize^3 rows), each covering exactly 4 columns.
+// The links live in int arrays that are built once per solver and restored after every search, so searching allocates nothing.
+class DancingLinksSolver {
+
+    private static final int ROOT = 0; // Header node that links the uncovered columns together
+
+    private final BoardGeometry geometry;
+    private final int boardSize;
+    private final int columnCount;
+
+    // Four way links and column header for every node. Nodes 1 to columnCount are the column headers
+    private final int[] left;
+    private final int[] right;
+    private final int[] up;
+    private final int[] down;
+    private final int[] column;
+    private final int[] candidate; // Candidate row (cell * boardSize + number - 1) of every node
+    private final int[] columnSizes; // Number of nodes still linked into each column
+
+    // Selected node of each search level, and the clue nodes covered before searching
+    private final int[] chosenNodes;
+    private final int[] clueNodes;
+
+    // Counters of the last search
+    private long nodeCount; // Candidates selected
+    private long backtrackCount; // Selected candidates taken back to try the next one
+    private long probeCount; // Column choices
+    private int maxDepth; // Most candidates selected at once
+
+    DancingLinksSolver(BoardGeometry geometry) {
+        this.geometry = geometry;
+        this.boardSize = geometry.boardSize;
+        int cellCount = geometry.cellCount;
+        this.columnCount = 4 * cellCount;
+
+        int nodeCount = 1 + columnCount + 4 * cellCount * boardSize;
+        left = new int[nodeCount];
+        right = new int[nodeCount];
+        up = new int[nodeCount];
+        down = new int[nodeCount];
+        column = new int[nodeCount];
+        candidate = new int[nodeCount];
+        columnSizes = new int[columnCount + 1];
+        chosenNodes = new int[cellCount];
+        clueNodes = new int[cellCount];
+
+        // Link the root and the column headers into one row
+        for (int node = 0; node <= columnCount; node++) {
+            left[node] = node == 0 ? columnCount : node - 1;
+            right[node] = node == columnCount ? 0 : node + 1;
+            up[node] = node;
+            down[node] = node;
+            column[node] = node;
+        }
+
+        // Add the four nodes of every candidate row under their columns
+        int next = columnCount + 1;
+        for (int cell = 0; cell < cellCount; cell++) {
+            int row = geometry.cellRow[cell];
+            int col = geometry.cellCol[cell];
+            int box = geometry.cellBox[cell];
+            for (int num = 0; num < boardSize; num++) {
+                int first = next;
+                int[] columns = {
+                        1 + cell,
+                        1 + cellCount + row * boardSize + num,
+                        1 + 2 * cellCount + col * boardSize + num,
+                        1 + 3 * cellCount + box * boardSize + num
+                };
+                for (int i = 0; i < 4; i++) {
+                    int node = next++;
+                    int header = columns[i];
+                    column[node] = header;
+                    candidate[node] = cell * boardSize + num;
+                    // Append to the bottom of the column
+                    up[node] = up[header];
+                    down[node] = header;
+                    down[up[header]] = node;
+                    up[header] = node;
+                    columnSizes[header]++;
+                    // Circular link within the candidate row
+                    left[node] = i == 0 ? first + 3 : node - 1;
+                    right[node] = i == 3 ? first : node + 1;
+                }
+            }
+        }
+    }
+
+    // Searches for solutions of a board that already passed the start board check, up to limit solutions.
+    // Returns the count found, and the first solution found is written into the flat board
+    int searchSolutions(int[] board, int limit) {
+        return searchSolutions(board, limit, null, null);
+    }
+
+    // Same search, which also stops early once cancelled is set or before a select the budget has no room for.
+    // Either may be null, and the links are restored either way
+    int searchSolutions(int[] board, int limit, AtomicBoolean cancelled, SearchBudget budget) {
+        int clueCount = coverClues(board);
+        int solutionCount = 0;
+        int level = 0;
+        nodeCount = 0;
+        backtrackCount = 0;
+        probeCount = 0;
+        maxDepth = 0;
+
+        if (right[ROOT] == ROOT) {
+            // Every constraint is already met by the clues
+            solutionCount = 1;
+        } else {
+            int header = smallestColumn();
+            probeCount++;
+            cover(header);
+            int node = down[header];
+            while (true) {
+                if (cancelled != null && cancelled.get()) {
+                    // The header of this level is covered but none of its candidates is selected
+                    uncover(header);
+                    break;
+                }
+                if (node == header) {
+                    // Every candidate of this column was tried, go back up a level
+                    uncover(header);
+                    if (level == 0) {
+                        break;
+                    }
+                    node = chosenNodes[--level];
+                    unselect(node);
+                    backtrackCount++;
+                    header = column[node];
+                    node = down[node];
+                    continue;
+                }
+
+                if (budget != null && nodeCount >= budget.nextCheck && budget.exhausted(nodeCount)) {
+                    uncover(header);
+                    break;
+                }
+                select(node);
+                chosenNodes[level++] = node;
+                nodeCount++;
+                if (level > maxDepth) {
+                    maxDepth = level;
+                }
+                if (right[ROOT] == ROOT) {
+                    // All columns covered, the chosen candidates are a solution
+                    if (++solutionCount == 1) {
+                        writeSolution(board, level);
+                    }
+                    if (solutionCount >= limit) {
+                        break;
+                    }
+                    node = chosenNodes[--level];
+                    unselect(node);
+                    backtrackCount++;
+                    node = down[node];
+                    continue;
+                }
+
+                int nextHeader = smallestColumn();
+                probeCount++;
+                if (columnSizes[nextHeader] == 0) {
+                    // A constraint can no longer be met, try the next candidate of this column
+                    node = chosenNodes[--level];
+                    unselect(node);
+                    backtrackCount++;
+                    node = down[node];
+                    continue;
+                }
+                header = nextHeader;
+                cover(header);
+                node = down[header];
+            }
+
+            // Restore the links when the search stopped early at the limit or was cancelled
+            while (level > 0) {
+                node = chosenNodes[--level];
+                unselect(node);
+                uncover(column[node]);
+            }
+        }
+
+        uncoverClues(clueCount);
+        return solutionCount;
+    }
+
+    // Counters of the last search, read by SolverContext for its stats
+    long lastNodeCount() {
+        return nodeCount;
+    }
+
+    long lastBacktrackCount() {
+        return backtrackCount;
+    }
+
+    long lastProbeCount() {
+        return probeCount;
+    }
+
+    int lastMaxDepth() {
+        return maxDepth;
+    }
+
+    // Covers the columns of every clue on the board and returns the number of clues
+    private int coverClues(int[] board) {
+        int clueCount = 0;
+        for (int cell = 0; cell < geometry.cellCount; cell++) {
+            int num = board[cell];
+            if (num != 0) {
+                // Candidate rows were added in cell then number order, 4 nodes each
+                int node = columnCount + 1 + 4 * (cell * boardSize + num - 1);
+                cover(column[node]);
+                select(node);
+                clueNodes[clueCount++] = node;
+            }
+        }
+        return clueCount;
+    }
+
+    // Uncovers the clue columns in the reverse order they were covered
+    private void uncoverClues(int clueCount) {
+        for (int i = clueCount - 1; i >= 0; i--) {
+            unselect(clueNodes[i]);
+            uncover(column[clueNodes[i]]);
+        }
+    }
+
+    // Returns the uncovered column with the fewest candidates left
+    private int smallestColumn() {
+        int best = right[ROOT];
+        for (int header = right[best]; header != ROOT; header = right[header]) {
+            if (columnSizes[header] < columnSizes[best]) {
+                best = header;
+                if (columnSizes[best] <= 1) {
+                    break;
+                }
+            }
+        }
+        return best;
+    }
+
+    // Writes the clues and chosen candidates into the board
+    private void writeSolution(int[] board, int level) {
+        for (int i = 0; i < level; i++) {
+            int row = candidate[chosenNodes[i]];
+            board[row / boardSize] = row % boardSize + 1;
+        }
+    }
+
+    // Covers the other columns of the node's candidate row
+    private void select(int node) {
+        for (int other = right[node]; other != node; other = right[other]) {
+            cover(column[other]);
+        }
+    }
+
+    // Uncovers the other columns of the node's candidate row in reverse order
+    private void unselect(int node) {
+        for (int other = left[node]; other != node; other = left[other]) {
+            uncover(column[other]);
+        }
+    }
+
+    // Removes the column header and every candidate row in the column from the other columns
+    private void cover(int header) {
+        right[left[header]] = right[header];
+        left[right[header]] = left[header];
+        for (int row = down[header]; row != header; row = down[row]) {
+            for (int node = right[row]; node != row; node = right[node]) {
+                down[up[node]] = down[node];
+                up[down[node]] = up[node];
+                columnSizes[column[node]]--;
+            }
+        }
+    }
+
+    // Puts back everything cover removed, in the reverse order
+    private void uncover(int header) {
+        for (int row = up[header]; row != header; row = up[row]) {
+            for (int node = left[row]; node != row; node = left[node]) {
+                columnSizes[column[node]]++;
+                down[up[node]] = node;
+                up[down[node]] = node;
+            }
+        }
+        right[left[header]] = header;
+        left[right[header]] = header;
+    }
+}
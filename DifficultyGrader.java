@@ -0,0 +1,673 @@
+package TermProject;
+
+import java.util.Arrays;
+
+// Rates a puzzle by solving it the way a person would: at every step it uses the easiest technique that makes progress, and the
+// rating is the hardest technique the puzzle needed. The score adds up the rating of every step, so long solves with easy steps
+// still score higher than short ones. A puzzle none of the techniques can finish is rated GUESS.
+// Candidates are one long bitmask per cell like the search masks, and every array is allocated once per grader,
+// so grading allocates only the Grade it returns. A grader is not thread safe, give each thread its own
+public class DifficultyGrader {
+
+    // Techniques from easiest to hardest, the rating roughly follows Sudoku Explainer's
+    public enum Technique {
+        NONE(0), // The board was already full
+        HIDDEN_SINGLE(12), // The only cell of a row, column or box left for a number
+        NAKED_SINGLE(23), // The only number left for a cell
+        LOCKED_CANDIDATES(26), // A number in a box confined to one row or column, or the other way around
+        NAKED_PAIR(30), // Two cells of a unit with the same two numbers left
+        X_WING(32), // A number in two rows confined to the same two columns, or the other way around
+        HIDDEN_PAIR(34), // Two numbers confined to the same two cells of a unit
+        NAKED_TRIPLE(36),
+        SWORDFISH(38), // X_WING with three rows and columns
+        HIDDEN_TRIPLE(40),
+        XY_WING(42), // A cell with two numbers and two peers that between them force a third number out of the cells they both see
+        SIMPLE_COLORING(45), // Chains of the two cells left for a number in a unit, colored alternately
+        GUESS(100); // None of the techniques above makes progress
+
+        private final int rating; // Tenths of a point
+
+        Technique(int rating) {
+            this.rating = rating;
+        }
+
+        public double getRating() {
+            return rating / 10.0;
+        }
+    }
+
+    // Result of grading one puzzle
+    public static final class Grade {
+        private final Technique hardest;
+        private final double score;
+        private final int steps;
+        private final boolean solved;
+
+        Grade(Technique hardest, double score, int steps, boolean solved) {
+            this.hardest = hardest;
+            this.score = score;
+            this.steps = steps;
+            this.solved = solved;
+        }
+
+        // Returns the hardest technique the puzzle needed, GUESS when the techniques could not finish it
+        public Technique getHardest() {
+            return hardest;
+        }
+
+        // Returns the rating of the hardest technique
+        public double getRating() {
+            return hardest.getRating();
+        }
+
+        // Returns the sum of the ratings of every step taken, plus the GUESS rating when the techniques got stuck
+        public double getScore() {
+            return score;
+        }
+
+        // Returns the count of steps taken, a step places one answer or removes candidates
+        public int getSteps() {
+            return steps;
+        }
+
+        // Returns true when the techniques filled in the whole board
+        public boolean isSolved() {
+            return solved;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s (%.1f) score=%.1f steps=%d%s", hardest, getRating(), score, steps, solved ? "" : " unsolved");
+        }
+    }
+
+    // Order the techniques are tried in at every step
+    private static final Technique[] ORDER = {Technique.HIDDEN_SINGLE, Technique.NAKED_SINGLE, Technique.LOCKED_CANDIDATES,
+            Technique.NAKED_PAIR, Technique.X_WING, Technique.HIDDEN_PAIR, Technique.NAKED_TRIPLE, Technique.SWORDFISH,
+            Technique.HIDDEN_TRIPLE, Technique.XY_WING, Technique.SIMPLE_COLORING};
+
+    private static final int PROGRESS = 1;
+    private static final int NO_PROGRESS = 0;
+    private static final int CONTRADICTION = -1;
+
+    private final int boardSize;
+    private final int cellCount;
+    private final long fullMask;
+    private final int[] cellRow;
+    private final int[] cellCol;
+    private final int[] cellBox;
+    private final int[][] peers;
+    private final int[][] units; // Rows, then columns, then boxes
+
+    private final long[] candidates; // Numbers still possible in every empty cell, 0 for a filled cell
+    private final int[] values; // Number in every cell, 0 when empty
+    private int emptyCount;
+    private final int[] techniqueCounts = new int[Technique.values().length]; // Steps of each technique in the last grade
+
+    // Scratch space reused by the techniques
+    private final int[] subsetCells;
+    private final long[] subsetMasks;
+    private final long[] lineSets; // For each number, the lines or boxes its cells are in
+    private final int[] colors; // Chain color of every cell for simple coloring, 0 when not on a chain
+    private final int[] chainCells;
+
+    public DifficultyGrader(int boxSize) {
+        BoardGeometry geometry = BoardGeometry.of(boxSize);
+        this.boardSize = geometry.boardSize;
+        this.cellCount = geometry.cellCount;
+        this.fullMask = geometry.fullMask;
+        this.cellRow = geometry.cellRow;
+        this.cellCol = geometry.cellCol;
+        this.cellBox = geometry.cellBox;
+        this.peers = geometry.peers;
+        this.units = geometry.units;
+        this.candidates = new long[cellCount];
+        this.values = new int[cellCount];
+        this.subsetCells = new int[boardSize];
+        this.subsetMasks = new long[boardSize + 1];
+        this.lineSets = new long[boardSize + 1];
+        this.colors = new int[cellCount];
+        this.chainCells = new int[cellCount];
+    }
+
+    // Grades a puzzle, the board itself is left unchanged
+    public Grade grade(int[][] board) {
+        load(board);
+        Arrays.fill(techniqueCounts, 0);
+        Technique hardest = Technique.NONE;
+        int score = 0;
+        int steps = 0;
+        while (emptyCount > 0) {
+            Technique technique = step();
+            if (technique == null) {
+                // A cell or number has nowhere left to go, the puzzle has no solution
+                return new Grade(Technique.GUESS, (score + Technique.GUESS.rating) / 10.0, steps, false);
+            }
+            if (technique.ordinal() > hardest.ordinal()) {
+                hardest = technique;
+            }
+            techniqueCounts[technique.ordinal()]++;
+            score += technique.rating;
+            if (technique == Technique.GUESS) {
+                return new Grade(hardest, score / 10.0, steps, false);
+            }
+            steps++;
+        }
+        return new Grade(hardest, score / 10.0, steps, true);
+    }
+
+    // Returns the count of steps each technique took in the last grade, indexed by Technique.ordinal()
+    public int getTechniqueCount(Technique technique) {
+        return techniqueCounts[technique.ordinal()];
+    }
+
+    // Returns the number in a cell after the last grade, 0 where the techniques left it empty
+    int valueAt(int cell) {
+        return values[cell];
+    }
+
+    // Fills the candidates from the board, a duplicate number leaves some cell or unit without candidates and shows up as a contradiction
+    private void load(int[][] board) {
+        if (board.length != boardSize) {
+            throw new IllegalArgumentException(String.format("Sudoku board must have %d rows, found %d rows", boardSize, board.length));
+        }
+        Arrays.fill(candidates, fullMask);
+        emptyCount = cellCount;
+        for (int cell = 0; cell < cellCount; cell++) {
+            int[] boardRow = board[cellRow[cell]];
+            if (boardRow.length != boardSize) {
+                throw new IllegalArgumentException(String.format("Sudoku board must have %d columns, found %d columns at row [%d]", boardSize, boardRow.length, cellRow[cell]));
+            }
+            int num = boardRow[cellCol[cell]];
+            if (num < 0 || num > boardSize) {
+                throw new IllegalArgumentException(String.format("Invalid number %d at [%d, %d]", num, cellRow[cell], cellCol[cell]));
+            }
+            values[cell] = 0;
+        }
+        for (int cell = 0; cell < cellCount; cell++) {
+            int num = board[cellRow[cell]][cellCol[cell]];
+            if (num != 0) {
+                place(cell, num);
+            }
+        }
+    }
+
+    // Takes one step with the easiest technique that makes progress. Returns the technique, GUESS when none does, or null on a contradiction
+    private Technique step() {
+        for (Technique technique : ORDER) {
+            int result = apply(technique);
+            if (result == PROGRESS) {
+                return technique;
+            }
+            if (result == CONTRADICTION) {
+                return null;
+            }
+        }
+        return Technique.GUESS;
+    }
+
+    private int apply(Technique technique) {
+        switch (technique) {
+            case HIDDEN_SINGLE:
+                return hiddenSingle();
+            case NAKED_SINGLE:
+                return nakedSingle();
+            case LOCKED_CANDIDATES:
+                return lockedCandidates();
+            case NAKED_PAIR:
+                return nakedSubset(2);
+            case NAKED_TRIPLE:
+                return nakedSubset(3);
+            case HIDDEN_PAIR:
+                return hiddenSubset(2);
+            case HIDDEN_TRIPLE:
+                return hiddenSubset(3);
+            case X_WING:
+                return fish(2);
+            case SWORDFISH:
+                return fish(3);
+            case XY_WING:
+                return xyWing();
+            case SIMPLE_COLORING:
+                return simpleColoring();
+            default:
+                return NO_PROGRESS;
+        }
+    }
+
+    // Places a number and removes it from the candidates of every peer
+    private void place(int cell, int num) {
+        values[cell] = num;
+        candidates[cell] = 0;
+        emptyCount--;
+        long clearBit = ~(1L << num);
+        for (int peer : peers[cell]) {
+            candidates[peer] &= clearBit;
+        }
+    }
+
+    // Places the first number found with one cell left in some unit
+    private int hiddenSingle() {
+        for (int[] unit : units) {
+            long once = 0;
+            long twice = 0;
+            long placed = 0;
+            for (int cell : unit) {
+                if (values[cell] != 0) {
+                    placed |= 1L << values[cell];
+                } else {
+                    twice |= once & candidates[cell];
+                    once |= candidates[cell];
+                }
+            }
+            if ((once | placed) != fullMask) {
+                return CONTRADICTION;
+            }
+            long singles = once & ~twice;
+            if (singles == 0) {
+                continue;
+            }
+            long bit = singles & -singles;
+            for (int cell : unit) {
+                if ((candidates[cell] & bit) != 0) {
+                    place(cell, Long.numberOfTrailingZeros(bit));
+                    return PROGRESS;
+                }
+            }
+        }
+        return NO_PROGRESS;
+    }
+
+    // Places the first number found that is the only one left in its cell
+    private int nakedSingle() {
+        for (int cell = 0; cell < cellCount; cell++) {
+            if (values[cell] != 0) {
+                continue;
+            }
+            long mask = candidates[cell];
+            if (mask == 0) {
+                return CONTRADICTION;
+            }
+            if ((mask & (mask - 1)) == 0) {
+                place(cell, Long.numberOfTrailingZeros(mask));
+                return PROGRESS;
+            }
+        }
+        return NO_PROGRESS;
+    }
+
+    // Pointing: a number in a box confined to one row or column is removed from the rest of that line.
+    // Claiming: a number in a row or column confined to one box is removed from the rest of that box
+    private int lockedCandidates() {
+        for (int box = 0; box < boardSize; box++) {
+            int[] boxCells = units[2 * boardSize + box];
+            // Rows of the box holding each number, then the columns
+            for (int pass = 0; pass < 2; pass++) {
+                Arrays.fill(lineSets, 0);
+                for (int cell : boxCells) {
+                    int line = pass == 0 ? cellRow[cell] : cellCol[cell];
+                    for (long mask = candidates[cell]; mask != 0; mask &= mask - 1) {
+                        lineSets[Long.numberOfTrailingZeros(mask)] |= 1L << line;
+                    }
+                }
+                for (int num = 1; num <= boardSize; num++) {
+                    long lines = lineSets[num];
+                    if (lines == 0 || (lines & (lines - 1)) != 0) {
+                        continue;
+                    }
+                    int line = Long.numberOfTrailingZeros(lines);
+                    if (eliminateOutsideBox(units[pass * boardSize + line], num, box)) {
+                        return PROGRESS;
+                    }
+                }
+            }
+        }
+        for (int line = 0; line < 2 * boardSize; line++) {
+            Arrays.fill(lineSets, 0);
+            for (int cell : units[line]) {
+                for (long mask = candidates[cell]; mask != 0; mask &= mask - 1) {
+                    lineSets[Long.numberOfTrailingZeros(mask)] |= 1L << cellBox[cell];
+                }
+            }
+            for (int num = 1; num <= boardSize; num++) {
+                long boxes = lineSets[num];
+                if (boxes == 0 || (boxes & (boxes - 1)) != 0) {
+                    continue;
+                }
+                int box = Long.numberOfTrailingZeros(boxes);
+                if (eliminateOutsideLine(units[2 * boardSize + box], num, line)) {
+                    return PROGRESS;
+                }
+            }
+        }
+        return NO_PROGRESS;
+    }
+
+    // Removes num from the cells of a line that are outside the box, returns true when any was removed
+    private boolean eliminateOutsideBox(int[] line, int num, int box) {
+        boolean eliminated = false;
+        long bit = 1L << num;
+        for (int cell : line) {
+            if (cellBox[cell] != box && (candidates[cell] & bit) != 0) {
+                candidates[cell] &= ~bit;
+                eliminated = true;
+            }
+        }
+        return eliminated;
+    }
+
+    // Removes num from the cells of a box that are outside the line, rows are lines 0 to boardSize - 1 and columns the rest
+    private boolean eliminateOutsideLine(int[] box, int num, int line) {
+        boolean eliminated = false;
+        long bit = 1L << num;
+        for (int cell : box) {
+            boolean inside = line < boardSize ? cellRow[cell] == line : cellCol[cell] == line - boardSize;
+            if (!inside && (candidates[cell] & bit) != 0) {
+                candidates[cell] &= ~bit;
+                eliminated = true;
+            }
+        }
+        return eliminated;
+    }
+
+    // Finds size cells of a unit whose candidates together are size numbers, and removes those numbers from the unit's other cells
+    private int nakedSubset(int size) {
+        for (int[] unit : units) {
+            int count = 0;
+            for (int cell : unit) {
+                int bits = Long.bitCount(candidates[cell]);
+                if (values[cell] == 0 && bits >= 2 && bits <= size) {
+                    subsetCells[count++] = cell;
+                }
+            }
+            if (count < size) {
+                continue;
+            }
+            if (nakedSubset(unit, size, count, 0, 0, 0)) {
+                return PROGRESS;
+            }
+        }
+        return NO_PROGRESS;
+    }
+
+    // Tries every combination of size cells from subsetCells[from, count), chosen holds the cells picked so far as bits over subsetCells
+    private boolean nakedSubset(int[] unit, int size, int count, int from, long chosen, long union) {
+        if (Long.bitCount(chosen) == size) {
+            if (Long.bitCount(union) != size) {
+                return false;
+            }
+            boolean eliminated = false;
+            for (int cell : unit) {
+                if (values[cell] != 0 || isChosen(cell, count, chosen) || (candidates[cell] & union) == 0) {
+                    continue;
+                }
+                candidates[cell] &= ~union;
+                eliminated = true;
+            }
+            return eliminated;
+        }
+        for (int i = from; i < count; i++) {
+            long next = union | candidates[subsetCells[i]];
+            if (Long.bitCount(next) <= size && nakedSubset(unit, size, count, i + 1, chosen | (1L << i), next)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isChosen(int cell, int count, long chosen) {
+        for (long bits = chosen; bits != 0; bits &= bits - 1) {
+            if (subsetCells[Long.numberOfTrailingZeros(bits)] == cell) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Finds size numbers confined to the same size cells of a unit, and removes every other number from those cells
+    private int hiddenSubset(int size) {
+        for (int[] unit : units) {
+            // Positions within the unit of every number still open
+            Arrays.fill(subsetMasks, 0);
+            for (int i = 0; i < unit.length; i++) {
+                for (long mask = candidates[unit[i]]; mask != 0; mask &= mask - 1) {
+                    subsetMasks[Long.numberOfTrailingZeros(mask)] |= 1L << i;
+                }
+            }
+            int count = 0;
+            for (int num = 1; num <= boardSize; num++) {
+                int bits = Long.bitCount(subsetMasks[num]);
+                if (bits >= 2 && bits <= size) {
+                    subsetCells[count++] = num;
+                }
+            }
+            if (count >= size && hiddenSubset(unit, size, count, 0, 0, 0, 0)) {
+                return PROGRESS;
+            }
+        }
+        return NO_PROGRESS;
+    }
+
+    // Tries every combination of size numbers from subsetCells[from, count), positions is the union of their positions in the unit
+    private boolean hiddenSubset(int[] unit, int size, int count, int from, int chosen, long numbers, long positions) {
+        if (chosen == size) {
+            if (Long.bitCount(positions) != size) {
+                return false;
+            }
+            boolean eliminated = false;
+            for (long bits = positions; bits != 0; bits &= bits - 1) {
+                int cell = unit[Long.numberOfTrailingZeros(bits)];
+                if ((candidates[cell] & ~numbers) != 0) {
+                    candidates[cell] &= numbers;
+                    eliminated = true;
+                }
+            }
+            return eliminated;
+        }
+        for (int i = from; i < count; i++) {
+            int num = subsetCells[i];
+            long next = positions | subsetMasks[num];
+            if (Long.bitCount(next) <= size && hiddenSubset(unit, size, count, i + 1, chosen + 1, numbers | (1L << num), next)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // X_WING and SWORDFISH: size rows where a number is confined to the same size columns remove it from the rest of those columns,
+    // and the same with rows and columns swapped
+    private int fish(int size) {
+        for (int num = 1; num <= boardSize; num++) {
+            long bit = 1L << num;
+            for (int pass = 0; pass < 2; pass++) {
+                int count = 0;
+                for (int line = 0; line < boardSize; line++) {
+                    long positions = 0;
+                    for (int i = 0; i < boardSize; i++) {
+                        if ((candidates[units[pass * boardSize + line][i]] & bit) != 0) {
+                            positions |= 1L << i;
+                        }
+                    }
+                    int bits = Long.bitCount(positions);
+                    if (bits >= 2 && bits <= size) {
+                        subsetCells[count] = line;
+                        subsetMasks[count++] = positions;
+                    }
+                }
+                if (count >= size && fish(num, pass, size, count, 0, 0, 0)) {
+                    return PROGRESS;
+                }
+            }
+        }
+        return NO_PROGRESS;
+    }
+
+    // Tries every combination of size base lines from subsetCells[from, count), cover is the union of their positions
+    private boolean fish(int num, int pass, int size, int count, int from, long chosen, long cover) {
+        if (Long.bitCount(chosen) == size) {
+            if (Long.bitCount(cover) != size) {
+                return false;
+            }
+            boolean eliminated = false;
+            long bit = 1L << num;
+            for (long covers = cover; covers != 0; covers &= covers - 1) {
+                // A row pass covers with columns, a column pass with rows
+                int[] coverLine = units[(1 - pass) * boardSize + Long.numberOfTrailingZeros(covers)];
+                for (int line = 0; line < boardSize; line++) {
+                    int cell = coverLine[line];
+                    if (!isBaseLine(line, count, chosen) && (candidates[cell] & bit) != 0) {
+                        candidates[cell] &= ~bit;
+                        eliminated = true;
+                    }
+                }
+            }
+            return eliminated;
+        }
+        for (int i = from; i < count; i++) {
+            long next = cover | subsetMasks[i];
+            if (Long.bitCount(next) <= size && fish(num, pass, size, count, i + 1, chosen | (1L << i), next)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isBaseLine(int line, int count, long chosen) {
+        for (long bits = chosen; bits != 0; bits &= bits - 1) {
+            if (subsetCells[Long.numberOfTrailingZeros(bits)] == line) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // A pivot with numbers {a, b} and two peers with {a, c} and {b, c}: whichever the pivot holds, one of the peers holds c,
+    // so c is removed from every cell that sees both peers
+    private int xyWing() {
+        for (int pivot = 0; pivot < cellCount; pivot++) {
+            long pivotMask = candidates[pivot];
+            if (Long.bitCount(pivotMask) != 2) {
+                continue;
+            }
+            for (int first : peers[pivot]) {
+                long firstMask = candidates[first];
+                if (Long.bitCount(firstMask) != 2 || Long.bitCount(firstMask & pivotMask) != 1) {
+                    continue;
+                }
+                long c = firstMask & ~pivotMask;
+                for (int second : peers[pivot]) {
+                    long secondMask = candidates[second];
+                    if (second == first || Long.bitCount(secondMask) != 2 || (secondMask & c) == 0
+                            || (secondMask & pivotMask) != (pivotMask & ~firstMask)) {
+                        continue;
+                    }
+                    boolean eliminated = false;
+                    for (int cell : peers[first]) {
+                        if (cell != second && cell != pivot && (candidates[cell] & c) != 0 && isPeer(cell, second)) {
+                            candidates[cell] &= ~c;
+                            eliminated = true;
+                        }
+                    }
+                    if (eliminated) {
+                        return PROGRESS;
+                    }
+                }
+            }
+        }
+        return NO_PROGRESS;
+    }
+
+    // For each number, links the two cells left for it in a unit and colors every chain of links alternately, one color holds the number.
+    // Two cells of one color in the same unit make that color false. A cell seeing both colors of a chain can't hold the number
+    private int simpleColoring() {
+        for (int num = 1; num <= boardSize; num++) {
+            long bit = 1L << num;
+            Arrays.fill(colors, 0);
+            int chain = 0;
+            for (int start = 0; start < cellCount; start++) {
+                if ((candidates[start] & bit) == 0 || colors[start] != 0 || !hasLink(start, bit)) {
+                    continue;
+                }
+                // Colors 2 * chain - 1 and 2 * chain for this chain, breadth first over the links
+                chain++;
+                int size = 0;
+                colors[start] = 2 * chain - 1;
+                chainCells[size++] = start;
+                for (int next = 0; next < size; next++) {
+                    int cell = chainCells[next];
+                    for (int u = 0; u < 3; u++) {
+                        int[] unit = units[u == 0 ? cellRow[cell] : u == 1 ? boardSize + cellCol[cell] : 2 * boardSize + cellBox[cell]];
+                        int other = linkedCell(unit, cell, bit);
+                        if (other >= 0 && colors[other] == 0) {
+                            colors[other] = colors[cell] == 2 * chain - 1 ? 2 * chain : 2 * chain - 1;
+                            chainCells[size++] = other;
+                        }
+                    }
+                }
+
+                // Color wrap: two cells of one color see each other, every cell of that color loses the number
+                for (int i = 0; i < size; i++) {
+                    for (int j = i + 1; j < size; j++) {
+                        if (colors[chainCells[i]] == colors[chainCells[j]] && isPeer(chainCells[i], chainCells[j])) {
+                            int falseColor = colors[chainCells[i]];
+                            for (int k = 0; k < size; k++) {
+                                if (colors[chainCells[k]] == falseColor) {
+                                    candidates[chainCells[k]] &= ~bit;
+                                }
+                            }
+                            return PROGRESS;
+                        }
+                    }
+                }
+
+                // Color trap: a cell off the chain that sees both colors loses the number
+                boolean eliminated = false;
+                for (int cell = 0; cell < cellCount; cell++) {
+                    if ((candidates[cell] & bit) == 0 || colors[cell] != 0) {
+                        continue;
+                    }
+                    boolean seesFirst = false;
+                    boolean seesSecond = false;
+                    for (int i = 0; i < size && !(seesFirst && seesSecond); i++) {
+                        if (isPeer(cell, chainCells[i])) {
+                            seesFirst |= colors[chainCells[i]] == 2 * chain - 1;
+                            seesSecond |= colors[chainCells[i]] == 2 * chain;
+                        }
+                    }
+                    if (seesFirst && seesSecond) {
+                        candidates[cell] &= ~bit;
+                        eliminated = true;
+                    }
+                }
+                if (eliminated) {
+                    return PROGRESS;
+                }
+            }
+        }
+        return NO_PROGRESS;
+    }
+
+    // Returns true when the cell is one of exactly two cells left for the number in some unit
+    private boolean hasLink(int cell, long bit) {
+        return linkedCell(units[cellRow[cell]], cell, bit) >= 0 || linkedCell(units[boardSize + cellCol[cell]], cell, bit) >= 0
+                || linkedCell(units[2 * boardSize + cellBox[cell]], cell, bit) >= 0;
+    }
+
+    // Returns the other cell of the unit when the number is left in exactly the cell and one other, otherwise -1
+    private int linkedCell(int[] unit, int cell, long bit) {
+        int other = -1;
+        for (int member : unit) {
+            if (member != cell && (candidates[member] & bit) != 0) {
+                if (other >= 0) {
+                    return -1;
+                }
+                other = member;
+            }
+        }
+        return other;
+    }
+
+    private boolean isPeer(int first, int second) {
+        return first != second && (cellRow[first] == cellRow[second] || cellCol[first] == cellCol[second] || cellBox[first] == cellBox[second]);
+    }
+}
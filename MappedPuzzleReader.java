@@ -0,0 +1,194 @@
+package TermProject;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+// Reads puzzle records straight out of a memory-mapped file, one symbol per cell and one record per line.
+// Each byte goes through a lookup table into the board, so no String or Integer is made for a cell.
+// split cuts a file into regions at line breaks, so several workers can each read their own region of one file.
+public class MappedPuzzleReader {
+
+    // Results of next
+    public static final int RECORD = 0;
+    public static final int INVALID_RECORD = 1;
+    public static final int END_OF_REGION = 2;
+
+    private static final long MAX_REGION_SIZE = Integer.MAX_VALUE; // A single mapping is limited to 2 GB
+    private static final int SCAN_SIZE = 1 << 12; // Bytes read at a time when looking for the next line break
+
+    private final MappedByteBuffer buffer;
+    private final long regionStart; // File position of the first byte of the region
+    private final int cellCount;
+    private final int[] cellRow;
+    private final int[] cellCol;
+    private final byte[] numberForByte; // Number of every byte value, -1 when it is not a symbol
+    private final int[] cells; // Record decoded by next(int[][]) before it is copied into the board
+    private int recordStart; // Buffer position of the last record read
+    private int recordEnd;
+
+    private MappedPuzzleReader(MappedByteBuffer buffer, long regionStart, BoardGeometry geometry) {
+        this.buffer = buffer;
+        this.regionStart = regionStart;
+        this.cellCount = geometry.cellCount;
+        this.cellRow = geometry.cellRow;
+        this.cellCol = geometry.cellCol;
+        this.numberForByte = symbolTable(geometry.boardSize);
+        this.cells = new int[cellCount];
+    }
+
+    // Maps the file for reading and returns one reader per region. There are at most parts regions,
+    // unless a region would pass the 2 GB mapping limit, and every region starts at the beginning of a line
+    public static MappedPuzzleReader[] split(Path file, int parts, int boxSize) throws IOException {
+        if (parts < 1) {
+            throw new IllegalArgumentException(String.format("Number of parts must be at least 1, found %d", parts));
+        }
+        BoardGeometry geometry = BoardGeometry.of(boxSize);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long[] boundaries = regionBoundaries(channel, parts);
+            MappedPuzzleReader[] readers = new MappedPuzzleReader[boundaries.length - 1];
+            for (int i = 0; i < readers.length; i++) {
+                // The mapping stays valid after the channel is closed
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, boundaries[i], boundaries[i + 1] - boundaries[i]);
+                readers[i] = new MappedPuzzleReader(buffer, boundaries[i], geometry);
+            }
+            return readers;
+        }
+    }
+
+    // Returns the region starts followed by the file size. Targets are spaced evenly and moved forward past the next line break
+    static long[] regionBoundaries(FileChannel channel, int parts) throws IOException {
+        long size = channel.size();
+        parts = (int) Math.max(parts, (size + MAX_REGION_SIZE / 2 - 1) / (MAX_REGION_SIZE / 2));
+        long[] boundaries = new long[parts + 1];
+        int count = 1;
+        ByteBuffer scan = ByteBuffer.allocate(SCAN_SIZE);
+        for (int i = 1; i < parts; i++) {
+            long target = Math.max(size / parts * i, boundaries[count - 1]);
+            long boundary = nextLineStart(channel, target, scan);
+            if (boundary > boundaries[count - 1] && boundary < size) {
+                boundaries[count++] = boundary;
+            }
+        }
+        boundaries[count++] = size;
+        return Arrays.copyOf(boundaries, count);
+    }
+
+    // Returns the position just after the first line break at or after position, or the file size when there is none
+    private static long nextLineStart(FileChannel channel, long position, ByteBuffer scan) throws IOException {
+        while (true) {
+            scan.clear();
+            int read = channel.read(scan, position);
+            if (read <= 0) {
+                return channel.size();
+            }
+            for (int i = 0; i < read; i++) {
+                if (scan.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+    }
+
+    // Decodes the next record into the board, see next(int[])
+    public int next(int[][] board) {
+        int result = next(cells);
+        if (result != END_OF_REGION) {
+            for (int cell = 0; cell < cellCount; cell++) {
+                board[cellRow[cell]][cellCol[cell]] = cells[cell];
+            }
+        }
+        return result;
+    }
+
+    // Decodes the next record into the flat board, a symbol's position in the line is its cell index. Blank lines are skipped,
+    // and a record with the wrong length or a symbol out of range is INVALID_RECORD, which leaves the board partly written
+    public int next(int[] board) {
+        if (board.length != cellCount) {
+            throw new IllegalArgumentException(String.format("Sudoku board must have %d cells, found %d cells", cellCount, board.length));
+        }
+        int position = buffer.position();
+        int limit = buffer.limit();
+        while (position < limit && isLineSpace(buffer.get(position))) {
+            position++;
+        }
+        if (position == limit) {
+            buffer.position(position);
+            return END_OF_REGION;
+        }
+
+        recordStart = position;
+        int result = RECORD;
+        int cell = 0;
+        while (position < limit) {
+            byte symbol = buffer.get(position);
+            if (symbol == '\n' || symbol == '\r') {
+                break;
+            }
+            if (cell < cellCount) {
+                int num = numberForByte[symbol & 0xFF];
+                if (num < 0) {
+                    result = INVALID_RECORD;
+                } else {
+                    board[cell] = num;
+                }
+            }
+            cell++;
+            position++;
+        }
+        recordEnd = position;
+        buffer.position(position);
+        return cell == cellCount ? result : INVALID_RECORD;
+    }
+
+    // Returns the file position of the last record read
+    public long recordOffset() {
+        return regionStart + recordStart;
+    }
+
+    // Returns the length of the last record read, without its line break
+    public int recordLength() {
+        return recordEnd - recordStart;
+    }
+
+    // Returns the file position of the first byte of the region
+    public long regionStart() {
+        return regionStart;
+    }
+
+    // Returns the number of bytes in the region
+    public int regionSize() {
+        return buffer.capacity();
+    }
+
+    // Copies every byte of the region to the start of the output buffer
+    public void copyRegion(ByteBuffer output) {
+        output.put(0, buffer, 0, buffer.capacity());
+    }
+
+    // Starts reading the region again from its first byte
+    public void rewind() {
+        buffer.position(0);
+    }
+
+    private static boolean isLineSpace(byte b) {
+        return b == '\n' || b == '\r' || b == ' ' || b == '\t';
+    }
+
+    // Returns the number of every byte value, '0' and '.' are empty cells and anything not a symbol of the board is -1
+    static byte[] symbolTable(int boardSize) {
+        byte[] table = new byte[256];
+        Arrays.fill(table, (byte) -1);
+        table['0'] = 0;
+        table['.'] = 0;
+        for (int num = 1; num <= boardSize; num++) {
+            table[SudokuSolver.SYMBOLS.charAt(num - 1)] = (byte) num;
+        }
+        return table;
+    }
+}
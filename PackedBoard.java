@@ -0,0 +1,250 @@
+package TermProject;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+// Board packed into the fewest bits that hold a number, 4 bits on the 9x9 board, so 81 cells fit in 6 longs instead of 10 arrays.
+// Cells are packed in flat index order without crossing a long, so reading one is a shift and a mask. Copies, equality and hashing
+// work on the longs. Mutable like int[][]: don't change a board while it is a key in a map.
+// Binary format: one byte holding the box size, then every cell in flat index order as bitsPerCell bits, highest bit first,
+// with the last byte padded with zero bits. The 9x9 board takes 1 + 41 = 42 bytes
+public final class PackedBoard {
+
+    private final BoardGeometry geometry;
+    private final int bitsPerCell;
+    private final int cellsPerWord;
+    private final long cellMask;
+    private final long[] words;
+
+    // Empty board of boxSize x boxSize boxes
+    public PackedBoard(int boxSize) {
+        this.geometry = BoardGeometry.of(boxSize);
+        this.bitsPerCell = 32 - Integer.numberOfLeadingZeros(geometry.boardSize);
+        this.cellsPerWord = 64 / bitsPerCell;
+        this.cellMask = (1L << bitsPerCell) - 1;
+        this.words = new long[(geometry.cellCount + cellsPerWord - 1) / cellsPerWord];
+    }
+
+    private PackedBoard(PackedBoard other) {
+        this.geometry = other.geometry;
+        this.bitsPerCell = other.bitsPerCell;
+        this.cellsPerWord = other.cellsPerWord;
+        this.cellMask = other.cellMask;
+        this.words = other.words.clone();
+    }
+
+    // Packs an int[][] board, the box size is the square root of its length
+    public static PackedBoard fromBoard(int[][] board) {
+        int boxSize = (int) Math.round(Math.sqrt(board.length));
+        if (boxSize * boxSize != board.length) {
+            throw new IllegalArgumentException(String.format("Sudoku board length must be a square, found %d rows", board.length));
+        }
+        PackedBoard packed = new PackedBoard(boxSize);
+        int boardSize = packed.geometry.boardSize;
+        for (int row = 0; row < boardSize; row++) {
+            if (board[row].length != boardSize) {
+                throw new IllegalArgumentException(String.format("Sudoku board must have %d columns, found %d columns at row [%d]", boardSize, board[row].length, row));
+            }
+            for (int col = 0; col < boardSize; col++) {
+                packed.set(row, col, board[row][col]);
+            }
+        }
+        return packed;
+    }
+
+    // Unpacks into a new int[][] board
+    public int[][] toBoard() {
+        int[][] board = new int[geometry.boardSize][geometry.boardSize];
+        copyTo(board);
+        return board;
+    }
+
+    // Unpacks into an existing int[][] board of the same size
+    public void copyTo(int[][] board) {
+        if (board.length != geometry.boardSize) {
+            throw new IllegalArgumentException(String.format("Sudoku board must have %d rows, found %d rows", geometry.boardSize, board.length));
+        }
+        for (int cell = 0; cell < geometry.cellCount; cell++) {
+            board[geometry.cellRow[cell]][geometry.cellCol[cell]] = getCell(cell);
+        }
+    }
+
+    public int getBoxSize() {
+        return geometry.boxSize;
+    }
+
+    public int getBoardSize() {
+        return geometry.boardSize;
+    }
+
+    // Returns the number at the row and column, 0 when empty
+    public int get(int row, int col) {
+        return getCell(cellIndex(row, col));
+    }
+
+    // Sets the number at the row and column, 0 to empty the cell
+    public void set(int row, int col, int num) {
+        if (num < 0 || num > geometry.boardSize) {
+            throw new IllegalArgumentException(String.format("Invalid number %d at [%d, %d]", num, row, col));
+        }
+        int cell = cellIndex(row, col);
+        int shift = (cell % cellsPerWord) * bitsPerCell;
+        words[cell / cellsPerWord] = (words[cell / cellsPerWord] & ~(cellMask << shift)) | ((long) num << shift);
+    }
+
+    // Returns the number at a flat cell index
+    int getCell(int cell) {
+        return (int) ((words[cell / cellsPerWord] >>> ((cell % cellsPerWord) * bitsPerCell)) & cellMask);
+    }
+
+    private int cellIndex(int row, int col) {
+        if (row < 0 || row >= geometry.boardSize || col < 0 || col >= geometry.boardSize) {
+            throw new IllegalArgumentException(String.format("Cell [%d, %d] is outside the %dx%d board", row, col, geometry.boardSize, geometry.boardSize));
+        }
+        return row * geometry.boardSize + col;
+    }
+
+    // Returns a copy that can be changed independently
+    public PackedBoard copy() {
+        return new PackedBoard(this);
+    }
+
+    // Overwrites this board with another board of the same size
+    public void copyFrom(PackedBoard other) {
+        if (other.geometry != geometry) {
+            throw new IllegalArgumentException(String.format("Cannot copy a %dx%d board into a %dx%d board", other.geometry.boardSize, other.geometry.boardSize, geometry.boardSize, geometry.boardSize));
+        }
+        System.arraycopy(other.words, 0, words, 0, words.length);
+    }
+
+    // Unpacks into a flat board of the same size, see SudokuSolver.toFlatBoard
+    public void copyTo(int[] cells) {
+        if (cells.length != geometry.cellCount) {
+            throw new IllegalArgumentException(String.format("Sudoku board must have %d cells, found %d cells", geometry.cellCount, cells.length));
+        }
+        // A word at a time, a shift per cell instead of getCell's division
+        for (int word = 0, cell = 0; cell < geometry.cellCount; word++) {
+            long bits = words[word];
+            for (int end = Math.min(cell + cellsPerWord, geometry.cellCount); cell < end; cell++, bits >>>= bitsPerCell) {
+                cells[cell] = (int) (bits & cellMask);
+            }
+        }
+    }
+
+    // Overwrites this board with a flat board of the same size
+    public void copyFrom(int[] cells) {
+        if (cells.length != geometry.cellCount) {
+            throw new IllegalArgumentException(String.format("Sudoku board must have %d cells, found %d cells", geometry.cellCount, cells.length));
+        }
+        for (int cell = 0; cell < geometry.cellCount; cell++) {
+            set(geometry.cellRow[cell], geometry.cellCol[cell], cells[cell]);
+        }
+    }
+
+    // Returns the count of bytes the binary format takes for boards of this size
+    public int getEncodedLength() {
+        return 1 + (geometry.cellCount * bitsPerCell + 7) / 8;
+    }
+
+    // Encodes the board in the binary format
+    public byte[] toBytes() {
+        byte[] bytes = new byte[getEncodedLength()];
+        writeTo(ByteBuffer.wrap(bytes));
+        return bytes;
+    }
+
+    // Encodes the board in the binary format at the buffer's position, which ends up after the board
+    public void writeTo(ByteBuffer buffer) {
+        buffer.put((byte) geometry.boxSize);
+        int bits = 0;
+        int bitCount = 0;
+        for (int cell = 0; cell < geometry.cellCount; cell++) {
+            bits = (bits << bitsPerCell) | getCell(cell);
+            bitCount += bitsPerCell;
+            while (bitCount >= 8) {
+                bitCount -= 8;
+                buffer.put((byte) (bits >>> bitCount));
+            }
+            bits &= (1 << bitCount) - 1;
+        }
+        if (bitCount > 0) {
+            buffer.put((byte) (bits << (8 - bitCount))); // Padded with zero bits
+        }
+    }
+
+    // Decodes a board from the start of the bytes, which may be longer than the board
+    public static PackedBoard fromBytes(byte[] bytes) {
+        if (bytes.length == 0) {
+            throw new IllegalArgumentException("Packed board is empty");
+        }
+        return readFrom(ByteBuffer.wrap(bytes));
+    }
+
+    // Decodes a board at the buffer's position and moves the position past it
+    public static PackedBoard readFrom(ByteBuffer buffer) {
+        PackedBoard packed = new PackedBoard(buffer.get());
+        if (buffer.remaining() < packed.getEncodedLength() - 1) {
+            throw new IllegalArgumentException(String.format("Packed %dx%d board needs %d bytes, found %d bytes", packed.geometry.boardSize, packed.geometry.boardSize, packed.getEncodedLength(), buffer.remaining() + 1));
+        }
+        int bits = 0;
+        int bitCount = 0;
+        for (int cell = 0; cell < packed.geometry.cellCount; cell++) {
+            while (bitCount < packed.bitsPerCell) {
+                bits = (bits << 8) | (buffer.get() & 0xFF);
+                bitCount += 8;
+            }
+            bitCount -= packed.bitsPerCell;
+            packed.set(packed.geometry.cellRow[cell], packed.geometry.cellCol[cell], (bits >>> bitCount) & (int) packed.cellMask);
+            bits &= (1 << bitCount) - 1;
+        }
+        return packed;
+    }
+
+    // Writes the board in the binary format
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(toBytes());
+    }
+
+    // Reads one board in the binary format, throws EOFException when the stream ends before the board does
+    public static PackedBoard readFrom(InputStream in) throws IOException {
+        int boxSize = in.read();
+        if (boxSize < 0) {
+            throw new EOFException("Stream ended before a packed board");
+        }
+        byte[] bytes = new byte[new PackedBoard(boxSize).getEncodedLength()];
+        bytes[0] = (byte) boxSize;
+        for (int read = 1; read < bytes.length; ) {
+            int count = in.read(bytes, read, bytes.length - read);
+            if (count < 0) {
+                throw new EOFException(String.format("Stream ended %d bytes into a %d byte packed board", read, bytes.length));
+            }
+            read += count;
+        }
+        return fromBytes(bytes);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof PackedBoard && ((PackedBoard) other).geometry == geometry && Arrays.equals(((PackedBoard) other).words, words);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * geometry.boxSize + Arrays.hashCode(words);
+    }
+
+    // Returns the cells as one symbol each, like SudokuSolver.toSymbolString
+    @Override
+    public String toString() {
+        StringBuilder symbols = new StringBuilder(geometry.cellCount);
+        for (int cell = 0; cell < geometry.cellCount; cell++) {
+            int num = getCell(cell);
+            symbols.append(num != 0 ? SudokuSolver.SYMBOLS.charAt(num - 1) : geometry.boardSize <= 9 ? '0' : '.');
+        }
+        return symbols.toString();
+    }
+}
@@ -0,0 +1,116 @@
+package TermProject;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+
+// Counts the solutions of a puzzle on every core of a ForkJoinPool, for exact counts of sparse boards that run into the millions.
+// The top levels of the search tree are split into one task per possible answer of the most constrained cell, and idle workers
+// steal them. Below the split depth each task counts its subtree with the normal search and adds to one shared LongAdder.
+public class ParallelSolutionCounter {
+
+    public static final int DEFAULT_SPLIT_DEPTH = 6; // Enough tasks to keep 32 cores busy, few enough that splitting stays cheap
+
+    private final ForkJoinPool pool;
+    private final int splitDepth;
+    private final SudokuSolver solver; // Every task borrows its own search context from the solver's pool
+
+    // Counter using the common pool and the default split depth
+    public ParallelSolutionCounter(int boxSize, SudokuSolver.Engine engine) {
+        this(boxSize, engine, ForkJoinPool.commonPool(), DEFAULT_SPLIT_DEPTH);
+    }
+
+    public ParallelSolutionCounter(int boxSize, SudokuSolver.Engine engine, ForkJoinPool pool, int splitDepth) {
+        if (engine == null || pool == null) {
+            throw new IllegalArgumentException("Engine and pool must not be null");
+        }
+        if (splitDepth < 0) {
+            throw new IllegalArgumentException(String.format("Split depth must not be negative, found %d", splitDepth));
+        }
+        this.solver = new SudokuSolver(boxSize);
+        this.solver.setEngine(engine);
+        this.pool = pool;
+        this.splitDepth = splitDepth;
+    }
+
+    // Returns the count of solutions for the puzzle up to limit, or every solution with SudokuSolver.UNLIMITED. The puzzle is left unchanged
+    public long countSolutions(int[][] board, long limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException(String.format("Count limit must be at least 1, found %d", limit));
+        }
+        int[][] startBoard = copyBoard(board);
+        SolverContext context = solver.acquireContext();
+        try {
+            context.checkIfValidStartBoard(startBoard); // Checks the board on the calling thread, so a bad board throws here
+        } finally {
+            solver.releaseContext(context);
+        }
+        LongAdder solutionCount = new LongAdder();
+        pool.invoke(new CountTask(startBoard, 0, limit, solutionCount));
+        return Math.min(solutionCount.sum(), limit);
+    }
+
+    // Counts the solutions of one subtree, either by splitting it further or by searching it on this thread
+    private class CountTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int[][] board; // Owned by this task, the split fills in its singles
+        private final int depth;
+        private final long limit;
+        private final LongAdder solutionCount;
+
+        CountTask(int[][] board, int depth, long limit, LongAdder solutionCount) {
+            this.board = board;
+            this.depth = depth;
+            this.limit = limit;
+            this.solutionCount = solutionCount;
+        }
+
+        @Override
+        protected void compute() {
+            // Other tasks may already have found enough solutions
+            long remaining = limit - solutionCount.sum();
+            if (remaining <= 0) {
+                return;
+            }
+            if (depth >= splitDepth) {
+                solutionCount.add(solver.countSolutions(board, remaining));
+                return;
+            }
+
+            // The context goes back to the pool before any subtask runs, a join may run other tasks on this thread
+            List<CountTask> subtasks = new ArrayList<>();
+            SolverContext context = solver.acquireContext();
+            try {
+                int cell = context.prepareBranch(board);
+                if (cell == -1) {
+                    solutionCount.increment();
+                    return;
+                }
+                if (cell == -2) {
+                    return;
+                }
+                int row = cell / board.length;
+                int col = cell % board.length;
+                for (long candidates = context.branchCandidates(cell); candidates != 0; candidates &= candidates - 1) {
+                    int[][] branch = copyBoard(board);
+                    branch[row][col] = Long.numberOfTrailingZeros(candidates);
+                    subtasks.add(new CountTask(branch, depth + 1, limit, solutionCount));
+                }
+            } finally {
+                solver.releaseContext(context);
+            }
+            invokeAll(subtasks);
+        }
+    }
+
+    private static int[][] copyBoard(int[][] board) {
+        int[][] copy = new int[board.length][];
+        for (int row = 0; row < board.length; row++) {
+            copy[row] = board[row].clone();
+        }
+        return copy;
+    }
+}
@@ -0,0 +1,145 @@
+package TermProject;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Solves one hard puzzle on several threads. The top levels of the search tree are split into branch boards,
+// one per possible answer of the most constrained cell, and the workers take branches from a shared queue.
+// The first worker to solve its branch publishes the solution and sets a shared flag that stops the others mid search.
+// The worker threads are kept between solves, so close the solver when done with it.
+public class ParallelSolver implements AutoCloseable {
+
+    private static final int BRANCHES_PER_THREAD = 8; // More branches than threads, so a worker that finishes early takes another
+
+    private final SudokuSolver.Engine engine;
+    private final int threads;
+    private final ExecutorService executor;
+    private final SudokuSolver solver; // Every worker borrows its own search context from the solver's pool
+
+    public ParallelSolver(int boxSize, SudokuSolver.Engine engine, int threads) {
+        if (engine == null) {
+            throw new IllegalArgumentException("Engine must not be null");
+        }
+        if (threads < 1) {
+            throw new IllegalArgumentException(String.format("Number of threads must be at least 1, found %d", threads));
+        }
+        this.solver = new SudokuSolver(boxSize);
+        this.engine = engine;
+        this.threads = threads;
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "sudoku-solver");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Solves the puzzle in place and returns true if the board now holds a valid solution, the board is left unchanged otherwise
+    public boolean solveInPlace(int[][] board) {
+        // Split on the calling thread until there are enough branches, a bad board throws here
+        Queue<int[][]> branches = new ArrayDeque<>();
+        branches.add(copyBoard(board));
+        int[][] solution = null;
+        SolverContext splitter = solver.acquireContext();
+        try {
+            while (!branches.isEmpty() && branches.size() < threads * BRANCHES_PER_THREAD) {
+                int[][] branch = branches.poll();
+                int cell = splitter.prepareBranch(branch);
+                if (cell == -1) {
+                    solution = branch; // Singles alone solved it
+                    break;
+                }
+                if (cell == -2) {
+                    continue;
+                }
+                int row = cell / branch.length;
+                int col = cell % branch.length;
+                for (long candidates = splitter.branchCandidates(cell); candidates != 0; candidates &= candidates - 1) {
+                    int[][] child = copyBoard(branch);
+                    child[row][col] = Long.numberOfTrailingZeros(candidates);
+                    branches.add(child);
+                }
+            }
+        } finally {
+            solver.releaseContext(splitter);
+        }
+        if (solution == null && !branches.isEmpty()) {
+            solution = searchBranches(branches);
+        }
+
+        if (solution == null) {
+            return false;
+        }
+        for (int row = 0; row < board.length; row++) {
+            System.arraycopy(solution[row], 0, board[row], 0, board[row].length);
+        }
+        return true;
+    }
+
+    // Searches the branches on the worker threads and returns the first solution found, or null when no branch has one
+    private int[][] searchBranches(Queue<int[][]> branches) {
+        Queue<int[][]> queue = new ConcurrentLinkedQueue<>(branches);
+        AtomicBoolean cancelled = new AtomicBoolean();
+        AtomicReference<int[][]> winner = new AtomicReference<>();
+        List<Future<?>> workers = new ArrayList<>();
+        for (int i = 0; i < Math.min(threads, queue.size()); i++) {
+            workers.add(executor.submit(() -> {
+                SolverContext context = solver.acquireContext();
+                context.setCancelFlag(cancelled);
+                try {
+                    int[][] branch;
+                    while (!cancelled.get() && (branch = queue.poll()) != null) {
+                        if (context.solveInPlace(branch, engine) && winner.compareAndSet(null, branch)) {
+                            cancelled.set(true);
+                        }
+                    }
+                } finally {
+                    solver.releaseContext(context); // Also clears the cancel flag
+                }
+            }));
+        }
+
+        // Wait for every worker, so none is still searching when the next puzzle comes in
+        boolean interrupted = false;
+        for (Future<?> worker : workers) {
+            while (true) {
+                try {
+                    worker.get();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                    cancelled.set(true);
+                } catch (ExecutionException e) {
+                    cancelled.set(true);
+                    throw new IllegalStateException("Worker failed while solving", e.getCause());
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        return winner.get();
+    }
+
+    // Stops the worker threads
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private static int[][] copyBoard(int[][] board) {
+        int[][] copy = new int[board.length][];
+        for (int row = 0; row < board.length; row++) {
+            copy[row] = board[row].clone();
+        }
+        return copy;
+    }
+}
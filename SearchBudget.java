@@ -0,0 +1,51 @@
+package TermProject;
+
+// Node and time budget of one search, checked by both engines before every guess.
+// Reading the clock costs more than a guess, so the deadline is only checked every CLOCK_CHECK_INTERVAL guesses.
+// Between checks the engines only compare their node count with nextCheck, so a search without a budget pays one compare per guess
+final class SearchBudget {
+
+    private static final long CLOCK_CHECK_INTERVAL = 64;
+
+    private long nodeLimit = Long.MAX_VALUE; // Most guesses the search may place
+    private boolean hasDeadline;
+    private long deadline; // System.nanoTime value the search must stop by
+    private boolean exceeded;
+    long nextCheck = Long.MAX_VALUE; // Node count at which exhausted is called next
+
+    // Sets the budget for the searches of one call, the deadline is timeoutNanos after startNanos
+    void set(SolveOptions options, long startNanos) {
+        nodeLimit = options.getMaxNodes();
+        hasDeadline = options.hasTimeout();
+        deadline = startNanos + options.getTimeoutNanos();
+    }
+
+    // Removes the budget, so searches run until they finish
+    void clear() {
+        nodeLimit = Long.MAX_VALUE;
+        hasDeadline = false;
+        exceeded = false;
+        nextCheck = Long.MAX_VALUE;
+    }
+
+    // Called when a search starts with its node count at 0
+    void start() {
+        exceeded = false;
+        nextCheck = hasDeadline ? 0 : nodeLimit;
+    }
+
+    // Returns true when the search must stop before placing another guess, otherwise moves nextCheck on
+    boolean exhausted(long nodeCount) {
+        if (nodeCount >= nodeLimit || (hasDeadline && System.nanoTime() - deadline >= 0)) {
+            exceeded = true;
+            return true;
+        }
+        nextCheck = hasDeadline ? Math.min(nodeLimit, nodeCount + CLOCK_CHECK_INTERVAL) : nodeLimit;
+        return false;
+    }
+
+    // Returns true when the last search stopped because the budget ran out
+    boolean isExceeded() {
+        return exceeded;
+    }
+}
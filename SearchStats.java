@@ -0,0 +1,109 @@
+package TermProject;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// Counters for one search, or the totals of every search since the global totals were last reset.
+// Every search counts into plain fields of its context, which costs a few increments per guess, and only copies them here when asked.
+// The global totals are off by default, turn them on with setGlobalEnabled or by running with -Dsudoku.stats=true
+public final class SearchStats {
+
+    private static volatile boolean globalEnabled = Boolean.getBoolean("sudoku.stats");
+    private static final LongAdder GLOBAL_SEARCHES = new LongAdder();
+    private static final LongAdder GLOBAL_NODES = new LongAdder();
+    private static final LongAdder GLOBAL_BACKTRACKS = new LongAdder();
+    private static final LongAdder GLOBAL_PROBES = new LongAdder();
+    private static final LongAdder GLOBAL_PROPAGATIONS = new LongAdder();
+    private static final LongAccumulator GLOBAL_MAX_DEPTH = new LongAccumulator(Math::max, 0);
+    private static final LongAdder GLOBAL_NANOS = new LongAdder();
+
+    private final long searches; // Searches counted, 1 for the stats of one search
+    private final long nodes; // Guesses placed, or candidates selected by the dancing links engine
+    private final long backtracks; // Guesses taken back to try the next answer
+    private final long probes; // findAnswer calls, or column choices by the dancing links engine
+    private final long propagations; // Answers filled in because they were forced, always 0 for the dancing links engine
+    private final int maxDepth; // Most guesses on the search path at once
+    private final long nanos; // Wall time spent searching
+
+    SearchStats(long searches, long nodes, long backtracks, long probes, long propagations, int maxDepth, long nanos) {
+        this.searches = searches;
+        this.nodes = nodes;
+        this.backtracks = backtracks;
+        this.probes = probes;
+        this.propagations = propagations;
+        this.maxDepth = maxDepth;
+        this.nanos = nanos;
+    }
+
+    public long getSearches() {
+        return searches;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    public long getBacktracks() {
+        return backtracks;
+    }
+
+    public long getProbes() {
+        return probes;
+    }
+
+    public long getPropagations() {
+        return propagations;
+    }
+
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    public long getNanos() {
+        return nanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("searches=%d nodes=%d backtracks=%d probes=%d propagations=%d maxDepth=%d time=%.3fms",
+                searches, nodes, backtracks, probes, propagations, maxDepth, nanos / 1e6);
+    }
+
+    // Returns true when every search adds its counters to the global totals
+    public static boolean isGlobalEnabled() {
+        return globalEnabled;
+    }
+
+    // Turns adding every search to the global totals on or off, the totals collected so far are kept
+    public static void setGlobalEnabled(boolean enabled) {
+        globalEnabled = enabled;
+    }
+
+    // Returns the global totals, searches still running on other threads may be partly counted
+    public static SearchStats global() {
+        return new SearchStats(GLOBAL_SEARCHES.sum(), GLOBAL_NODES.sum(), GLOBAL_BACKTRACKS.sum(), GLOBAL_PROBES.sum(),
+                GLOBAL_PROPAGATIONS.sum(), (int) GLOBAL_MAX_DEPTH.get(), GLOBAL_NANOS.sum());
+    }
+
+    // Sets the global totals back to 0
+    public static void resetGlobal() {
+        GLOBAL_SEARCHES.reset();
+        GLOBAL_NODES.reset();
+        GLOBAL_BACKTRACKS.reset();
+        GLOBAL_PROBES.reset();
+        GLOBAL_PROPAGATIONS.reset();
+        GLOBAL_MAX_DEPTH.reset();
+        GLOBAL_NANOS.reset();
+    }
+
+    // Adds one finished search to the global totals, called by a context only while they are enabled
+    static void recordGlobal(long nodes, long backtracks, long probes, long propagations, int maxDepth, long nanos) {
+        GLOBAL_SEARCHES.increment();
+        GLOBAL_NODES.add(nodes);
+        GLOBAL_BACKTRACKS.add(backtracks);
+        GLOBAL_PROBES.add(probes);
+        GLOBAL_PROPAGATIONS.add(propagations);
+        GLOBAL_MAX_DEPTH.accumulate(maxDepth);
+        GLOBAL_NANOS.add(nanos);
+    }
+}
@@ -0,0 +1,65 @@
+package TermProject;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Solutions of recently solved puzzles, keyed on the puzzle's representative under the sudoku symmetries (see BoardCanonicalizer),
+// so a relabeled, rotated or reordered copy of a solved puzzle is answered without a search.
+// Holds at most capacity solutions and drops the least recently used one first. Every method locks, so one cache can be shared by every thread
+public final class SolutionCache {
+
+    private final int capacity;
+    private final LinkedHashMap<String, byte[]> solutions; // Representative puzzle to its solution in the representative's orientation and labels
+    private long hits;
+    private long misses;
+
+    public SolutionCache(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException(String.format("Cache capacity must be at least 1, found %d", capacity));
+        }
+        this.capacity = capacity;
+        this.solutions = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, byte[]> eldest) {
+                return size() > SolutionCache.this.capacity;
+            }
+        };
+    }
+
+    // Returns the cached solution for the representative puzzle, or null
+    synchronized byte[] get(String key) {
+        byte[] solution = solutions.get(key);
+        if (solution == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return solution;
+    }
+
+    synchronized void put(String key, byte[] solution) {
+        solutions.put(key, solution);
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public synchronized int size() {
+        return solutions.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized void clear() {
+        solutions.clear();
+        hits = 0;
+        misses = 0;
+    }
+}
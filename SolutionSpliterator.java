@@ -0,0 +1,109 @@
+package TermProject;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+// Solutions of a puzzle one at a time, found by a backtracking search that pauses after each solution, so a stream only searches
+// as far as it is consumed. The spliterator holds subtrees of the search as boards still to search. Splitting one that has a
+// single board left branches it on its most constrained cell, one board per possible answer, and hands off the first half.
+// Each spliterator searches with its own context, outside the solver's pool, because a stream may be left unfinished.
+// Subtrees are flat boards, a solution is copied into a new int[][] only when it is handed to the stream
+final class SolutionSpliterator implements Spliterator<int[][]> {
+
+    private final BoardGeometry geometry;
+    private final Deque<int[]> pending; // Subtrees not started yet, in search order
+    private int[] active; // Board being searched, null between subtrees
+    private SolverContext context; // Built the first time this spliterator searches or branches
+
+    // Spliterator over the solutions of a board that passed the start board check, the board becomes owned by the spliterator
+    SolutionSpliterator(BoardGeometry geometry, int[] board) {
+        this(geometry, new ArrayDeque<>());
+        pending.add(board);
+    }
+
+    private SolutionSpliterator(BoardGeometry geometry, Deque<int[]> pending) {
+        this.geometry = geometry;
+        this.pending = pending;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super int[][]> action) {
+        while (true) {
+            if (active == null) {
+                active = pending.pollFirst();
+                if (active == null) {
+                    context = null; // Done, let the search state go
+                    return false;
+                }
+                context().checkIfValidStartBoard(active); // Loads the masks for the search
+                context.startSearch(active);
+            }
+            if (context.nextSolution(active)) {
+                int[][] solution = new int[geometry.boardSize][geometry.boardSize];
+                for (int row = 0; row < geometry.boardSize; row++) {
+                    System.arraycopy(active, row * geometry.boardSize, solution[row], 0, geometry.boardSize);
+                }
+                action.accept(solution);
+                return true;
+            }
+            active = null;
+        }
+    }
+
+    @Override
+    public Spliterator<int[][]> trySplit() {
+        if (active != null) {
+            return null; // The search in progress holds the context, only subtrees not started yet can be handed off
+        }
+        if (pending.size() == 1) {
+            // Branch the last subtree on its most constrained cell
+            int[] board = pending.pollFirst();
+            int cell = context().prepareBranch(board);
+            if (cell == -1) {
+                pending.add(board); // Singles alone solved it, one solution left
+                return null;
+            }
+            if (cell == -2) {
+                return null; // No solution, nothing left to split
+            }
+            for (long candidates = context.branchCandidates(cell); candidates != 0; candidates &= candidates - 1) {
+                int[] branch = board.clone();
+                branch[cell] = Long.numberOfTrailingZeros(candidates);
+                pending.add(branch);
+            }
+        }
+        return splitPending();
+    }
+
+    // Hands off the first half of the subtrees
+    private Spliterator<int[][]> splitPending() {
+        if (pending.size() < 2) {
+            return null;
+        }
+        Deque<int[]> prefix = new ArrayDeque<>();
+        for (int i = pending.size() / 2; i > 0; i--) {
+            prefix.add(pending.pollFirst());
+        }
+        return new SolutionSpliterator(geometry, prefix);
+    }
+
+    private SolverContext context() {
+        if (context == null) {
+            context = new SolverContext(geometry);
+        }
+        return context;
+    }
+
+    @Override
+    public long estimateSize() {
+        return Long.MAX_VALUE; // Unknown until searched
+    }
+
+    @Override
+    public int characteristics() {
+        // Not ORDERED: a branched subtree may pick its cells in another order than the search it came from would
+        return DISTINCT | NONNULL | IMMUTABLE;
+    }
+}
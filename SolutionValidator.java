@@ -0,0 +1,226 @@
+package TermProject;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+// Checks complete solutions in one pass over the cells: every number is ORed into the mask of its row, column and box, and a
+// solution is valid exactly when all 3 * boardSize masks end up as bits 1 to boardSize. A unit of boardSize cells can only
+// cover every number when no number repeats, so no duplicate check is needed. Empty cells and numbers out of range set bit 0,
+// which no full mask has. The result is the first unit that isn't full, rows first, then columns, then boxes, or VALID.
+// The masks are allocated once per validator, so checking allocates nothing. A validator is not thread safe, give each thread its own
+public final class SolutionValidator {
+
+    public static final int VALID = -1; // Result of a valid solution, anything else is the index of the first unit that isn't full
+
+    private final BoardGeometry geometry;
+    private final int boardSize;
+    private final int cellCount;
+    private final long fullMask;
+    private final int[] cellCol;
+    private final int[] cellBox;
+    private final int bitsPerCell; // Bits of a cell in the packed board binary format, see PackedBoard
+    private final long[] columnMasks;
+    private final long[] boxMasks;
+    private final int[] cells; // A packed board unpacked, to check with firstInvalidUnit(int[])
+
+    public SolutionValidator(int boxSize) {
+        this.geometry = BoardGeometry.of(boxSize);
+        this.boardSize = geometry.boardSize;
+        this.cellCount = geometry.cellCount;
+        this.fullMask = geometry.fullMask;
+        this.cellCol = geometry.cellCol;
+        this.cellBox = geometry.cellBox;
+        this.bitsPerCell = 32 - Integer.numberOfLeadingZeros(boardSize);
+        this.columnMasks = new long[boardSize];
+        this.boxMasks = new long[boardSize];
+        this.cells = new int[cellCount];
+    }
+
+    // Returns VALID when the flat board is a complete valid solution, otherwise the first unit that isn't
+    public int firstInvalidUnit(int[] board) {
+        if (board.length != cellCount) {
+            throw new IllegalArgumentException(String.format("Sudoku board must have %d cells, found %d cells", cellCount, board.length));
+        }
+        Arrays.fill(columnMasks, 0);
+        Arrays.fill(boxMasks, 0);
+        int firstInvalidRow = VALID;
+        for (int row = 0, cell = 0; row < boardSize; row++) {
+            long rowMask = 0;
+            for (int end = cell + boardSize; cell < end; cell++) {
+                long bit = bit(board[cell]);
+                rowMask |= bit;
+                columnMasks[cellCol[cell]] |= bit;
+                boxMasks[cellBox[cell]] |= bit;
+            }
+            if (rowMask != fullMask && firstInvalidRow == VALID) {
+                firstInvalidRow = row;
+            }
+        }
+        return firstInvalidRow != VALID ? firstInvalidRow : firstInvalidColumnOrBox();
+    }
+
+    // Returns VALID when the board is a complete valid solution, otherwise the first unit that isn't
+    public int firstInvalidUnit(int[][] board) {
+        if (board.length != boardSize) {
+            throw new IllegalArgumentException(String.format("Sudoku board must have %d rows, found %d rows", boardSize, board.length));
+        }
+        Arrays.fill(columnMasks, 0);
+        Arrays.fill(boxMasks, 0);
+        int firstInvalidRow = VALID;
+        for (int row = 0; row < boardSize; row++) {
+            int[] boardRow = board[row];
+            if (boardRow.length != boardSize) {
+                throw new IllegalArgumentException(String.format("Sudoku board must have %d columns, found %d columns at row [%d]", boardSize, boardRow.length, row));
+            }
+            long rowMask = 0;
+            int cell = row * boardSize;
+            for (int col = 0; col < boardSize; col++, cell++) {
+                long bit = bit(boardRow[col]);
+                rowMask |= bit;
+                columnMasks[col] |= bit;
+                boxMasks[cellBox[cell]] |= bit;
+            }
+            if (rowMask != fullMask && firstInvalidRow == VALID) {
+                firstInvalidRow = row;
+            }
+        }
+        return firstInvalidRow != VALID ? firstInvalidRow : firstInvalidColumnOrBox();
+    }
+
+    // Checks count boards in the packed board binary format read from the buffer's position, which ends up after the last board.
+    // Writes each board's result into results when it isn't null, and returns the count of valid boards
+    public int validateAll(ByteBuffer buffer, int count, int[] results) {
+        if (results != null && results.length < count) {
+            throw new IllegalArgumentException(String.format("Results must hold %d boards, found room for %d", count, results.length));
+        }
+        int valid = 0;
+        for (int i = 0; i < count; i++) {
+            int result = validatePacked(buffer);
+            if (result == VALID) {
+                valid++;
+            }
+            if (results != null) {
+                results[i] = result;
+            }
+        }
+        return valid;
+    }
+
+    // Checks every packed board, writes each board's result into results when it isn't null, and returns the count of valid boards
+    public int validateAll(PackedBoard[] boards, int[] results) {
+        if (results != null && results.length < boards.length) {
+            throw new IllegalArgumentException(String.format("Results must hold %d boards, found room for %d", boards.length, results.length));
+        }
+        int valid = 0;
+        for (int i = 0; i < boards.length; i++) {
+            PackedBoard board = boards[i];
+            if (board.getBoxSize() != geometry.boxSize) {
+                throw new IllegalArgumentException(String.format("Cannot check a %dx%d board with a %dx%d validator", board.getBoardSize(), board.getBoardSize(), boardSize, boardSize));
+            }
+            board.copyTo(cells);
+            int result = firstInvalidUnit(cells);
+            if (result == VALID) {
+                valid++;
+            }
+            if (results != null) {
+                results[i] = result;
+            }
+        }
+        return valid;
+    }
+
+    // Checks one board in the packed board binary format at the buffer's position and moves the position past it
+    private int validatePacked(ByteBuffer buffer) {
+        int boxSize = buffer.get();
+        if (boxSize != geometry.boxSize) {
+            throw new IllegalArgumentException(String.format("Cannot check a packed board of box size %d with a %dx%d validator", boxSize, boardSize, boardSize));
+        }
+        Arrays.fill(columnMasks, 0);
+        Arrays.fill(boxMasks, 0);
+        int firstInvalidRow = VALID;
+        long rowMask = 0;
+        if (bitsPerCell == 4) {
+            // Two cells a byte, high nibble first, the last byte of an odd cell count holds one
+            for (int cell = 0; cell < cellCount; cell += 2) {
+                int pair = buffer.get();
+                rowMask = addCell(cell, (pair >>> 4) & 0xF, rowMask);
+                if (rowMask == -1) {
+                    firstInvalidRow = firstInvalidRow == VALID ? cell / boardSize : firstInvalidRow;
+                    rowMask = 0;
+                }
+                if (cell + 1 < cellCount) {
+                    rowMask = addCell(cell + 1, pair & 0xF, rowMask);
+                    if (rowMask == -1) {
+                        firstInvalidRow = firstInvalidRow == VALID ? (cell + 1) / boardSize : firstInvalidRow;
+                        rowMask = 0;
+                    }
+                }
+            }
+        } else {
+            // Cells run across bytes, highest bit first
+            int bits = 0;
+            int bitCount = 0;
+            for (int cell = 0; cell < cellCount; cell++) {
+                while (bitCount < bitsPerCell) {
+                    bits = (bits << 8) | (buffer.get() & 0xFF);
+                    bitCount += 8;
+                }
+                bitCount -= bitsPerCell;
+                rowMask = addCell(cell, (bits >>> bitCount) & ((1 << bitsPerCell) - 1), rowMask);
+                bits &= (1 << bitCount) - 1;
+                if (rowMask == -1) {
+                    firstInvalidRow = firstInvalidRow == VALID ? cell / boardSize : firstInvalidRow;
+                    rowMask = 0;
+                }
+            }
+        }
+        return firstInvalidRow != VALID ? firstInvalidRow : firstInvalidColumnOrBox();
+    }
+
+    // ORs the number into the masks of the cell and returns the row mask so far. At the end of a row, returns 0 to start the next
+    // row when the row was full, or -1 when it wasn't
+    private long addCell(int cell, int num, long rowMask) {
+        long bit = bit(num);
+        columnMasks[cellCol[cell]] |= bit;
+        boxMasks[cellBox[cell]] |= bit;
+        rowMask |= bit;
+        if (cellCol[cell] != boardSize - 1) {
+            return rowMask;
+        }
+        return rowMask == fullMask ? 0 : -1;
+    }
+
+    // Returns the first column or box whose mask isn't full, unit indices follow the rows, or VALID
+    private int firstInvalidColumnOrBox() {
+        for (int col = 0; col < boardSize; col++) {
+            if (columnMasks[col] != fullMask) {
+                return boardSize + col;
+            }
+        }
+        for (int box = 0; box < boardSize; box++) {
+            if (boxMasks[box] != fullMask) {
+                return 2 * boardSize + box;
+            }
+        }
+        return VALID;
+    }
+
+    // Returns the mask bit of a number, bit 0 for an empty cell or a number out of range
+    private long bit(int num) {
+        return num > 0 && num <= boardSize ? 1L << num : 1L;
+    }
+
+    // Describes a result for diagnostics, e.g. "valid", "row 3" or "box 9", counting from 1 like the board is read
+    public String describe(int result) {
+        if (result == VALID) {
+            return "valid";
+        }
+        if (result < boardSize) {
+            return String.format("row %d", result + 1);
+        }
+        if (result < 2 * boardSize) {
+            return String.format("column %d", result - boardSize + 1);
+        }
+        return String.format("box %d", result - 2 * boardSize + 1);
+    }
+}
@@ -0,0 +1,62 @@
+package TermProject;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Limits for one solve or count: a wall clock timeout, a most guesses budget and a cancel token another thread can set.
+// A search that runs out of either budget stops with SolveResult.Status.BUDGET_EXCEEDED, and one whose token is set stops
+// with CANCELLED. Options are immutable, so one instance can be shared by every request of a solve pool
+public final class SolveOptions {
+
+    public static final SolveOptions NONE = new SolveOptions(0, Long.MAX_VALUE, null); // No limits
+
+    private final long timeoutNanos; // 0 for no timeout
+    private final long maxNodes; // Long.MAX_VALUE for no node budget
+    private final AtomicBoolean cancelToken; // Null for no token
+
+    private SolveOptions(long timeoutNanos, long maxNodes, AtomicBoolean cancelToken) {
+        this.timeoutNanos = timeoutNanos;
+        this.maxNodes = maxNodes;
+        this.cancelToken = cancelToken;
+    }
+
+    // Returns options that stop the search once timeout has passed since the call started, checked every few guesses
+    public SolveOptions withTimeout(Duration timeout) {
+        if (timeout == null || timeout.isNegative() || timeout.isZero()) {
+            throw new IllegalArgumentException(String.format("Timeout must be positive, found %s", timeout));
+        }
+        return new SolveOptions(timeout.toNanos(), maxNodes, cancelToken);
+    }
+
+    // Returns options that stop the search before it places more than maxNodes guesses
+    public SolveOptions withMaxNodes(long maxNodes) {
+        if (maxNodes < 0) {
+            throw new IllegalArgumentException(String.format("Node budget must not be negative, found %d", maxNodes));
+        }
+        return new SolveOptions(timeoutNanos, maxNodes, cancelToken);
+    }
+
+    // Returns options that stop the search on its next step once the token is set
+    public SolveOptions withCancelToken(AtomicBoolean cancelToken) {
+        if (cancelToken == null) {
+            throw new IllegalArgumentException("Cancel token must not be null");
+        }
+        return new SolveOptions(timeoutNanos, maxNodes, cancelToken);
+    }
+
+    public boolean hasTimeout() {
+        return timeoutNanos > 0;
+    }
+
+    public long getTimeoutNanos() {
+        return timeoutNanos;
+    }
+
+    public long getMaxNodes() {
+        return maxNodes;
+    }
+
+    public AtomicBoolean getCancelToken() {
+        return cancelToken;
+    }
+}
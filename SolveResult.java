@@ -0,0 +1,51 @@
+package TermProject;
+
+// Outcome of one solve or count, with the counters of the search that produced it
+public final class SolveResult {
+
+    // How the search ended
+    public enum Status {
+        SOLVED, // The board holds a valid solution
+        NO_SOLUTION, // The search finished without a solution, the board is left as the search left it
+        COUNTED, // A count finished, either at its limit or after every solution
+        BUDGET_EXCEEDED, // The timeout or node budget ran out first, a solve leaves the board as it was given
+        CANCELLED // The cancel token was set first, a solve leaves the board as it was given
+    }
+
+    private final Status status;
+    private final long solutionCount; // Solutions found, up to the limit of the search. Only a lower bound when the search was stopped
+    private final SearchStats stats;
+
+    SolveResult(Status status, long solutionCount, SearchStats stats) {
+        this.status = status;
+        this.solutionCount = solutionCount;
+        this.stats = stats;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    // Returns true when the board holds a valid solution afterwards, always false for a count
+    public boolean isSolved() {
+        return status == Status.SOLVED;
+    }
+
+    // Returns true when the search ran to the end, rather than being stopped by a budget or the cancel token
+    public boolean isComplete() {
+        return status != Status.BUDGET_EXCEEDED && status != Status.CANCELLED;
+    }
+
+    public long getSolutionCount() {
+        return solutionCount;
+    }
+
+    public SearchStats getStats() {
+        return stats;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("status=%s solutions=%d %s", status, solutionCount, stats);
+    }
+}
@@ -0,0 +1,509 @@
+package TermProject;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import stdlib.StdOut;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Embeddable HTTP service for solving, counting, checking and generating puzzles, on the JDK's built in HTTP server.
+// A request body is either one symbol per cell (81 characters for 9x9, '0' or '.' for empty cells) or a JSON object like
+// {"puzzle": "53..7....", "limit": 2, "timeoutMillis": 500}, where the puzzle can also be an array of numbers or of rows.
+// Every answer is a JSON object:
+//   POST /solve         {"status":"SOLVED","solution":"534678912...","nodes":12,"micros":85}
+//   POST /count         {"status":"COUNTED","solutions":1,"complete":true,"nodes":40,"micros":210}, up to limit solutions, 2 by default
+//   POST /validate      {"valid":false,"unit":"row 3"}, for a complete solution
+//   GET or POST /generate  {"puzzle":"...","clues":24}, the same puzzle every time for ?seed=N
+// A bad board or body gets 400 with {"error":"..."}. Each request runs on its own virtual thread when the JVM has them,
+// otherwise on a cached pool of daemon threads. At most maxInFlight requests are worked on at once, and the rest get 503 with
+// Retry-After straight away instead of waiting, so a burst can't queue up solves that finish after their clients gave up.
+// Searches stop at the request's timeout, at most MAX_TIMEOUT, so one hard puzzle can't hold a slot forever.
+// Usage: SolveService [--port N] [--box-size N] [--max-in-flight N], serves until the process is stopped
+public class SolveService implements AutoCloseable {
+
+    private static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(5);
+    private static final Duration MAX_TIMEOUT = Duration.ofSeconds(60);
+    private static final long DEFAULT_COUNT_LIMIT = 2; // Enough to tell a unique puzzle from one with several solutions
+    private static final int MAX_BODY_BYTES = 1 << 16;
+
+    static {
+        // The JDK server writes an answer's headers and body separately, and with Nagle's algorithm on the body waits for the
+        // client's delayed ACK, about 40 ms a request on Linux. The server reads this once, when the first one in the JVM is created
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    // One endpoint, returns the JSON answer for a request or throws IllegalArgumentException for a bad one
+    private interface Endpoint {
+        String respond(String body, String query);
+    }
+
+    private final SudokuSolver solver; // Thread safe, every request borrows a search context from its pool
+    private final int boxSize;
+    private final int cellCount;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    final Semaphore admission; // One permit per request being worked on, package private so tests can fill it
+    private final LongAdder rejectedCount = new LongAdder();
+
+    // Service for 9x9 puzzles taking as many requests at once as the solver pools search contexts, two per core
+    public SolveService(InetSocketAddress address) throws IOException {
+        this(SudokuSolver.BOX_SIZE, address, 2 * Runtime.getRuntime().availableProcessors());
+    }
+
+    // Service for boards of boxSize x boxSize boxes, bound to the address but not started. Port 0 picks a free port
+    public SolveService(int boxSize, InetSocketAddress address, int maxInFlight) throws IOException {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException(String.format("Requests in flight must be at least 1, found %d", maxInFlight));
+        }
+        this.solver = new SudokuSolver(boxSize);
+        this.boxSize = boxSize;
+        this.cellCount = solver.getBoardSize() * solver.getBoardSize();
+        this.admission = new Semaphore(maxInFlight);
+        this.executor = newRequestExecutor();
+        this.server = HttpServer.create(address, 0);
+        this.server.setExecutor(executor);
+        addEndpoint("/solve", false, this::solve);
+        addEndpoint("/count", false, this::count);
+        addEndpoint("/validate", false, this::validate);
+        addEndpoint("/generate", true, this::generate);
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = 8080;
+        int boxSize = SudokuSolver.BOX_SIZE;
+        int maxInFlight = 2 * Runtime.getRuntime().availableProcessors();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--port":
+                    port = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--box-size":
+                    boxSize = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--max-in-flight":
+                    maxInFlight = Integer.parseInt(args[i + 1]);
+                    break;
+                default:
+                    StdOut.println("Usage: SolveService [--port N] [--box-size N] [--max-in-flight N]");
+                    return;
+            }
+        }
+        SolveService service = new SolveService(boxSize, new InetSocketAddress(port), maxInFlight);
+        service.start();
+        StdOut.format("Serving %dx%d puzzles on port %d, %d requests in flight at most\n", boxSize * boxSize, boxSize * boxSize, service.getPort(), maxInFlight);
+    }
+
+    // Returns a virtual thread per task executor when the JVM has one (Java 21), otherwise a cached pool of daemon threads.
+    // Looked up by name so the service still builds and runs on Java 17
+    private static ExecutorService newRequestExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "sudoku-service");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    // Returns the port the service listens on, the one picked when it was created with port 0
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    // Returns the count of requests turned away with 503 because maxInFlight requests were already being worked on
+    public long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+
+    // Stops taking requests, waits up to a second for the ones being worked on and stops the threads
+    @Override
+    public void close() {
+        server.stop(1);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void addEndpoint(String path, boolean allowGet, Endpoint endpoint) {
+        server.createContext(path, exchange -> {
+            try {
+                handle(exchange, path, allowGet, endpoint);
+            } finally {
+                exchange.close();
+            }
+        });
+    }
+
+    private void handle(HttpExchange exchange, String path, boolean allowGet, Endpoint endpoint) throws IOException {
+        // Contexts match by prefix, so /solver would reach /solve without this
+        if (!exchange.getRequestURI().getPath().equals(path)) {
+            send(exchange, 404, errorJson(String.format("No endpoint %s", exchange.getRequestURI().getPath())));
+            return;
+        }
+        String method = exchange.getRequestMethod();
+        if (!method.equals("POST") && !(allowGet && method.equals("GET"))) {
+            exchange.getResponseHeaders().set("Allow", allowGet ? "GET, POST" : "POST");
+            send(exchange, 405, errorJson(String.format("%s takes %s requests", path, allowGet ? "GET or POST" : "POST")));
+            return;
+        }
+        if (!admission.tryAcquire()) {
+            rejectedCount.increment();
+            exchange.getResponseHeaders().set("Retry-After", "1");
+            send(exchange, 503, errorJson("Too many requests in flight"));
+            return;
+        }
+        int status = 200;
+        String response;
+        try {
+            byte[] body = readBody(exchange.getRequestBody());
+            if (body == null) {
+                status = 413;
+                response = errorJson(String.format("Request body must be at most %d bytes", MAX_BODY_BYTES));
+            } else {
+                response = endpoint.respond(new String(body, StandardCharsets.UTF_8), exchange.getRequestURI().getQuery());
+            }
+        } catch (IllegalArgumentException e) {
+            status = 400;
+            response = errorJson(e.getMessage());
+        } finally {
+            // Given back before the answer is written, so a client sending its next request as soon as it reads this one finds it free
+            admission.release();
+        }
+        send(exchange, status, response);
+    }
+
+    // Returns the body, or null when it is longer than MAX_BODY_BYTES
+    private static byte[] readBody(InputStream in) throws IOException {
+        byte[] body = in.readNBytes(MAX_BODY_BYTES + 1);
+        return body.length > MAX_BODY_BYTES ? null : body;
+    }
+
+    private static void send(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private String solve(String body, String query) {
+        Request request = parseRequest(body);
+        int[] board = request.puzzle();
+        SolveResult result = solver.solveWithStats(board, request.options());
+        StringBuilder json = new StringBuilder(cellCount + 96).append("{\"status\":\"").append(result.getStatus()).append('"');
+        if (result.isSolved()) {
+            json.append(",\"solution\":\"");
+            appendSymbols(json, board);
+            json.append('"');
+        }
+        return appendStats(json, result.getStats()).append('}').toString();
+    }
+
+    private String count(String body, String query) {
+        Request request = parseRequest(body);
+        SolveResult result = solver.countWithStats(request.puzzle(), request.limit, request.options());
+        StringBuilder json = new StringBuilder(128).append("{\"status\":\"").append(result.getStatus())
+                .append("\",\"solutions\":").append(result.getSolutionCount())
+                .append(",\"complete\":").append(result.isComplete());
+        return appendStats(json, result.getStats()).append('}').toString();
+    }
+
+    private String validate(String body, String query) {
+        Request request = parseRequest(body);
+        SolutionValidator validator = new SolutionValidator(boxSize); // Not thread safe, and a few hundred bytes
+        int result = validator.firstInvalidUnit(request.puzzle());
+        return result == SolutionValidator.VALID ? "{\"valid\":true}" : String.format("{\"valid\":false,\"unit\":\"%s\"}", validator.describe(result));
+    }
+
+    private String generate(String body, String query) {
+        Random random = ThreadLocalRandom.current();
+        String seed = queryParameter(query, "seed");
+        if (seed != null) {
+            try {
+                random = new Random(Long.parseLong(seed));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException(String.format("Seed must be a whole number, found %s", seed));
+            }
+        }
+        int[] puzzle = solver.toFlatBoard(solver.generateRandomPuzzle(random));
+        int clues = 0;
+        for (int num : puzzle) {
+            clues += num != 0 ? 1 : 0;
+        }
+        StringBuilder json = new StringBuilder(cellCount + 32).append("{\"puzzle\":\"");
+        appendSymbols(json, puzzle);
+        return json.append("\",\"clues\":").append(clues).append('}').toString();
+    }
+
+    private static StringBuilder appendStats(StringBuilder json, SearchStats stats) {
+        return json.append(",\"nodes\":").append(stats.getNodes()).append(",\"micros\":").append(stats.getNanos() / 1000);
+    }
+
+    private static void appendSymbols(StringBuilder json, int[] board) {
+        for (int num : board) {
+            json.append(num == 0 ? '0' : SudokuSolver.SYMBOLS.charAt(num - 1));
+        }
+    }
+
+    // Returns the value of name in a query like "seed=4&x=1", or null when it isn't there
+    private static String queryParameter(String query, String name) {
+        if (query == null) {
+            return null;
+        }
+        for (String parameter : query.split("&")) {
+            int equals = parameter.indexOf('=');
+            if (equals > 0 && parameter.substring(0, equals).equals(name)) {
+                return parameter.substring(equals + 1);
+            }
+        }
+        return null;
+    }
+
+    static String errorJson(String message) {
+        StringBuilder json = new StringBuilder(message.length() + 16).append("{\"error\":\"");
+        for (int i = 0; i < message.length(); i++) {
+            char c = message.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        return json.append("\"}").toString();
+    }
+
+    // A parsed request body: the puzzle as a flat board and the count limit and timeout it asked for
+    private final class Request {
+        private int[] cells;
+        private String symbols;
+        private long limit = DEFAULT_COUNT_LIMIT;
+        private Duration timeout = DEFAULT_TIMEOUT;
+
+        // Returns the puzzle as a new flat board
+        int[] puzzle() {
+            if (symbols != null) {
+                return solver.toFlatBoard(solver.parseSymbolString(symbols));
+            }
+            if (cells == null) {
+                throw new IllegalArgumentException("Request has no puzzle");
+            }
+            if (cells.length != cellCount) {
+                throw new IllegalArgumentException(String.format("Sudoku board must have %d cells, found %d cells", cellCount, cells.length));
+            }
+            return cells;
+        }
+
+        SolveOptions options() {
+            return SolveOptions.NONE.withTimeout(timeout);
+        }
+    }
+
+    // Parses a body of one symbol per cell, or a JSON object with "puzzle" and optionally "limit" and "timeoutMillis"
+    private Request parseRequest(String body) {
+        Request request = new Request();
+        String trimmed = body.trim();
+        if (!trimmed.startsWith("{")) {
+            request.symbols = trimmed;
+            return request;
+        }
+        JsonReader reader = new JsonReader(trimmed);
+        reader.expect('{');
+        boolean first = true;
+        while (!reader.skipIf('}')) {
+            if (!first) {
+                reader.expect(',');
+            }
+            first = false;
+            String key = reader.readString();
+            reader.expect(':');
+            switch (key) {
+                case "puzzle":
+                    if (reader.peek() == '"') {
+                        request.symbols = reader.readString();
+                    } else {
+                        request.cells = reader.readNumberArray(cellCount);
+                    }
+                    break;
+                case "limit":
+                    request.limit = reader.readLong();
+                    if (request.limit < 1) {
+                        throw new IllegalArgumentException(String.format("Count limit must be at least 1, found %d", request.limit));
+                    }
+                    break;
+                case "timeoutMillis":
+                    long millis = reader.readLong();
+                    if (millis < 1) {
+                        throw new IllegalArgumentException(String.format("Timeout must be at least 1 ms, found %d", millis));
+                    }
+                    request.timeout = Duration.ofMillis(Math.min(millis, MAX_TIMEOUT.toMillis()));
+                    break;
+                default:
+                    reader.skipValue(); // Unknown keys are left for newer clients
+            }
+        }
+        reader.expectEnd();
+        return request;
+    }
+
+    // Reads the small subset of JSON the requests use: objects, strings without escapes other than \" and \\, whole numbers,
+    // arrays of those, true, false and null
+    private static final class JsonReader {
+        private final String text;
+        private int position;
+
+        JsonReader(String text) {
+            this.text = text;
+        }
+
+        char peek() {
+            skipWhitespace();
+            return position < text.length() ? text.charAt(position) : 0;
+        }
+
+        boolean skipIf(char c) {
+            if (peek() == c) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+
+        void expect(char c) {
+            if (!skipIf(c)) {
+                throw error(String.format("expecting '%c'", c));
+            }
+        }
+
+        void expectEnd() {
+            if (peek() != 0) {
+                throw error("expecting the end of the body");
+            }
+        }
+
+        String readString() {
+            expect('"');
+            StringBuilder value = new StringBuilder();
+            while (position < text.length() && text.charAt(position) != '"') {
+                char c = text.charAt(position++);
+                if (c == '\\' && position < text.length()) {
+                    c = text.charAt(position++);
+                }
+                value.append(c);
+            }
+            expect('"');
+            return value.toString();
+        }
+
+        long readLong() {
+            skipWhitespace();
+            int start = position;
+            if (position < text.length() && text.charAt(position) == '-') {
+                position++;
+            }
+            while (position < text.length() && Character.isDigit(text.charAt(position))) {
+                position++;
+            }
+            try {
+                return Long.parseLong(text.substring(start, position));
+            } catch (NumberFormatException e) {
+                position = start;
+                throw error("expecting a whole number");
+            }
+        }
+
+        // Reads an array of numbers, or of arrays of numbers like the rows of a board, into one flat array
+        int[] readNumberArray(int expectedCount) {
+            int[] numbers = new int[expectedCount];
+            int count = readNumbersInto(numbers, 0);
+            if (count != expectedCount) {
+                throw new IllegalArgumentException(String.format("Sudoku board must have %d cells, found %d cells", expectedCount, count));
+            }
+            return numbers;
+        }
+
+        private int readNumbersInto(int[] numbers, int count) {
+            expect('[');
+            boolean first = true;
+            while (!skipIf(']')) {
+                if (!first) {
+                    expect(',');
+                }
+                first = false;
+                if (peek() == '[') {
+                    count = readNumbersInto(numbers, count);
+                } else {
+                    long num = readLong();
+                    if (count < numbers.length) {
+                        numbers[count] = (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, num));
+                    }
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        void skipValue() {
+            char c = peek();
+            if (c == '"') {
+                readString();
+            } else if (c == '[' || c == '{') {
+                char close = c == '[' ? ']' : '}';
+                position++;
+                boolean first = true;
+                while (!skipIf(close)) {
+                    if (!first) {
+                        expect(',');
+                    }
+                    first = false;
+                    if (close == '}') {
+                        readString();
+                        expect(':');
+                    }
+                    skipValue();
+                }
+            } else if (text.startsWith("true", position) || text.startsWith("null", position)) {
+                position += 4;
+            } else if (text.startsWith("false", position)) {
+                position += 5;
+            } else {
+                readLong();
+            }
+        }
+
+        private void skipWhitespace() {
+            while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+                position++;
+            }
+        }
+
+        private IllegalArgumentException error(String expecting) {
+            return new IllegalArgumentException(String.format("Invalid JSON at position %d, %s", position, expecting));
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package TermProject;
+
+import stdlib.StdOut;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+// Load test for SolveService: a fixed number of clients each send one request at a time for a fixed time, and the requests per
+// second and latency percentiles are reported per endpoint. Solve and count requests go through a corpus of generated puzzles,
+// validate requests through their solutions. Without --url it starts a service on a free localhost port and stops it at the end.
+// Latency is measured from sending a request to reading its answer, so with every slot busy it includes waiting for a slot,
+// and requests turned away with 503 are counted on their own rather than as latencies.
+// Usage: SolveServiceLoadTest [--url http://host:port] [--clients N] [--seconds N] [--warmup N] [--max-in-flight N] [endpoint ...]
+public class SolveServiceLoadTest {
+
+    private static final String[] ENDPOINTS = { "solve", "count", "validate", "generate" };
+    private static final int CORPUS_SIZE = 50;
+    private static final long SEED = 403;
+
+    private final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+    private final String baseUrl;
+    private final int clients;
+    private final String[] puzzles;
+    private final String[] solutions;
+
+    public SolveServiceLoadTest(String baseUrl, int clients) {
+        if (clients < 1) {
+            throw new IllegalArgumentException(String.format("Number of clients must be at least 1, found %d", clients));
+        }
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.clients = clients;
+        SudokuSolver solver = new SudokuSolver();
+        Random random = new Random(SEED);
+        this.puzzles = new String[CORPUS_SIZE];
+        this.solutions = new String[CORPUS_SIZE];
+        for (int i = 0; i < CORPUS_SIZE; i++) {
+            int[][] board = solver.generateRandomPuzzle(random);
+            puzzles[i] = solver.toSymbolString(board);
+            solver.solveInPlace(board);
+            solutions[i] = solver.toSymbolString(board);
+        }
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        String url = null;
+        int clients = 4 * Runtime.getRuntime().availableProcessors();
+        int seconds = 5;
+        int warmupSeconds = 2;
+        int maxInFlight = 2 * Runtime.getRuntime().availableProcessors();
+        List<String> endpoints = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--url":
+                    url = args[++i];
+                    break;
+                case "--clients":
+                    clients = Integer.parseInt(args[++i]);
+                    break;
+                case "--seconds":
+                    seconds = Integer.parseInt(args[++i]);
+                    break;
+                case "--warmup":
+                    warmupSeconds = Integer.parseInt(args[++i]);
+                    break;
+                case "--max-in-flight":
+                    maxInFlight = Integer.parseInt(args[++i]);
+                    break;
+                default:
+                    if (!Arrays.asList(ENDPOINTS).contains(args[i])) {
+                        StdOut.println("Usage: SolveServiceLoadTest [--url http://host:port] [--clients N] [--seconds N] [--warmup N] [--max-in-flight N] [endpoint ...]");
+                        return;
+                    }
+                    endpoints.add(args[i]);
+            }
+        }
+        if (endpoints.isEmpty()) {
+            endpoints.addAll(Arrays.asList(ENDPOINTS));
+        }
+
+        SolveService service = null;
+        if (url == null) {
+            service = new SolveService(SudokuSolver.BOX_SIZE, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), maxInFlight);
+            service.start();
+            url = String.format("http://localhost:%d", service.getPort());
+        }
+        try {
+            SolveServiceLoadTest loadTest = new SolveServiceLoadTest(url, clients);
+            StdOut.format("%d clients against %s\n", clients, url);
+            StdOut.println("endpoint    requests      req/s     p50 ms     p90 ms     p99 ms     max ms    503s  errors");
+            for (String endpoint : endpoints) {
+                loadTest.run(endpoint, Duration.ofSeconds(warmupSeconds)); // Lets the JIT compile the server and the search first
+                loadTest.run(endpoint, Duration.ofSeconds(seconds)).print();
+            }
+        } finally {
+            if (service != null) {
+                service.close();
+            }
+        }
+    }
+
+    // Requests, rejections, errors and latencies of one endpoint over one run
+    public static final class Result {
+        private final String endpoint;
+        private final long nanos;
+        private final long[] latencies; // Nanoseconds of every answered request, sorted
+        private final long rejected;
+        private final long errors;
+
+        Result(String endpoint, long nanos, long[] latencies, long rejected, long errors) {
+            this.endpoint = endpoint;
+            this.nanos = nanos;
+            this.latencies = latencies;
+            this.rejected = rejected;
+            this.errors = errors;
+        }
+
+        public long getRequests() {
+            return latencies.length;
+        }
+
+        public double getRequestsPerSecond() {
+            return latencies.length * 1e9 / nanos;
+        }
+
+        // Returns the latency in milliseconds that the fraction of answered requests came in under, e.g. 0.99 for p99
+        public double getLatencyMillis(double fraction) {
+            if (latencies.length == 0) {
+                return Double.NaN;
+            }
+            int index = (int) Math.ceil(fraction * latencies.length) - 1;
+            return latencies[Math.max(0, Math.min(latencies.length - 1, index))] / 1e6;
+        }
+
+        public long getRejected() {
+            return rejected;
+        }
+
+        public long getErrors() {
+            return errors;
+        }
+
+        void print() {
+            StdOut.format("%-10s %9d %10.1f %10.2f %10.2f %10.2f %10.2f %7d %7d\n", endpoint, getRequests(), getRequestsPerSecond(),
+                    getLatencyMillis(0.50), getLatencyMillis(0.90), getLatencyMillis(0.99), getLatencyMillis(1.0), rejected, errors);
+        }
+    }
+
+    // Sends requests to the endpoint from every client until the duration is up
+    public Result run(String endpoint, Duration duration) throws InterruptedException {
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        long[][] latencies = new long[clients][];
+        int[] counts = new int[clients];
+        long[] rejected = new long[clients];
+        long[] errors = new long[clients];
+        Thread[] threads = new Thread[clients];
+        for (int c = 0; c < clients; c++) {
+            int id = c;
+            threads[c] = new Thread(() -> {
+                long[] own = new long[1024];
+                int count = 0;
+                for (int i = id; System.nanoTime() < end; i += clients) {
+                    HttpRequest request = request(endpoint, i % CORPUS_SIZE);
+                    long sent = System.nanoTime();
+                    try {
+                        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+                        long latency = System.nanoTime() - sent;
+                        if (response.statusCode() == 503) {
+                            rejected[id]++;
+                        } else if (response.statusCode() != 200) {
+                            errors[id]++;
+                        } else {
+                            if (count == own.length) {
+                                own = Arrays.copyOf(own, 2 * count);
+                            }
+                            own[count++] = latency;
+                        }
+                    } catch (IOException e) {
+                        errors[id]++;
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                }
+                latencies[id] = own;
+                counts[id] = count;
+            }, "sudoku-load-" + c);
+            threads[c].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long nanos = System.nanoTime() - start;
+
+        int total = 0;
+        long totalRejected = 0;
+        long totalErrors = 0;
+        for (int c = 0; c < clients; c++) {
+            total += counts[c];
+            totalRejected += rejected[c];
+            totalErrors += errors[c];
+        }
+        long[] merged = new long[total];
+        for (int c = 0, offset = 0; c < clients; offset += counts[c], c++) {
+            System.arraycopy(latencies[c], 0, merged, offset, counts[c]);
+        }
+        Arrays.sort(merged);
+        return new Result(endpoint, nanos, merged, totalRejected, totalErrors);
+    }
+
+    private HttpRequest request(String endpoint, int index) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + "/" + endpoint)).timeout(Duration.ofSeconds(30));
+        switch (endpoint) {
+            case "validate":
+                return builder.POST(HttpRequest.BodyPublishers.ofString(solutions[index])).build();
+            case "generate":
+                return builder.GET().build();
+            default:
+                return builder.POST(HttpRequest.BodyPublishers.ofString(puzzles[index])).build();
+        }
+    }
+}
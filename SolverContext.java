@@ -0,0 +1,820 @@
+package TermProject;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Search state for one solve at a time: the constraint masks, the backtracking trail, the candidate count buckets
+// and the dancing links matrix, all allocated once for a board size and reused for every search.
+// Every search and check works on a flat board, cell (row, col) at index row * boardSize + col, and looks up rows, columns,
+// boxes and peers in the geometry tables. The int[][] methods copy the board into flatBoard and back around the flat ones
+// A context is never shared between threads while in use. SudokuSolver borrows one from its SolverContextPool for each call
+final class SolverContext {
+
+    private final BoardGeometry geometry; // Sizes and lookup tables for the board this context works on
+    private final int boxSize; // Length and width of the box set
+    private final int boardSize; // Length and width of the board
+    private final int cellCount; // Number of cells on the board
+    private final long fullMask; // Bits 1 to boardSize set, bit n stands for number n
+    private final int[] cellRow; // Row of every flat cell index
+    private final int[] cellCol; // Column of every flat cell index
+    private final int[] cellBox; // Box of every flat cell index
+    private final int[][] peers; // Flat indices of the peers of every flat cell index
+    private final int[][] units; // Flat indices of the cells of every row, column and box
+
+    // One bitmask per row, column and box. Bit n is set when number n is already used in that row, column or box
+    private long[] rowMasks;
+    private long[] columnMasks;
+    private long[] boxMasks;
+    // Flat cell indices of every placement in search order, used for backtracking without allocating
+    private int[] backtrackTrail;
+    private boolean[] forcedPlacements; // True when the placement at that trail depth was forced by propagation rather than guessed
+    private int trailDepth;
+    private boolean searchConsistent; // False when nextSolution has to backtrack before it searches on, e.g. from the last solution
+    // Empty cells bucketed by their count of possible answers, kept up to date while searching
+    private int[] candidateCounts;
+    private int[][] mrvBuckets;
+    private int[] bucketSizes;
+    private int[] bucketPositions;
+
+    private DancingLinksSolver dancingLinks; // Built the first time the dancing links engine is used
+    private AtomicBoolean cancelFlag; // Checked on every step of a search when set, another thread sets it to stop the search
+
+    // Counters of the last search, plain fields so counting costs a few increments per guess
+    private long nodeCount; // Guesses placed
+    private long backtrackCount; // Guesses taken back to try the next answer
+    private long probeCount; // findAnswer calls
+    private long propagationCount; // Answers placed because they were forced
+    private int guessDepth; // Guesses on the trail right now
+    private int maxDepth; // Most guesses on the trail at once
+    private long searchNanos; // Wall time of the last search
+    private int fullBoardAttempts; // Full boards drawn by the last generatePuzzle
+    private final SearchBudget budget = new SearchBudget(); // Node and time budget of the current call, none unless setBudget was called
+    private final int[] flatBoard; // The int[][] board of the current call, copied in and out by the int[][] methods
+    private final CandidateKernel kernel; // Computes the candidates of every cell when the search starts
+    private final long[] sweepCandidates; // Candidates of every cell from the kernel
+
+    SolverContext(BoardGeometry geometry) {
+        this.geometry = geometry;
+        this.boxSize = geometry.boxSize;
+        this.boardSize = geometry.boardSize;
+        this.cellCount = geometry.cellCount;
+        this.fullMask = geometry.fullMask;
+        this.cellRow = geometry.cellRow;
+        this.cellCol = geometry.cellCol;
+        this.cellBox = geometry.cellBox;
+        this.peers = geometry.peers;
+        this.units = geometry.units;
+        this.flatBoard = new int[cellCount];
+        this.kernel = CandidateKernel.create(geometry);
+        this.sweepCandidates = new long[cellCount];
+        initializeSearchState(); // Initialize constraint masks and backtracking trail
+    }
+
+    // Sets the flag searches check on every step, a search stops early once it is set and the board is left partly filled.
+    // Used by ParallelSolver to stop the other workers once one finds a solution, null turns the check off
+    void setCancelFlag(AtomicBoolean cancelFlag) {
+        this.cancelFlag = cancelFlag;
+    }
+
+    // Sets the node and time budget of the options for every search until clearBudget, the timeout counts from startNanos
+    void setBudget(SolveOptions options, long startNanos) {
+        budget.set(options, startNanos);
+    }
+
+    void clearBudget() {
+        budget.clear();
+    }
+
+    // Returns true when the last search stopped because its budget ran out
+    boolean budgetExceeded() {
+        return budget.isExceeded();
+    }
+
+    // Takes every answer the last backtracking search placed back off the board, for a search that stopped early.
+    // The dancing links engine only writes a solution it found, so there is nothing to take back after it
+    void undoSearch(int[] board, SudokuSolver.Engine engine) {
+        if (engine == SudokuSolver.Engine.DANCING_LINKS) {
+            return;
+        }
+        while (trailDepth > 0) {
+            deleteNumberFromMasks(board, backtrackTrail[--trailDepth]);
+        }
+    }
+
+    void undoSearch(int[][] board, SudokuSolver.Engine engine) {
+        copyIn(board);
+        undoSearch(flatBoard, engine);
+        copyOut(board);
+    }
+
+    // Copies an int[][] board of the right size into flatBoard
+    private void copyIn(int[][] board) {
+        for (int row = 0; row < boardSize; row++) {
+            System.arraycopy(board[row], 0, flatBoard, row * boardSize, boardSize);
+        }
+    }
+
+    // Copies flatBoard back into the int[][] board
+    private void copyOut(int[][] board) {
+        for (int row = 0; row < boardSize; row++) {
+            System.arraycopy(flatBoard, row * boardSize, board[row], 0, boardSize);
+        }
+    }
+
+    // Declare and initialize bitmasks for constraints and the backtracking trail
+    private void initializeSearchState() {
+        // Initialize one mask per row, column and box for constraints
+        rowMasks = new long[boardSize];
+        columnMasks = new long[boardSize];
+        boxMasks = new long[boardSize];
+        // Every cell is placed at most once per search path, so the trail never holds more than cellCount entries
+        backtrackTrail = new int[cellCount];
+        forcedPlacements = new boolean[cellCount];
+        // One bucket for every possible answer count from 0 to boardSize
+        candidateCounts = new int[cellCount];
+        mrvBuckets = new int[boardSize + 1][cellCount];
+        bucketSizes = new int[boardSize + 1];
+        bucketPositions = new int[cellCount];
+    }
+
+    // Function that empties/clears the constraint masks without allocating
+    private void emptyMasks() {
+        Arrays.fill(rowMasks, 0);
+        Arrays.fill(columnMasks, 0);
+        Arrays.fill(boxMasks, 0);
+    }
+
+    // Returns a mask of every number that can still be placed at the cell
+    private long candidateMask(int cell) {
+        return ~(rowMasks[cellRow[cell]] | columnMasks[cellCol[cell]] | boxMasks[cellBox[cell]]) & fullMask;
+    }
+
+    // Adds num to the row, column and box masks of the cell
+    private void addNumberToMasks(int cell, int num) {
+        long bit = 1L << num;
+        rowMasks[cellRow[cell]] |= bit;
+        columnMasks[cellCol[cell]] |= bit;
+        boxMasks[cellBox[cell]] |= bit;
+    }
+
+    // Returns valid answer for the cell
+    private int findAnswer(int cell, int startNum) {
+        // Only keep answers above startNum for optimization while backtracking. startNum usually = 0 unless backtracking
+        long candidates = candidateMask(cell) & (-2L << startNum);
+        if (candidates != 0) {
+            //StdOut.format("Placing: %d at sudokuBoard[%d, %d]\n", Long.numberOfTrailingZeros(candidates), cellRow[cell], cellCol[cell]);
+            return Long.numberOfTrailingZeros(candidates); // Lowest set bit is the smallest valid answer
+        }
+        //StdOut.format("No valid answer for sudokuBoard[%d, %d] starting from number: %d\n", cellRow[cell], cellCol[cell], startNum);
+        return 0; // Need to check for zero because that means no answer was found
+    }
+
+    // Returns flat index of next cell with the minimum remaining values for answers or returns the index with no answers, so it backtracks
+    private int findNextZeroMRV() {
+        // Lowest non-empty bucket holds the most constrained cells, bucket 0 holds cells with no answers
+        for (int count = 0; count <= boardSize; count++) {
+            if (bucketSizes[count] > 0) {
+                return mrvBuckets[count][0];
+            }
+        }
+        // Returns -1 when there is no more empty indices or cells
+        return -1;
+    }
+
+    // Helper function to return the count of possible answers for an index
+    private int mrvHelper(int cell) {
+        return Long.bitCount(candidateMask(cell));
+    }
+
+    // Puts every empty cell of the board into the bucket for its count of possible answers
+    private void buildMrvBuckets(int[] board) {
+        Arrays.fill(bucketSizes, 0);
+        kernel.candidates(rowMasks, columnMasks, boxMasks, sweepCandidates);
+        for (int cell = 0; cell < cellCount; cell++) {
+            if (board[cell] == 0) {
+                addToBucket(cell, Long.bitCount(sweepCandidates[cell]));
+            }
+        }
+    }
+
+    // Adds cell to the bucket for count
+    private void addToBucket(int cell, int count) {
+        candidateCounts[cell] = count;
+        bucketPositions[cell] = bucketSizes[count];
+        mrvBuckets[count][bucketSizes[count]++] = cell;
+    }
+
+    // Removes cell from its bucket by moving the last cell of the bucket into its place
+    private void removeFromBucket(int cell) {
+        int[] bucket = mrvBuckets[candidateCounts[cell]];
+        int last = bucket[--bucketSizes[candidateCounts[cell]]];
+        bucket[bucketPositions[cell]] = last;
+        bucketPositions[last] = bucketPositions[cell];
+    }
+
+    // Places answer at the cell and updates the possible answer counts of the empty peers that lose it
+    private void addNumberMRV(int[] board, int cell, int answer) {
+        long bit = 1L << answer;
+        removeFromBucket(cell);
+        for (int peer : peers[cell]) {
+            if (board[peer] == 0 && (candidateMask(peer) & bit) != 0) {
+                int count = candidateCounts[peer];
+                removeFromBucket(peer);
+                addToBucket(peer, count - 1);
+            }
+        }
+        board[cell] = answer;
+        addNumberToMasks(cell, answer);
+    }
+
+    // Deletes the number at the cell and updates the possible answer counts of the empty peers that get it back
+    private void deleteNumberMRV(int[] board, int cell) {
+        int delNum = board[cell];
+        if (delNum == 0) {
+            return; // Already empty and in a bucket
+        }
+        deleteNumberFromMasks(board, cell);
+        long bit = 1L << delNum;
+        for (int peer : peers[cell]) {
+            if (board[peer] == 0 && (candidateMask(peer) & bit) != 0) {
+                int count = candidateCounts[peer];
+                removeFromBucket(peer);
+                addToBucket(peer, count + 1);
+            }
+        }
+        addToBucket(cell, mrvHelper(cell));
+    }
+
+    // Deletes the number at the cell from masks and resets board to 0
+    private void deleteNumberFromMasks(int[] board, int cell) {
+        // Get value at position
+        int delNum = board[cell];
+
+        if (delNum > 0) {
+            // Remove value from masks
+            long clearBit = ~(1L << delNum);
+            rowMasks[cellRow[cell]] &= clearBit;
+            columnMasks[cellCol[cell]] &= clearBit;
+            boxMasks[cellBox[cell]] &= clearBit;
+
+            // Reset value at position
+            board[cell] = 0;
+
+            //StdOut.format("Removed: %d from sudokuBoard[%d, %d]\n", delNum, row, col);
+        }
+    }
+
+    // Solves the puzzle in place with the engine and returns true if the board now holds a valid solution
+    boolean solveInPlace(int[] board, SudokuSolver.Engine engine) {
+        checkIfValidStartBoard(board); // Checks if starting board is valid
+        solveBoard(board, engine); // Solves the board if there is a solution
+        return checkIfValidSolution(board);
+    }
+
+    boolean solveInPlace(int[][] board, SudokuSolver.Engine engine) {
+        checkIfValidStartBoard(board);
+        solveBoard(flatBoard, engine);
+        copyOut(board);
+        return checkIfValidSolution(flatBoard);
+    }
+
+    // Function that solves the board with the engine, stops at the first solution and leaves it on the board
+    void solveBoard(int[] board, SudokuSolver.Engine engine) {
+        // StdOut.println("Starting Puzzle");
+        countSolutionsUpTo(board, 1, engine);
+    }
+
+    void solveBoard(int[][] board, SudokuSolver.Engine engine) {
+        copyIn(board);
+        solveBoard(flatBoard, engine);
+        copyOut(board);
+    }
+
+    // Returns the dancing links matrix for this board size, building it the first time it is needed
+    private DancingLinksSolver dancingLinksSolver() {
+        if (dancingLinks == null) {
+            dancingLinks = new DancingLinksSolver(geometry);
+        }
+        return dancingLinks;
+    }
+
+    // Checks if starting board is valid and follows the constraints, recorded as a flight recorder event while one is enabled
+    void checkIfValidStartBoard(int[] board) {
+        if (!SolverEvents.validationEnabled()) {
+            validateStartBoard(board);
+            return;
+        }
+        SolverEvents.ValidationEvent event = new SolverEvents.ValidationEvent();
+        event.begin();
+        String outcome = "invalid";
+        try {
+            validateStartBoard(board);
+            outcome = "valid";
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.puzzleHash = SolverEvents.puzzleHash(board);
+                event.clueCount = SolverEvents.clueCount(board);
+                event.outcome = outcome;
+                event.commit();
+            }
+        }
+    }
+
+    // Checks the size of an int[][] board, copies it into flatBoard and checks that like a flat board
+    void checkIfValidStartBoard(int[][] board) {
+        checkBoardSize(board);
+        copyIn(board);
+        checkIfValidStartBoard(flatBoard);
+    }
+
+    private void checkBoardSize(int[][] board) {
+        // Check for invalid row length
+        if (board.length != boardSize) {
+            throw new IllegalArgumentException(String.format("Sudoku board must have %d rows, found %d rows", boardSize, board.length));
+        }
+        for (int row = 0; row < boardSize; row++) {
+            // Check for invalid column length
+            if (board[row].length != boardSize) {
+                throw new IllegalArgumentException(String.format("Sudoku board must have %d columns, found %d columns at row [%d]", boardSize, board[row].length, row));
+            }
+        }
+    }
+
+    private void validateStartBoard(int[] board) {
+        // Check for invalid board length
+        if (board.length != cellCount) {
+            throw new IllegalArgumentException(String.format("Sudoku board must have %d cells, found %d cells", cellCount, board.length));
+        }
+
+        // Clear masks
+        emptyMasks();
+
+        for (int cell = 0; cell < cellCount; cell++) {
+            int num = board[cell];
+            // Check for invalid number
+            if (num < 0 || num > boardSize) {
+                throw new IllegalArgumentException(String.format("Invalid number %d at [%d, %d]", num, cellRow[cell], cellCol[cell]));
+            }
+            // Check if the number is a duplicate in the masks
+            if (num != 0 && (~candidateMask(cell) & (1L << num)) != 0) {
+                throw new IllegalArgumentException(String.format("Duplicate number %d at [%d, %d]", num, cellRow[cell], cellCol[cell]));
+            }
+            // Add to masks if num != 0
+            if (num != 0) {
+                addNumberToMasks(cell, num);
+            }
+        }
+    }
+
+    // Checks if final board is a valid solution, recorded as a flight recorder event while one is enabled
+    Boolean checkIfValidSolution(int[] board) {
+        if (!SolverEvents.verificationEnabled()) {
+            return verifySolution(board);
+        }
+        SolverEvents.VerificationEvent event = new SolverEvents.VerificationEvent();
+        event.begin();
+        boolean valid = verifySolution(board);
+        event.end();
+        if (event.shouldCommit()) {
+            event.puzzleHash = SolverEvents.puzzleHash(board);
+            event.clueCount = SolverEvents.clueCount(board);
+            event.outcome = valid ? "valid" : "invalid";
+            event.commit();
+        }
+        return valid;
+    }
+
+    // Copies an int[][] board of the right size into flatBoard and checks that like a flat board
+    Boolean checkIfValidSolution(int[][] board) {
+        copyIn(board);
+        return checkIfValidSolution(flatBoard);
+    }
+
+    private boolean verifySolution(int[] board) {
+        if (board.length != cellCount) {
+            return false;
+        }
+
+        // Clear masks
+        emptyMasks();
+
+        for (int cell = 0; cell < cellCount; cell++) {
+            int num = board[cell];
+
+            // Check for empty cell or no answer
+            if (num == 0) {
+                //StdOut.format("Empty cell found at [%d, %d]\n", cellRow[cell], cellCol[cell]);
+                return false;
+            }
+            // Check for a number out of range, it has no bit in the masks
+            if (num < 0 || num > boardSize) {
+                return false;
+            }
+            // Check if the number is already in the masks
+            if ((~candidateMask(cell) & (1L << num)) != 0) {
+                //StdOut.format("Answer %d already in masks at [%d, %d]\n", num, cellRow[cell], cellCol[cell]);
+                return false;
+            }
+
+            // Add the number to the masks
+            addNumberToMasks(cell, num);
+        }
+
+        // Checks all the masks to make sure 1-9 is every row, column, and box
+        for (int i = 0; i < boardSize; i++) {
+            if (rowMasks[i] != fullMask || columnMasks[i] != fullMask || boxMasks[i] != fullMask) {
+                //StdOut.format("Answer missing in rowMasks, columnMasks or boxMasks[%d]\n", i);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Returns the count of solutions with the engine for a board that passed the start board check, up to limit
+    // Every search is counted and timed, see lastStats, and recorded as a flight recorder event while one is enabled
+    long countSolutionsUpTo(int[] board, long limit, SudokuSolver.Engine engine) {
+        if (!SolverEvents.searchEnabled()) {
+            return search(board, limit, engine);
+        }
+        // The search fills in the board, so the puzzle is described before it starts
+        SolverEvents.SearchEvent event = new SolverEvents.SearchEvent();
+        long puzzleHash = SolverEvents.puzzleHash(board);
+        int clueCount = SolverEvents.clueCount(board);
+        event.begin();
+        long solutionCount = search(board, limit, engine);
+        event.end();
+        if (event.shouldCommit()) {
+            event.puzzleHash = puzzleHash;
+            event.clueCount = clueCount;
+            event.engine = engine.name();
+            event.limit = limit;
+            event.nodeCount = nodeCount;
+            event.backtrackCount = backtrackCount;
+            event.maxDepth = maxDepth;
+            event.solutionCount = solutionCount;
+            event.outcome = budget.isExceeded() ? "budget exceeded" : cancelFlag != null && cancelFlag.get() ? "cancelled"
+                    : solutionCount == 0 ? "unsolvable" : "solved";
+            event.commit();
+        }
+        return solutionCount;
+    }
+
+    long countSolutionsUpTo(int[][] board, long limit, SudokuSolver.Engine engine) {
+        copyIn(board);
+        long solutionCount = countSolutionsUpTo(flatBoard, limit, engine);
+        copyOut(board);
+        return solutionCount;
+    }
+
+    // Counts the solutions of a board that passed the start board check on a copy in flatBoard, so the board itself is left unchanged
+    long countSolutionsOfCopy(int[] board, long limit, SudokuSolver.Engine engine) {
+        System.arraycopy(board, 0, flatBoard, 0, cellCount);
+        return countSolutionsUpTo(flatBoard, limit, engine);
+    }
+
+    long countSolutionsOfCopy(int[][] board, long limit, SudokuSolver.Engine engine) {
+        copyIn(board);
+        return countSolutionsUpTo(flatBoard, limit, engine);
+    }
+
+    private long search(int[] board, long limit, SudokuSolver.Engine engine) {
+        resetStats();
+        budget.start();
+        long start = System.nanoTime();
+        long solutionCount;
+        if (engine == SudokuSolver.Engine.DANCING_LINKS) {
+            // The exact cover search counts in an int, which holds far more solutions than a search can enumerate in practice
+            DancingLinksSolver links = dancingLinksSolver();
+            solutionCount = links.searchSolutions(board, (int) Math.min(limit, Integer.MAX_VALUE), cancelFlag, budget);
+            nodeCount = links.lastNodeCount();
+            backtrackCount = links.lastBacktrackCount();
+            probeCount = links.lastProbeCount();
+            maxDepth = links.lastMaxDepth();
+        } else {
+            solutionCount = searchSolutions(board, limit);
+        }
+        searchNanos = System.nanoTime() - start;
+        if (SearchStats.isGlobalEnabled()) {
+            SearchStats.recordGlobal(nodeCount, backtrackCount, probeCount, propagationCount, maxDepth, searchNanos);
+        }
+        return solutionCount;
+    }
+
+    // Returns the counters of the last search run by countSolutionsUpTo or solveBoard
+    SearchStats lastStats() {
+        return new SearchStats(1, nodeCount, backtrackCount, probeCount, propagationCount, maxDepth, searchNanos);
+    }
+
+    // Sets the counters back to 0 before a search
+    private void resetStats() {
+        nodeCount = 0;
+        backtrackCount = 0;
+        probeCount = 0;
+        propagationCount = 0;
+        guessDepth = 0;
+        maxDepth = 0;
+        searchNanos = 0;
+    }
+
+    // Checks the board, fills in its singles and returns the most constrained empty cell, so a caller can split the search
+    // into one board per possible answer of that cell. Returns -1 when the board is already solved and -2 when it has no solution
+    int prepareBranch(int[] board) {
+        checkIfValidStartBoard(board);
+        trailDepth = 0;
+        buildMrvBuckets(board);
+        if (!propagate(board)) {
+            return -2;
+        }
+        return findNextZeroMRV();
+    }
+
+    int prepareBranch(int[][] board) {
+        checkBoardSize(board);
+        copyIn(board);
+        int cell = prepareBranch(flatBoard);
+        copyOut(board);
+        return cell;
+    }
+
+    // Returns the mask of possible answers for a cell of the board last given to prepareBranch
+    long branchCandidates(int cell) {
+        return candidateMask(cell);
+    }
+
+    // Backtracking search that always fills the most constrained cell next, using a preallocated trail so it allocates nothing while searching
+    // Forced answers are filled in by propagate before the first guess and after every guess, and are undone with the guess on backtrack
+    // Returns the count of solutions found up to limit, the last solution found is left on the board when the limit is reached
+    private long searchSolutions(int[] board, long limit) {
+        startSearch(board);
+        long solutionCount = 0;
+        while (solutionCount < limit && nextSolution(board)) {
+            solutionCount++;
+            //StdOut.format("Solution found: %d\n", solutionCount);
+        }
+        return solutionCount;
+    }
+
+    // Starts a search of a board that passed the start board check, nextSolution then finds its solutions one at a time
+    void startSearch(int[] board) {
+        // Reset trail and bucket the empty cells, after this the buckets are only updated for the peers of each change
+        trailDepth = 0;
+        guessDepth = 0;
+        buildMrvBuckets(board);
+        searchConsistent = propagate(board);
+    }
+
+    // Continues the search from where the last call stopped. Returns true with the next solution on the board, or false once
+    // every guess was tried and the board is back to its starting state, or when the search was cancelled or ran out of budget
+    boolean nextSolution(int[] board) {
+        // The search picks up from the last solution by backtracking from it
+        boolean consistent = searchConsistent;
+        int cell = -1;
+        int startingNumber = 0;
+
+        while (true) {
+            if (cancelFlag != null && cancelFlag.get()) {
+                return false; // Another thread stopped the search, the board is left as it is
+            }
+            if (consistent) {
+                // Update cell to next mrv cell position and reset startingNumber to 0
+                cell = findNextZeroMRV();
+                startingNumber = 0;
+
+                // Check if puzzle is solved, the next call backtracks from this solution to search for another
+                if (cell < 0) {
+                    searchConsistent = false;
+                    return true;
+                }
+            }
+            if (!consistent) {
+                // Undo forced answers until the last guess, then retry that cell starting after its last answer
+                cell = -1;
+                while (trailDepth > 0) {
+                    int lastCell = backtrackTrail[--trailDepth];
+                    boolean wasGuess = !forcedPlacements[trailDepth];
+                    if (wasGuess) {
+                        startingNumber = board[lastCell];
+                    }
+                    // Remove last solution from masks and buckets
+                    deleteNumberMRV(board, lastCell);
+                    if (wasGuess) {
+                        cell = lastCell;
+                        backtrackCount++;
+                        guessDepth--;
+                        break;
+                    }
+                }
+                if (cell < 0) {
+                    // Trail is empty, every guess was tried and the board is back to its starting state
+                    //StdOut.println("Break");
+                    searchConsistent = false;
+                    return false;
+                }
+            }
+
+            // Find answer for empty cell
+            probeCount++;
+            int answer = findAnswer(cell, startingNumber);
+            if (answer == 0) {
+                // findAnswer didn't find a possible solution
+                //StdOut.format("Did not find answer at [%d, %d]\n", cellRow[cell], cellCol[cell]);
+                consistent = false;
+                continue;
+            }
+            if (nodeCount >= budget.nextCheck && budget.exhausted(nodeCount)) {
+                return false; // Out of budget before this guess, the trail still holds every answer placed
+            }
+            // Update solution to the board, masks and buckets, push it onto the trail as a guess and fill in what it forces
+            addNumberMRV(board, cell, answer);
+            forcedPlacements[trailDepth] = false;
+            backtrackTrail[trailDepth++] = cell;
+            nodeCount++;
+            if (++guessDepth > maxDepth) {
+                maxDepth = guessDepth;
+            }
+            consistent = propagate(board);
+        }
+    }
+
+    // Fills in naked singles (a cell with one possible answer) and hidden singles (a number with one possible cell in a row, column or box)
+    // until none are left. Every answer is pushed onto the trail as forced. Returns false when a cell or a number has nowhere left to go
+    private boolean propagate(int[] board) {
+        boolean progress = true;
+        while (progress) {
+            // Naked singles, the bucket counts are updated as each answer is placed
+            while (bucketSizes[1] > 0 && bucketSizes[0] == 0) {
+                int cell = mrvBuckets[1][0];
+                placeForcedNumber(board, cell, Long.numberOfTrailingZeros(candidateMask(cell)));
+            }
+            if (bucketSizes[0] > 0) {
+                return false;
+            }
+
+            // Hidden singles, numbers that are possible in exactly one empty cell of a unit
+            progress = false;
+            for (int unit = 0; unit < units.length; unit++) {
+                long seenOnce = 0;
+                long seenTwice = 0;
+                for (int cell : units[unit]) {
+                    if (board[cell] == 0) {
+                        long candidates = candidateMask(cell);
+                        seenTwice |= seenOnce & candidates;
+                        seenOnce |= candidates;
+                    }
+                }
+                if ((seenOnce | unitMask(unit)) != fullMask) {
+                    return false; // A number missing from the unit can't be placed anywhere in it
+                }
+                long hiddenSingles = seenOnce & ~seenTwice;
+                while (hiddenSingles != 0) {
+                    long bit = hiddenSingles & -hiddenSingles;
+                    hiddenSingles ^= bit;
+                    int target = -1;
+                    for (int cell : units[unit]) {
+                        if (board[cell] == 0 && (candidateMask(cell) & bit) != 0) {
+                            target = cell;
+                            break;
+                        }
+                    }
+                    if (target < 0) {
+                        return false; // An earlier single in this unit took the only cell the number had
+                    }
+                    placeForcedNumber(board, target, Long.numberOfTrailingZeros(bit));
+                    progress = true;
+                }
+                if (bucketSizes[0] > 0) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    // Places an answer that propagate found to be forced and pushes it onto the trail
+    private void placeForcedNumber(int[] board, int cell, int answer) {
+        addNumberMRV(board, cell, answer);
+        forcedPlacements[trailDepth] = true;
+        backtrackTrail[trailDepth++] = cell;
+        propagationCount++;
+    }
+
+    // Returns the mask of numbers already used in a unit, units are the rows, then the columns, then the boxes
+    private long unitMask(int unit) {
+        if (unit < boardSize) {
+            return rowMasks[unit];
+        }
+        if (unit < 2 * boardSize) {
+            return columnMasks[unit - boardSize];
+        }
+        return boxMasks[unit - 2 * boardSize];
+    }
+
+    // Generates a random unique starting board by digging holes in a random full board. Every cell is tried once in random order,
+    // and its clue is removed unless another number there would also lead to a solution, so every clue left is needed.
+    // The masks always hold the current board and are updated one cell at a time. Always uses the backtracking search, which shares them
+    // Returns the puzzle as a flat board. Recorded as a flight recorder event while one is enabled
+    int[] generatePuzzle(Random random) {
+        if (!SolverEvents.generationEnabled()) {
+            return digHoles(random);
+        }
+        SolverEvents.GenerationEvent event = new SolverEvents.GenerationEvent();
+        event.begin();
+        int[] board = null;
+        try {
+            board = digHoles(random);
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.attempts = fullBoardAttempts;
+                event.nodeCount = nodeCount;
+                if (board != null) {
+                    event.puzzleHash = SolverEvents.puzzleHash(board);
+                    event.clueCount = SolverEvents.clueCount(board);
+                }
+                event.outcome = board != null ? "generated" : "failed";
+                event.commit();
+            }
+        }
+        return board;
+    }
+
+    private int[] digHoles(Random random) {
+        resetStats(); // The counters add up every search of this puzzle
+        fullBoardAttempts = 0;
+        int[] board = randomSolution(random);
+
+        int[] order = new int[cellCount];
+        for (int cell = 0; cell < cellCount; cell++) {
+            order[cell] = cell;
+        }
+        shuffle(order, random);
+
+        for (int cell : order) {
+            int clue = board[cell];
+            deleteNumberFromMasks(board, cell);
+            if (hasOtherSolution(board, cell, clue)) {
+                // The clue is needed for a unique solution, put it back
+                board[cell] = clue;
+                addNumberToMasks(cell, clue);
+            }
+        }
+        return board;
+    }
+
+    // Returns a random full board and leaves it in the masks. The diagonal boxes share no row or column, so each gets
+    // the numbers in random order, and the search fills in the rest. Some 4x4 starts can't be completed and are drawn again
+    private int[] randomSolution(Random random) {
+        int[] board = new int[cellCount];
+        int[] numbers = new int[boardSize];
+        for (int num = 1; num <= boardSize; num++) {
+            numbers[num - 1] = num;
+        }
+        do {
+            fullBoardAttempts++;
+            Arrays.fill(board, 0);
+            emptyMasks();
+            for (int box = 0; box < boxSize; box++) {
+                shuffle(numbers, random);
+                int[] boxCells = units[2 * boardSize + box * boxSize + box];
+                for (int i = 0; i < boardSize; i++) {
+                    board[boxCells[i]] = numbers[i];
+                    addNumberToMasks(boxCells[i], numbers[i]);
+                }
+            }
+        } while (searchSolutions(board, 1) == 0);
+        return board;
+    }
+
+    // Returns true when the board has a solution with a number other than clue at the empty cell. The board and masks are left as they were
+    private boolean hasOtherSolution(int[] board, int cell, int clue) {
+        for (long others = candidateMask(cell) & ~(1L << clue); others != 0; others &= others - 1) {
+            int answer = Long.numberOfTrailingZeros(others);
+            board[cell] = answer;
+            addNumberToMasks(cell, answer);
+            boolean found = searchSolutions(board, 1) > 0;
+            if (found) {
+                // The search leaves the solution it found on the board, take it back off
+                while (trailDepth > 0) {
+                    deleteNumberFromMasks(board, backtrackTrail[--trailDepth]);
+                }
+            }
+            deleteNumberFromMasks(board, cell);
+            if (found) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Fisher-Yates shuffle of the values in place
+    private static void shuffle(int[] values, Random random) {
+        for (int i = values.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int temp = values[i];
+            values[i] = values[j];
+            values[j] = temp;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package TermProject;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Idle search contexts for one board size, shared by every thread using a solver.
+// Contexts sit in slots that are claimed and filled with compare-and-set, so borrowing one takes no lock and allocates nothing
+// once the pool is warm. Each thread starts looking at its own slot, so threads rarely touch the same slot.
+// A thread that finds every slot empty makes a new context, and a context given back to a full pool is left for the garbage collector
+final class SolverContextPool {
+
+    private final BoardGeometry geometry;
+    private final AtomicReferenceArray<SolverContext> slots;
+
+    // Pool with two slots per core, enough for every worker thread plus callers on other threads
+    SolverContextPool(BoardGeometry geometry) {
+        this(geometry, 2 * Runtime.getRuntime().availableProcessors());
+    }
+
+    SolverContextPool(BoardGeometry geometry, int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException(String.format("Pool capacity must be at least 1, found %d", capacity));
+        }
+        this.geometry = geometry;
+        this.slots = new AtomicReferenceArray<>(capacity);
+    }
+
+    // Returns an idle context, or a new one when none is idle
+    SolverContext acquire() {
+        int start = homeSlot();
+        for (int i = 0; i < slots.length(); i++) {
+            int slot = (start + i) % slots.length();
+            SolverContext context = slots.get(slot);
+            if (context != null && slots.compareAndSet(slot, context, null)) {
+                return context;
+            }
+        }
+        return new SolverContext(geometry);
+    }
+
+    // Puts a context back for the next caller
+    void release(SolverContext context) {
+        context.setCancelFlag(null);
+        context.clearBudget();
+        int start = homeSlot();
+        for (int i = 0; i < slots.length(); i++) {
+            int slot = (start + i) % slots.length();
+            if (slots.get(slot) == null && slots.compareAndSet(slot, null, context)) {
+                return;
+            }
+        }
+    }
+
+    // Returns the slot the current thread looks at first
+    private int homeSlot() {
+        return (int) (Thread.currentThread().getId() % slots.length());
+    }
+}
@@ -0,0 +1,147 @@
+package TermProject;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+// Flight recorder events for the phases of a solve: start board check, search, generation and solution check.
+// Each event is only created while a recording has it enabled, so a solve allocates nothing when no recording is running.
+// The thresholds keep fast phases out of a recording, override them in a .jfc file or with e.g.
+// -XX:StartFlightRecording:settings=default,TermProject.Search#threshold=0ms to record every search
+final class SolverEvents {
+
+    private static final EventType VALIDATION = EventType.getEventType(ValidationEvent.class);
+    private static final EventType SEARCH = EventType.getEventType(SearchEvent.class);
+    private static final EventType GENERATION = EventType.getEventType(GenerationEvent.class);
+    private static final EventType VERIFICATION = EventType.getEventType(VerificationEvent.class);
+
+    private SolverEvents() {
+    }
+
+    @Name("TermProject.Validation")
+    @Label("Start Board Check")
+    @Category({"Sudoku", "Solver"})
+    @Description("Check of a start board's size, numbers and duplicates before a search")
+    @Threshold("1 ms")
+    @StackTrace(false)
+    static final class ValidationEvent extends Event {
+        @Label("Puzzle Hash")
+        long puzzleHash;
+        @Label("Clue Count")
+        int clueCount;
+        @Label("Outcome")
+        String outcome;
+    }
+
+    @Name("TermProject.Search")
+    @Label("Search")
+    @Category({"Sudoku", "Solver"})
+    @Description("One solve or count by a search engine")
+    @Threshold("20 ms")
+    static final class SearchEvent extends Event {
+        @Label("Puzzle Hash")
+        long puzzleHash;
+        @Label("Clue Count")
+        int clueCount;
+        @Label("Engine")
+        String engine;
+        @Label("Limit")
+        long limit;
+        @Label("Node Count")
+        long nodeCount;
+        @Label("Backtrack Count")
+        long backtrackCount;
+        @Label("Max Depth")
+        int maxDepth;
+        @Label("Solution Count")
+        long solutionCount;
+        @Label("Outcome")
+        String outcome;
+    }
+
+    @Name("TermProject.Generation")
+    @Label("Puzzle Generation")
+    @Category({"Sudoku", "Generator"})
+    @Description("Generation of one puzzle, from drawing a full board to the last hole dug")
+    @Threshold("20 ms")
+    static final class GenerationEvent extends Event {
+        @Label("Puzzle Hash")
+        long puzzleHash;
+        @Label("Clue Count")
+        int clueCount;
+        @Label("Full Board Attempts")
+        int attempts;
+        @Label("Node Count")
+        long nodeCount;
+        @Label("Outcome")
+        String outcome;
+    }
+
+    @Name("TermProject.Verification")
+    @Label("Solution Check")
+    @Category({"Sudoku", "Solver"})
+    @Description("Check that a board is a complete valid solution")
+    @Threshold("1 ms")
+    @StackTrace(false)
+    static final class VerificationEvent extends Event {
+        @Label("Puzzle Hash")
+        long puzzleHash;
+        @Label("Clue Count")
+        int clueCount;
+        @Label("Outcome")
+        String outcome;
+    }
+
+    // True while a recording has the event enabled, checked before creating an event
+    static boolean validationEnabled() {
+        return VALIDATION.isEnabled();
+    }
+
+    static boolean searchEnabled() {
+        return SEARCH.isEnabled();
+    }
+
+    static boolean generationEnabled() {
+        return GENERATION.isEnabled();
+    }
+
+    static boolean verificationEnabled() {
+        return VERIFICATION.isEnabled();
+    }
+
+    // Returns a 64 bit FNV-1a hash of the numbers on the board in row order, the same puzzle always gets the same hash
+    static long puzzleHash(int[][] board) {
+        long hash = 0xcbf29ce484222325L;
+        for (int[] row : board) {
+            for (int num : row) {
+                hash = (hash ^ num) * 0x100000001b3L;
+            }
+        }
+        return hash;
+    }
+
+    // Same hash of a flat board, which lists the numbers in row order already
+    static long puzzleHash(int[] board) {
+        long hash = 0xcbf29ce484222325L;
+        for (int num : board) {
+            hash = (hash ^ num) * 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    // Returns the count of filled cells on the flat board
+    static int clueCount(int[] board) {
+        int clues = 0;
+        for (int num : board) {
+            if (num != 0) {
+                clues++;
+            }
+        }
+        return clues;
+    }
+}
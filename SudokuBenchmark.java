@@ -0,0 +1,154 @@
+package TermProject;
+
+import stdlib.StdOut;
+
+import java.util.Arrays;
+import java.util.Random;
+
+// Times the solver on generated puzzles of every board size to show how solve time scales with grid size
+public class SudokuBenchmark {
+
+    private static final int PUZZLES_PER_SIZE = 25;
+    private static final int WARMUP_ROUNDS = 3;
+    private static final double CLUE_FRACTION = 0.65; // Share of cells kept as clues, much sparser large boards have heavy-tailed solve times
+
+    public static void main(String[] args) {
+        int maxBoxSize = args.length > 0 ? Integer.parseInt(args[0]) : 6;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 403;
+        benchmarkGridScaling(maxBoxSize, new Random(seed));
+    }
+
+    // Prints median and mean solve and count times of every engine for box sizes 2 up to maxBoxSize
+    private static void benchmarkGridScaling(int maxBoxSize, Random rand) {
+        StdOut.println("board    cells  engine          solve median(us)  solve mean(us)  count median(us)  count mean(us)");
+        for (int boxSize = BoardGeometry.MIN_BOX_SIZE; boxSize <= maxBoxSize; boxSize++) {
+            int[][][] puzzles = new int[PUZZLES_PER_SIZE][][];
+            for (int i = 0; i < PUZZLES_PER_SIZE; i++) {
+                puzzles[i] = randomPuzzle(boxSize, CLUE_FRACTION, rand);
+            }
+
+            for (SudokuSolver.Engine engine : SudokuSolver.Engine.values()) {
+                SudokuSolver solver = new SudokuSolver(boxSize);
+                solver.setEngine(engine);
+
+                // Warm up the JIT on this size before measuring
+                for (int round = 0; round < WARMUP_ROUNDS; round++) {
+                    timeSolves(solver, puzzles);
+                    timeCounts(solver, puzzles);
+                }
+                long[] solveTimes = timeSolves(solver, puzzles);
+                long[] countTimes = timeCounts(solver, puzzles);
+
+                int boardSize = solver.getBoardSize();
+                StdOut.format("%-7s %6d  %-14s %17.1f %15.1f %17.1f %15.1f\n", boardSize + "x" + boardSize, boardSize * boardSize, engine,
+                        median(solveTimes) / 1e3, mean(solveTimes) / 1e3, median(countTimes) / 1e3, mean(countTimes) / 1e3);
+            }
+        }
+    }
+
+    // Returns the nanoseconds each solveInPlace took, solving copies so the puzzles can be reused
+    private static long[] timeSolves(SudokuSolver solver, int[][][] puzzles) {
+        long[] times = new long[puzzles.length];
+        for (int i = 0; i < puzzles.length; i++) {
+            int[][] board = copyBoard(puzzles[i]);
+            long start = System.nanoTime();
+            boolean solved = solver.solveInPlace(board);
+            times[i] = System.nanoTime() - start;
+            if (!solved) {
+                throw new IllegalStateException("Benchmark puzzle was not solved: " + solver.toSymbolString(puzzles[i]));
+            }
+        }
+        return times;
+    }
+
+    // Returns the nanoseconds each countSolutions took
+    private static long[] timeCounts(SudokuSolver solver, int[][][] puzzles) {
+        long[] times = new long[puzzles.length];
+        for (int i = 0; i < puzzles.length; i++) {
+            long start = System.nanoTime();
+            solver.countSolutions(puzzles[i]);
+            times[i] = System.nanoTime() - start;
+        }
+        return times;
+    }
+
+    // Returns a solvable puzzle made from a shuffled full board with only clueFraction of the cells kept
+    static int[][] randomPuzzle(int boxSize, double clueFraction, Random rand) {
+        int[][] board = randomSolution(boxSize, rand);
+        for (int[] row : board) {
+            for (int col = 0; col < row.length; col++) {
+                if (rand.nextDouble() >= clueFraction) {
+                    row[col] = 0;
+                }
+            }
+        }
+        return board;
+    }
+
+    // Returns a full valid board: the shifted pattern board with relabeled numbers and shuffled bands, stacks, rows and columns
+    static int[][] randomSolution(int boxSize, Random rand) {
+        int boardSize = boxSize * boxSize;
+        int[] numbers = shuffledLine(boardSize, 1, rand);
+        int[] rows = shuffledLines(boxSize, rand);
+        int[] cols = shuffledLines(boxSize, rand);
+        int[][] board = new int[boardSize][boardSize];
+        for (int row = 0; row < boardSize; row++) {
+            for (int col = 0; col < boardSize; col++) {
+                int r = rows[row];
+                int c = cols[col];
+                board[row][col] = numbers[((r % boxSize) * boxSize + r / boxSize + c) % boardSize];
+            }
+        }
+        return board;
+    }
+
+    // Returns an order of board lines that only moves whole bands and lines within a band, so a valid board stays valid
+    private static int[] shuffledLines(int boxSize, Random rand) {
+        int[] bands = shuffledLine(boxSize, 0, rand);
+        int[] lines = new int[boxSize * boxSize];
+        for (int band = 0; band < boxSize; band++) {
+            int[] inBand = shuffledLine(boxSize, 0, rand);
+            for (int i = 0; i < boxSize; i++) {
+                lines[band * boxSize + i] = bands[band] * boxSize + inBand[i];
+            }
+        }
+        return lines;
+    }
+
+    // Returns first, first + 1, ... first + length - 1 in random order
+    private static int[] shuffledLine(int length, int first, Random rand) {
+        int[] line = new int[length];
+        for (int i = 0; i < length; i++) {
+            line[i] = first + i;
+        }
+        for (int i = length - 1; i > 0; i--) {
+            int j = rand.nextInt(i + 1);
+            int temp = line[i];
+            line[i] = line[j];
+            line[j] = temp;
+        }
+        return line;
+    }
+
+    private static int[][] copyBoard(int[][] board) {
+        int[][] copy = new int[board.length][];
+        for (int row = 0; row < board.length; row++) {
+            copy[row] = board[row].clone();
+        }
+        return copy;
+    }
+
+    private static double median(long[] times) {
+        long[] sorted = times.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    private static double mean(long[] times) {
+        long total = 0;
+        for (long time : times) {
+            total += time;
+        }
+        return (double) total / times.length;
+    }
+}
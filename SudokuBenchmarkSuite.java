@@ -0,0 +1,405 @@
+package TermProject;
+
+import stdlib.StdOut;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+import com.sun.management.ThreadMXBean;
+
+// Throughput and allocation benchmarks for solving, counting, generating and checking solutions, over easy, medium, hard
+// and 17 clue corpora with every engine. Each benchmark runs warmup iterations and then timed iterations of a fixed length,
+// like a JMH run, and reports operations per second with their standard deviation, bytes allocated per operation and
+// garbage collections per iteration (the numbers JMH's -prof gc gives). Results can be saved as CSV and compared to an earlier run.
+// This is the quick runner, for numbers to keep or compare between releases use the JMH benchmarks in jmh/, see pom.xml.
+// Benchmarks all share one JVM, so the JIT profile of one skews the next. With --fork every benchmark runs in a JVM of its own,
+// started with the same JVM options, which makes --baseline comparisons meaningful at the cost of a JVM start per benchmark.
+// Usage: SudokuBenchmarkSuite [--warmup N] [--iterations N] [--time MS] [--fork] [--csv out.csv] [--baseline old.csv] [filter]
+public class SudokuBenchmarkSuite {
+
+    private static final int DEFAULT_WARMUP = 3;
+    private static final int DEFAULT_ITERATIONS = 5;
+    private static final int DEFAULT_ITERATION_MS = 500;
+    private static final int GENERATED_PUZZLES = 20; // Puzzles in each generated corpus
+    private static final int EASY_CLUES = 36; // Clues in an easy puzzle, generated puzzles get clues from their solution added back
+    private static final long SEED = 403;
+    private static final String HEADER = "benchmark  corpus     engine            ops/s        error   bytes/op   gc/iter";
+
+    // Puzzles that need long searches, each has one solution
+    private static final String[] HARD_PUZZLES = {
+            "1....7.9..3..2...8..96..5....53..9...1..8...26....4...3......1..4......7..7...3..", // AI Escargot
+            "8..........36......7..9.2...5...7.......457.....1...3...1....68..85...1..9....4..", // Arto Inkala 2012
+            "1.......2.9.4...5...6...7...5.9.3.......7.......85..4.7.....6...3...9.8...2.....1" // Easter Monster
+    };
+    // Puzzles with the fewest clues a 9x9 puzzle with one solution can have
+    private static final String[] SEVENTEEN_CLUE_PUZZLES = {
+            "4.....8.5.3..........7......2.....6.....8.4......1.......6.3.7.5..2.....1.4......",
+            "52...6.........7.13...........4..8..6......5...........418.........3..2...87.....",
+            "6.....8.3.4.7.................5.4.7.3..2.....1.6.......2.....5.....8.6......1....",
+            "48.3............71.2.......7.5....6....2..8.............1.76...3.....4......5....",
+            "....14....3....2...7..........9...3.6.1.............8.2.....1.4....5.6.....7.8...",
+            "000000010400000000020000000000050407008000300001090000300400200050100000000806000",
+            "000000010400000000020000000000050604008000300001090000300400200050100000000807000",
+            "000000012000035000000600070700000300000400800100000000000120000080000040050000600",
+            "000000012003600000000007000410020000000500300700000600280000040000300500000000000",
+            "000000012008030000000000040120500000000004700060000000507000300000620000000100000"
+    };
+
+    // One benchmark operation on the puzzle at index, returns something so the JIT can't drop the work
+    private interface Operation {
+        long run(int index);
+    }
+
+    private static volatile long sink; // Receives every operation result
+
+    private final int warmupIterations;
+    private final int measuredIterations;
+    private final long iterationNanos;
+    private final ThreadMXBean threadBean = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private final List<String[]> results = new ArrayList<>();
+    private final List<String> names = new ArrayList<>(); // Benchmarks found while listing
+    private boolean listing; // Set while runForked finds the benchmarks to fork, run then only records their names
+    private boolean exact; // Set in a forked JVM, the filter is then the whole name of one benchmark
+
+    public SudokuBenchmarkSuite(int warmupIterations, int measuredIterations, int iterationMillis) {
+        if (warmupIterations < 0 || measuredIterations < 1 || iterationMillis < 1) {
+            throw new IllegalArgumentException(String.format("Invalid benchmark settings: %d warmup, %d iterations, %d ms",
+                    warmupIterations, measuredIterations, iterationMillis));
+        }
+        this.warmupIterations = warmupIterations;
+        this.measuredIterations = measuredIterations;
+        this.iterationNanos = iterationMillis * 1_000_000L;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int warmup = DEFAULT_WARMUP;
+        int iterations = DEFAULT_ITERATIONS;
+        int iterationMillis = DEFAULT_ITERATION_MS;
+        Path csv = null;
+        Path baseline = null;
+        String filter = "";
+        boolean fork = false;
+        boolean exact = false;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--warmup":
+                    warmup = Integer.parseInt(args[++i]);
+                    break;
+                case "--iterations":
+                    iterations = Integer.parseInt(args[++i]);
+                    break;
+                case "--time":
+                    iterationMillis = Integer.parseInt(args[++i]);
+                    break;
+                case "--csv":
+                    csv = Paths.get(args[++i]);
+                    break;
+                case "--baseline":
+                    baseline = Paths.get(args[++i]);
+                    break;
+                case "--fork":
+                    fork = true;
+                    break;
+                case "--exact": // Passed to forked JVMs
+                    exact = true;
+                    break;
+                default:
+                    filter = args[i];
+            }
+        }
+
+        SudokuBenchmarkSuite suite = new SudokuBenchmarkSuite(warmup, iterations, iterationMillis);
+        suite.exact = exact;
+        if (fork) {
+            suite.runForked(filter);
+        } else {
+            suite.runAll(filter);
+        }
+        if (csv != null) {
+            suite.writeCsv(csv);
+        }
+        if (baseline != null) {
+            suite.compare(baseline);
+        }
+    }
+
+    // Runs every benchmark whose name, corpus and engine contain the filter, e.g. "solve/hard" or "DANCING_LINKS"
+    public void runAll(String filter) {
+        SudokuSolver reference = new SudokuSolver();
+        Map<String, int[][][]> corpora = buildCorpora(reference);
+        Map<String, int[][][]> solutions = new LinkedHashMap<>();
+        for (Map.Entry<String, int[][][]> corpus : corpora.entrySet()) {
+            int[][][] solved = new int[corpus.getValue().length][][];
+            for (int i = 0; i < solved.length; i++) {
+                solved[i] = copyBoard(corpus.getValue()[i]);
+                reference.solveInPlace(solved[i]);
+            }
+            solutions.put(corpus.getKey(), solved);
+        }
+
+        if (!listing) {
+            StdOut.println(HEADER);
+        }
+        for (SudokuSolver.Engine engine : SudokuSolver.Engine.values()) {
+            SudokuSolver solver = new SudokuSolver();
+            solver.setEngine(engine);
+            for (Map.Entry<String, int[][][]> corpus : corpora.entrySet()) {
+                int[][][] puzzles = corpus.getValue();
+                int[][] board = new int[SudokuSolver.BOARD_SIZE][SudokuSolver.BOARD_SIZE]; // Reused so solving measures no copy allocation
+                run(filter, "solve", corpus.getKey(), engine.name(), puzzles.length, index -> {
+                    for (int row = 0; row < board.length; row++) {
+                        System.arraycopy(puzzles[index][row], 0, board[row], 0, board.length);
+                    }
+                    return solver.solveInPlace(board) ? 1 : 0;
+                });
+                run(filter, "count", corpus.getKey(), engine.name(), puzzles.length, index -> solver.countSolutions(puzzles[index]));
+            }
+        }
+
+        // Checking solutions and generating don't depend on the engine
+        SolutionValidator validator = new SolutionValidator(SudokuSolver.BOX_SIZE);
+        for (Map.Entry<String, int[][][]> corpus : solutions.entrySet()) {
+            int[][][] solved = corpus.getValue();
+            run(filter, "validate", corpus.getKey(), "-", solved.length, index -> reference.isValidSolution(solved[index]) ? 1 : 0);
+            run(filter, "validate", corpus.getKey(), "bitmask", solved.length, index -> validator.firstInvalidUnit(solved[index]));
+            // One operation checks the whole corpus, packed back to back in a buffer or as an array of packed boards
+            ByteBuffer packed = ByteBuffer.allocate(solved.length * new PackedBoard(SudokuSolver.BOX_SIZE).getEncodedLength());
+            PackedBoard[] packedBoards = new PackedBoard[solved.length];
+            for (int i = 0; i < solved.length; i++) {
+                packedBoards[i] = PackedBoard.fromBoard(solved[i]);
+                packed.put(packedBoards[i].toBytes());
+            }
+            run(filter, "validate", corpus.getKey(), "packed-batch", 1, index -> {
+                packed.rewind();
+                return validator.validateAll(packed, solved.length, null);
+            });
+            run(filter, "validate", corpus.getKey(), "packed-array", 1, index -> validator.validateAll(packedBoards, null));
+        }
+        Random random = new Random(SEED);
+        run(filter, "generate", "random", "-", 1, index -> reference.generateRandomPuzzle(random).length);
+    }
+
+    // Runs every benchmark that matches the filter in a JVM of its own, with this JVM's options and class path, and keeps
+    // the results like runAll does
+    public void runForked(String filter) throws IOException, InterruptedException {
+        listing = true;
+        runAll(filter);
+        listing = false;
+
+        StdOut.println(HEADER);
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        List<String> jvmOptions = ManagementFactory.getRuntimeMXBean().getInputArguments();
+        Path csv = Files.createTempFile("sudoku-benchmark", ".csv");
+        try {
+            for (String name : names) {
+                List<String> command = new ArrayList<>();
+                command.add(java);
+                command.addAll(jvmOptions);
+                command.addAll(List.of("-cp", System.getProperty("java.class.path"), SudokuBenchmarkSuite.class.getName(),
+                        "--warmup", Integer.toString(warmupIterations), "--iterations", Integer.toString(measuredIterations),
+                        "--time", Long.toString(iterationNanos / 1_000_000), "--csv", csv.toString(), "--exact", name));
+                Process process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+                try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.US_ASCII))) {
+                    reader.readLine(); // Header
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        StdOut.println(line);
+                    }
+                }
+                int exitCode = process.waitFor();
+                if (exitCode != 0) {
+                    throw new IOException(String.format("Benchmark %s failed with exit code %d", name, exitCode));
+                }
+                results.addAll(readCsv(csv).values());
+            }
+        } finally {
+            Files.deleteIfExists(csv);
+        }
+    }
+
+    // Warms up and measures one benchmark, then prints and keeps its result
+    private void run(String filter, String benchmark, String corpus, String engine, int corpusSize, Operation operation) {
+        String name = benchmark + "/" + corpus + "/" + engine;
+        if (exact ? !name.equals(filter) : !name.contains(filter)) {
+            return;
+        }
+        if (listing) {
+            names.add(name);
+            return;
+        }
+        for (int i = 0; i < warmupIterations; i++) {
+            runIteration(operation, corpusSize);
+        }
+        double[] throughput = new double[measuredIterations];
+        long totalOperations = 0;
+        long totalBytes = 0;
+        long totalCollections = 0;
+        for (int i = 0; i < measuredIterations; i++) {
+            long[] iteration = runIteration(operation, corpusSize);
+            throughput[i] = iteration[0] * 1e9 / iteration[1];
+            totalOperations += iteration[0];
+            totalBytes += iteration[2];
+            totalCollections += iteration[3];
+        }
+
+        double mean = 0;
+        for (double value : throughput) {
+            mean += value / throughput.length;
+        }
+        double variance = 0;
+        for (double value : throughput) {
+            variance += (value - mean) * (value - mean) / Math.max(1, throughput.length - 1);
+        }
+        double error = Math.sqrt(variance);
+        double bytesPerOperation = totalBytes < 0 ? Double.NaN : (double) totalBytes / totalOperations;
+        double collectionsPerIteration = (double) totalCollections / measuredIterations;
+
+        StdOut.format("%-10s %-10s %-14s %12.1f %12.1f %10.1f %9.2f\n", benchmark, corpus, engine, mean, error, bytesPerOperation, collectionsPerIteration);
+        // Fixed locale so the CSV always uses '.' for decimals
+        results.add(new String[] { benchmark, corpus, engine, String.format(Locale.ROOT, "%.1f", mean), String.format(Locale.ROOT, "%.1f", error),
+                String.format(Locale.ROOT, "%.1f", bytesPerOperation), String.format(Locale.ROOT, "%.2f", collectionsPerIteration) });
+    }
+
+    // Runs the operation over the corpus until the iteration time is up. Returns operations, nanoseconds, bytes allocated
+    // on this thread (negative when the JVM can't measure it) and garbage collections
+    private long[] runIteration(Operation operation, int corpusSize) {
+        long threadId = Thread.currentThread().getId();
+        boolean measureBytes = threadBean.isThreadAllocatedMemorySupported() && threadBean.isThreadAllocatedMemoryEnabled();
+        long collectionsBefore = collectionCount();
+        long bytesBefore = measureBytes ? threadBean.getThreadAllocatedBytes(threadId) : 0;
+        long start = System.nanoTime();
+        long end = start + iterationNanos;
+        long operations = 0;
+        long result = 0;
+        long now;
+        do {
+            result += operation.run((int) (operations % corpusSize));
+            operations++;
+            now = System.nanoTime();
+        } while (now < end);
+        long bytes = measureBytes ? threadBean.getThreadAllocatedBytes(threadId) - bytesBefore : -1;
+        sink = result;
+        return new long[] { operations, now - start, bytes, collectionCount() - collectionsBefore };
+    }
+
+    private static long collectionCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, collector.getCollectionCount());
+        }
+        return count;
+    }
+
+    // Returns the corpora in print order. Generated corpora come from a fixed seed, so every run measures the same puzzles,
+    // here and in the JMH benchmarks
+    static Map<String, int[][][]> buildCorpora(SudokuSolver solver) {
+        Random random = new Random(SEED);
+        int[][][] easy = new int[GENERATED_PUZZLES][][];
+        int[][][] medium = new int[GENERATED_PUZZLES][][];
+        for (int i = 0; i < GENERATED_PUZZLES; i++) {
+            // Generated puzzles keep only the clues they need
+            medium[i] = solver.generateRandomPuzzle(random);
+            easy[i] = withExtraClues(solver, solver.generateRandomPuzzle(random), random);
+        }
+
+        Map<String, int[][][]> corpora = new LinkedHashMap<>();
+        corpora.put("easy", easy);
+        corpora.put("medium", medium);
+        corpora.put("hard", parsePuzzles(solver, HARD_PUZZLES));
+        corpora.put("17-clue", parsePuzzles(solver, SEVENTEEN_CLUE_PUZZLES));
+        return corpora;
+    }
+
+    // Returns the puzzle with cells from its solution filled in until it has EASY_CLUES clues
+    private static int[][] withExtraClues(SudokuSolver solver, int[][] puzzle, Random random) {
+        int[][] solution = copyBoard(puzzle);
+        solver.solveInPlace(solution);
+        int clues = 0;
+        for (int[] row : puzzle) {
+            for (int num : row) {
+                clues += num != 0 ? 1 : 0;
+            }
+        }
+        while (clues < EASY_CLUES) {
+            int row = random.nextInt(puzzle.length);
+            int col = random.nextInt(puzzle.length);
+            if (puzzle[row][col] == 0) {
+                puzzle[row][col] = solution[row][col];
+                clues++;
+            }
+        }
+        return puzzle;
+    }
+
+    private static int[][][] parsePuzzles(SudokuSolver solver, String[] lines) {
+        int[][][] puzzles = new int[lines.length][][];
+        for (int i = 0; i < lines.length; i++) {
+            puzzles[i] = solver.parseSymbolString(lines[i]);
+        }
+        return puzzles;
+    }
+
+    // Writes one line per benchmark, to keep with a release and compare against later
+    public void writeCsv(Path file) throws IOException {
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(file, StandardCharsets.US_ASCII))) {
+            writer.println("benchmark,corpus,engine,ops_per_s,error,bytes_per_op,gc_per_iteration");
+            for (String[] result : results) {
+                writer.println(String.join(",", result));
+            }
+        }
+    }
+
+    // Prints the change in throughput and allocation of every benchmark also found in a CSV from an earlier run
+    public void compare(Path baselineFile) throws IOException {
+        Map<String, String[]> baseline = readCsv(baselineFile);
+        StdOut.println();
+        StdOut.println("benchmark  corpus     engine         ops/s change   bytes/op before -> after");
+        for (String[] result : results) {
+            String[] before = baseline.get(result[0] + "/" + result[1] + "/" + result[2]);
+            if (before == null) {
+                continue;
+            }
+            double change = (Double.parseDouble(result[3]) / Double.parseDouble(before[3]) - 1) * 100;
+            StdOut.format("%-10s %-10s %-14s %+12.1f%%   %10s -> %s\n", result[0], result[1], result[2], change, before[5], result[5]);
+        }
+    }
+
+    // Returns the results in a CSV written by writeCsv, by benchmark/corpus/engine
+    private static Map<String, String[]> readCsv(Path file) throws IOException {
+        Map<String, String[]> rows = new LinkedHashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.US_ASCII)) {
+            reader.readLine(); // Header
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split(",");
+                if (fields.length == 7) {
+                    rows.put(fields[0] + "/" + fields[1] + "/" + fields[2], fields);
+                }
+            }
+        }
+        return rows;
+    }
+
+    private static int[][] copyBoard(int[][] board) {
+        int[][] copy = new int[board.length][];
+        for (int row = 0; row < board.length; row++) {
+            copy[row] = board[row].clone();
+        }
+        return copy;
+    }
+}
@@ -1,334 +1,407 @@
 package TermProject;
 
-import algs13.Stack; // Used for backtracking
-import java.util.HashSet; // Used for constraints
-
 import stdlib.StdOut;
 import stdlib.StdIn;
 
 // Used for random board generation
 import java.util.Random;
-import java.util.Collections;
 import java.util.Arrays;
+
+// Used for streaming solutions
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+// Used for cancelling a search from another thread
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Used for allocation tests
+import java.lang.management.ManagementFactory;
+import com.sun.management.ThreadMXBean;
+
+// Used for mapped file tests
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+// Used for flight recorder event tests
+import java.time.Duration;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+// Used for solve service tests
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
 import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 
 public class SudokuSolver {
 
-    public static final int BOX_SIZE = 3; // Length and width of the  box set
-    public static final int BOARD_SIZE = BOX_SIZE * BOX_SIZE; // Length and width of the board
-
-    private int[][] sudokuBoard;
-    private HashSet<Integer>[] rowSets;
-    private HashSet<Integer>[] columnSets;
-    private HashSet<Integer>[] boxSets;
-
-    // Public function that takes a puzzle and prints the solution
-    public void solvePuzzle(int[][] board) {
-        initializeHashSets(); // Initialize HashSets
-        checkIfValidStartBoard(board); // Checks if starting board is valid
-        solveBoard(board); // Solves the board if there is a solution
-        boolean isValid = checkIfValidSolution(board); // Returns true if the board is fully complete
-        if (isValid) {
-            printSudokuBoard(board); // Prints solution to the puzzle
-        } else {
-            StdOut.println("Invalid Puzzle: no solution can be found");
-        }
+    public static final int BOX_SIZE = 3; // Default length and width of the  box set
+    public static final int BOARD_SIZE = BOX_SIZE * BOX_SIZE; // Default length and width of the board
+    public static final long UNLIMITED = Long.MAX_VALUE; // Count limit for counting every solution
+    // Search strategies for solving and counting
+    public enum Engine {
+        BACKTRACKING, // Backtracking over the most constrained cell with constraint masks
+        DANCING_LINKS // Exact cover search with Algorithm X and dancing links
     }
 
-    // Returns box index for boxSets from row and column index
-    private int getBoxIndex(int row, int col) {
-        return ((row / BOX_SIZE) * BOX_SIZE) + (col / BOX_SIZE);
+    // Symbols for numbers 1 to 61 when reading or writing one character per cell, '0' or '.' is an empty cell
+    static final String SYMBOLS = "123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz";
+
+    private final BoardGeometry geometry; // Sizes and lookup tables for the board this solver works on
+    private final int boxSize; // Length and width of the box set
+    private final int boardSize; // Length and width of the board
+    private final int cellCount; // Number of cells on the board
+    private final int[] cellRow; // Row of every flat cell index
+    private final int[] cellCol; // Column of every flat cell index
+
+    // Search state lives in contexts borrowed for each call, so one solver can be shared by any number of threads
+    private final SolverContextPool contexts;
+    private volatile Engine engine = Engine.BACKTRACKING; // Search strategy used for solving and counting
+    private volatile SolutionCache solutionCache; // Null unless turned on with setSolutionCache
+    private volatile BoardCanonicalizer canonicalizer; // Built the first time a cache is set
+    private final ThreadLocal<DifficultyGrader> graders; // Graders aren't thread safe, each thread grades with its own
+
+    // Solver for the standard 9x9 board
+    public SudokuSolver() {
+        this(BOX_SIZE);
     }
 
-    // Returns 2d array index from flatten index
-    private int[] getDeepIndex(int index) {
-        int row = index / BOARD_SIZE;
-        int col = index % BOARD_SIZE;
-        return new int[] { row, col };
+    // Solver for a board of boxSize x boxSize boxes, e.g. 4 for 16x16 or 5 for 25x25
+    public SudokuSolver(int boxSize) {
+        this.geometry = BoardGeometry.of(boxSize);
+        this.boxSize = geometry.boxSize;
+        this.boardSize = geometry.boardSize;
+        this.cellCount = geometry.cellCount;
+        this.cellRow = geometry.cellRow;
+        this.cellCol = geometry.cellCol;
+        this.contexts = new SolverContextPool(geometry);
+        this.graders = ThreadLocal.withInitial(() -> new DifficultyGrader(this.boxSize));
     }
 
-    // Returns array index from 2d array position
-    private int getFlattenIndex(int row, int col) {
-        return row * BOARD_SIZE + col;
+    // Returns the length and width of the box set
+    public int getBoxSize() {
+        return boxSize;
     }
 
-    // Declare and initialize Hash Sets for constraints
-    private void initializeHashSets() {
-        // Initialize hash sets for constraints
-        rowSets = new HashSet[BOARD_SIZE];
-        columnSets = new HashSet[BOARD_SIZE];
-        boxSets = new HashSet[BOARD_SIZE];
+    // Returns the length and width of the board
+    public int getBoardSize() {
+        return boardSize;
     }
 
-    // Function that empties/clears HashSets
-    private void emptyHashSets() {
-        // Make 9 new Hash sets for each constraint
-        for (int i = 0; i < BOARD_SIZE; i++) {
-            rowSets[i] = new HashSet<>();
-            columnSets[i] = new HashSet<>();
-            boxSets[i] = new HashSet<>();
-        }
+    // Returns the search strategy used for solving and counting
+    public Engine getEngine() {
+        return engine;
     }
 
-    // Returns valid answer for sudokuBoard[row, col]
-    private int findAnswer(int row, int col, int startNum) {
-        // Start loop at startNum for optimization while backtracking. startNum usually = 0 unless backtracking
-        for (int i = startNum + 1; i <= BOARD_SIZE; i++) {
-            if (!rowSets[row].contains(i) && !columnSets[col].contains(i) && !boxSets[getBoxIndex(row, col)].contains(i)) {
-                //StdOut.format("Placing: %d at sudokuBoard[%d, %d]\n", i, row, col);
-                return i;
-            }
+    // Chooses the search strategy used for solving and counting
+    public void setEngine(Engine engine) {
+        if (engine == null) {
+            throw new IllegalArgumentException("Engine must not be null");
         }
-        //StdOut.format("No valid answer for sudokuBoard[%d, %d] starting from number: %d\n", row, col, startNum);
-        return 0; // Need to check for zero because that means no answer was found
+        this.engine = engine;
     }
 
-    // Returns position of next "zero"/empty cell in sudokuBoard
-    private int[] findNextZero(int[][] board, int startRow, int startCol) {
-        for (int row = startRow; row < BOARD_SIZE; row++) {
-            // Starts at startCol only on the first startRow iteration, otherwise it goes back to 0
-            if (row != startRow) {
-                startCol = 0;
-            }
-            for (int col = startCol; col < BOARD_SIZE; col++) {
-                if (board[row][col] == 0) {
-                    //StdOut.format("Next empty cell found at: sudokuBoard[%d, %d]\n", row, col);
-                    return new int[] {row, col};
-                }
-            }
+    // Puts a cache of solutions in front of solveInPlace and solvePuzzle, which may be shared with other solvers of the same size.
+    // A puzzle that is a relabeled, rotated or reordered copy of a cached one is answered by mapping the cached solution back.
+    // When the puzzle has several solutions the one given back may differ from the one a search would find. Null turns the cache off
+    public void setSolutionCache(SolutionCache solutionCache) {
+        if (solutionCache != null && canonicalizer == null) {
+            canonicalizer = new BoardCanonicalizer(boxSize);
         }
-        //StdOut.println("No more empty cells");
-        return null; // CHECK FOR NULL AFTER RETURN
+        this.solutionCache = solutionCache;
     }
 
-    // Function returns random cell from list of indices. Also removes the index from the list
-    private int findRandomCell(List<Integer> indices) {
-        Random rand = new Random();
+    // Returns the cache in front of solveInPlace, or null when there is none
+    public SolutionCache getSolutionCache() {
+        return solutionCache;
+    }
 
-        // Gets a random index from the shuffled list
-        int index = rand.nextInt(indices.size());
-        int result = indices.get(index);
+    // Flat boards are int[cellCount] arrays holding cell (row, col) at index row * boardSize + col. Every search and check runs on
+    // flat boards, the int[][] methods copy their board in and out around them
 
-        // Remove the index from the list // Linear time removal for shifting to the left
-        indices.remove(index);
+    // Returns a new flat board with the numbers of the int[][] board
+    public int[] toFlatBoard(int[][] board) {
+        if (board.length != boardSize) {
+            throw new IllegalArgumentException(String.format("Sudoku board must have %d rows, found %d rows", boardSize, board.length));
+        }
+        int[] cells = new int[cellCount];
+        for (int row = 0; row < boardSize; row++) {
+            if (board[row].length != boardSize) {
+                throw new IllegalArgumentException(String.format("Sudoku board must have %d columns, found %d columns at row [%d]", boardSize, board[row].length, row));
+            }
+            System.arraycopy(board[row], 0, cells, row * boardSize, boardSize);
+        }
+        return cells;
+    }
 
-        return result;
+    // Returns a new int[][] board with the numbers of the flat board
+    public int[][] fromFlatBoard(int[] cells) {
+        if (cells.length != cellCount) {
+            throw new IllegalArgumentException(String.format("Sudoku board must have %d cells, found %d cells", cellCount, cells.length));
+        }
+        int[][] board = new int[boardSize][boardSize];
+        copyFlatBoard(cells, board);
+        return board;
     }
 
-    // Function that returns a random possible answer for the index or it returns 0 if there is no possible answer
-    private int findRandomAnswer(int row, int col) {
-        Random rand = new Random();
+    // Copies a flat board into an int[][] board of the same size
+    private void copyFlatBoard(int[] cells, int[][] board) {
+        for (int row = 0; row < boardSize; row++) {
+            System.arraycopy(cells, row * boardSize, board[row], 0, boardSize);
+        }
+    }
 
-        // Make a list with all the possible answers for the cell
-        List<Integer> possibleAnswers = new ArrayList<>();
-        for (int i = 1; i <= BOARD_SIZE; i++) {
-            if (!rowSets[row].contains(i) && !columnSets[col].contains(i) && !boxSets[getBoxIndex(row, col)].contains(i)) {
-                possibleAnswers.add(i);
-            }
+    // Public function that takes a puzzle and prints the solution
+    public void solvePuzzle(int[][] board) {
+        boolean isValid = solveInPlace(board); // Returns true if the board is fully complete
+        if (isValid) {
+            printSudokuBoard(board); // Prints solution to the puzzle
+        } else {
+            StdOut.println("Invalid Puzzle: no solution can be found");
         }
-        if (possibleAnswers.isEmpty()) return 0;
-        return possibleAnswers.get(rand.nextInt(possibleAnswers.size()));
     }
 
-    // Returns position of next index with the minimum remaining values for answers or returns the index with no answers, so it backtracks
-    private int[] findNextZeroMRV(int[][] board) {
-        int minimumRemainingValue = BOARD_SIZE + 1; // Always larger than the maximum possible answers
-        int[] mrvIndex = null;
-        for (int row = 0; row < BOARD_SIZE; row++) {
-            for (int col = 0; col < BOARD_SIZE; col++) {
-                if (board[row][col] == 0) {
-                    int answerCount = mrvHelper(row, col);
-                    if (answerCount == 0) {
-                        // Return index of board where there is no answer, so it instantly backtracks
-                        return new int[] { row, col };
-                    }
-                    if (answerCount < minimumRemainingValue) {
-                        minimumRemainingValue = answerCount;
-                        mrvIndex = new int[] {row, col};
-                    }
-                }
+    // Public function that solves the puzzle in place and returns true if the board now holds a valid solution
+    public boolean solveInPlace(int[][] board) {
+        SolutionCache cache = solutionCache;
+        SolverContext context = contexts.acquire();
+        try {
+            if (cache == null) {
+                return context.solveInPlace(board, engine);
+            }
+            context.checkIfValidStartBoard(board);
+            BoardCanonicalizer.Canonical canonical = canonicalizer.canonicalize(board); // Null when the board is too symmetric to key
+            byte[] solution = canonical == null ? null : cache.get(canonical.key);
+            if (solution != null) {
+                canonical.fromCanonical(solution, board);
+                return true;
             }
+            context.solveBoard(board, engine);
+            boolean solved = context.checkIfValidSolution(board);
+            if (solved && canonical != null) {
+                cache.put(canonical.key, canonical.toCanonical(board));
+            }
+            return solved;
+        } finally {
+            contexts.release(context);
         }
-        // Returns null when there is no more empty indices or cells
-        return mrvIndex;
     }
 
-    // Helper function to return the count of possible answers for an index
-    private int mrvHelper(int row, int col) {
-        int count = 0;
-        for (int i = 1; i <= BOARD_SIZE; i++) {
-            if (!rowSets[row].contains(i) && !columnSets[col].contains(i) && !boxSets[getBoxIndex(row, col)].contains(i)) {
-                count++;
+    // Public function that solves a flat puzzle in place and returns true if the board now holds a valid solution
+    public boolean solveInPlace(int[] board) {
+        if (solutionCache != null) {
+            // The cache keys on the int[][] layout
+            int[][] rows = fromFlatBoard(board);
+            boolean solved = solveInPlace(rows);
+            for (int row = 0; row < boardSize; row++) {
+                System.arraycopy(rows[row], 0, board, row * boardSize, boardSize);
             }
+            return solved;
+        }
+        SolverContext context = contexts.acquire();
+        try {
+            return context.solveInPlace(board, engine);
+        } finally {
+            contexts.release(context);
         }
-        return count;
     }
 
-    // Deletes number at sudokuBoard[row, col] from sets and resets board to 0
-    private void deleteNumberFromSets(int[][] board, int row, int col) {
-        // Get value at position
-        int delNum = board[row][col];
-
-        if (delNum > 0) {
-            // Remove value from sets
-            rowSets[row].remove(delNum);
-            columnSets[col].remove(delNum);
-            boxSets[getBoxIndex(row, col)].remove(delNum);
-
-            // Reset value at position
-            board[row][col] = 0;
+    // Public function that returns the count of solutions for the puzzle capped at 2, the puzzle itself is left unchanged
+    public int countSolutions(int[][] board) {
+        return (int) countSolutions(board, 2);
+    }
 
-            //StdOut.format("Removed: %d from sudokuBoard[%d, %d]\n", delNum, row, col);
+    // Public function that returns the count of solutions for the puzzle up to limit, or every solution with UNLIMITED. The puzzle is left unchanged
+    public long countSolutions(int[][] board, long limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException(String.format("Count limit must be at least 1, found %d", limit));
+        }
+        SolverContext context = contexts.acquire();
+        try {
+            context.checkIfValidStartBoard(board);
+            return context.countSolutionsOfCopy(board, limit, engine);
+        } finally {
+            contexts.release(context);
         }
     }
 
-    // Function that solves the board using backtracking with a stack
-    private void solveBoard(int[][] board) {
-        // Reset stack
-        Stack<int[]> backtrackStack = new Stack<>();
+    // Public function that returns the count of solutions for a flat puzzle up to limit, or every solution with UNLIMITED. The puzzle is left unchanged
+    public long countSolutions(int[] board, long limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException(String.format("Count limit must be at least 1, found %d", limit));
+        }
+        SolverContext context = contexts.acquire();
+        try {
+            context.checkIfValidStartBoard(board);
+            return context.countSolutionsOfCopy(board, limit, engine);
+        } finally {
+            contexts.release(context);
+        }
+    }
 
-        // StdOut.println("Starting Puzzle");
+    // Public function that solves the puzzle in place like solveInPlace, and also returns the counters of the search
+    public SolveResult solveWithStats(int[][] board) {
+        return solveWithStats(board, SolveOptions.NONE);
+    }
 
-        // Initialize local position and starting number outside of while loop
-        int[] rowCol = findNextZero(board,0, 0);
-        int startingNumber = 0;
-        int row;
-        int col;
+    // Public function that solves the puzzle in place within the timeout, node budget and cancel token of the options.
+    // A search stopped by them leaves the board as it was given and returns BUDGET_EXCEEDED or CANCELLED
+    public SolveResult solveWithStats(int[][] board, SolveOptions options) {
+        int[] cells = toFlatBoard(board);
+        SolveResult result = solveWithStats(cells, options);
+        copyFlatBoard(cells, board);
+        return result;
+    }
 
-        while (rowCol != null) {
-            row = rowCol[0];
-            col = rowCol[1];
-            // Find answer for empty cell
-            int answer = findAnswer(row, col, startingNumber);
+    // Public function that solves a flat puzzle in place within the options like solveWithStats
+    public SolveResult solveWithStats(int[] board, SolveOptions options) {
+        long start = System.nanoTime(); // The timeout includes waiting for a context and checking the board
+        SolverContext context = contexts.acquire();
+        try {
+            context.setCancelFlag(options.getCancelToken());
+            context.setBudget(options, start);
+            context.checkIfValidStartBoard(board);
+            long solutionCount = context.countSolutionsUpTo(board, 1, engine);
+            SolveResult.Status stopped = stoppedStatus(context, options, solutionCount, 1);
+            if (stopped != null) {
+                context.undoSearch(board, engine);
+                return new SolveResult(stopped, 0, context.lastStats());
+            }
+            boolean solved = context.checkIfValidSolution(board);
+            return new SolveResult(solved ? SolveResult.Status.SOLVED : SolveResult.Status.NO_SOLUTION, solved ? 1 : 0, context.lastStats());
+        } finally {
+            contexts.release(context); // Also clears the cancel token and budget
+        }
+    }
 
-            if (answer > 0) {
-                // Update solution to the board
-                board[row][col] = answer;
-                // Add solution to sets
-                rowSets[row].add(answer);
-                columnSets[col].add(answer);
-                boxSets[getBoxIndex(row, col)].add(answer);
-                // Push solution onto the stack
-                backtrackStack.push(new int[] {row, col});
+    // Public function that counts solutions like countSolutions, and also returns the counters of the search
+    public SolveResult countWithStats(int[][] board, long limit) {
+        return countWithStats(board, limit, SolveOptions.NONE);
+    }
 
-                // Update rowCol to next empty cell position and reset startingNumber to 0
-                rowCol  = findNextZero(board, row, col);
-                startingNumber = 0;
-            }
-            else if (answer == 0) {
-                // findAnswer didn't find a possible solution
-                // Update board to 0 in case there was an answer there before
-                if (board[row][col] != 0) {
-                    deleteNumberFromSets(board, row, col);
-                }
+    // Public function that counts solutions within the timeout, node budget and cancel token of the options.
+    // A count stopped by them returns BUDGET_EXCEEDED or CANCELLED with the solutions found so far
+    public SolveResult countWithStats(int[][] board, long limit, SolveOptions options) {
+        return countWithStats(toFlatBoard(board), limit, options);
+    }
 
-                // Check if the stack is not empty // If empty, means it didn't find a solution the puzzle and breaks
-                if (!backtrackStack.isEmpty()) {
-                    // Get last solution position
-                    rowCol = backtrackStack.pop();
-                    // Update startingNumber to last answer
-                    startingNumber = board[rowCol[0]][rowCol[1]];
-                    // Remove last solution from sets
-                    deleteNumberFromSets(board, rowCol[0], rowCol[1]);
-                }
-                else {
-                    break;
-                }
-            }
+    // Public function that counts the solutions of a flat puzzle within the options like countWithStats, the puzzle is left unchanged
+    public SolveResult countWithStats(int[] board, long limit, SolveOptions options) {
+        if (limit < 1) {
+            throw new IllegalArgumentException(String.format("Count limit must be at least 1, found %d", limit));
+        }
+        long start = System.nanoTime();
+        SolverContext context = contexts.acquire();
+        try {
+            context.setCancelFlag(options.getCancelToken());
+            context.setBudget(options, start);
+            context.checkIfValidStartBoard(board);
+            long solutionCount = context.countSolutionsOfCopy(board, limit, engine);
+            SolveResult.Status stopped = stoppedStatus(context, options, solutionCount, limit);
+            return new SolveResult(stopped != null ? stopped : SolveResult.Status.COUNTED, solutionCount, context.lastStats());
+        } finally {
+            contexts.release(context);
         }
     }
 
-    // Checks if starting board is valid and follows the constraints
-    private void checkIfValidStartBoard(int[][] board) {
-        // Check for invalid row length
-        if (board.length != BOARD_SIZE) {
-            throw new IllegalArgumentException(String.format("Sudoku board must have %d rows, found %d rows", BOARD_SIZE, board.length));
+    // Returns why the last search stopped early, or null when it reached its limit or searched everything
+    private static SolveResult.Status stoppedStatus(SolverContext context, SolveOptions options, long solutionCount, long limit) {
+        if (solutionCount >= limit) {
+            return null;
+        }
+        if (context.budgetExceeded()) {
+            return SolveResult.Status.BUDGET_EXCEEDED;
+        }
+        if (options.getCancelToken() != null && options.getCancelToken().get()) {
+            return SolveResult.Status.CANCELLED;
         }
+        return null;
+    }
 
-        // Clear hashsets
-        emptyHashSets();
+    // Public function that returns the solutions of the puzzle as a lazy stream, the puzzle itself is left unchanged.
+    // Each solution is searched for only when the stream asks for it, so limit and findFirst stop the search early.
+    // A sequential stream gives them in search order, a parallel stream splits the search tree across the common pool in no set order. Always uses the backtracking search, which can pause between solutions
+    public Stream<int[][]> solutions(int[][] board) {
+        checkIfValidStartBoard(board); // A bad board throws here rather than when the stream runs
+        return StreamSupport.stream(new SolutionSpliterator(geometry, toFlatBoard(board)), false);
+    }
 
-        for (int row = 0; row < BOARD_SIZE; row++) {
-            // Check for invalid column length
-            if (board[row].length != BOARD_SIZE) {
-                throw new IllegalArgumentException(String.format("Sudoku board must have %d columns, found %d columns at row [%d]", BOARD_SIZE, board[row].length, row));
-            }
-            for (int col = 0; col < BOARD_SIZE; col++) {
-                int num = board[row][col];
-                // Check for invalid number
-                if (num < 0 || num > BOARD_SIZE) {
-                    throw new IllegalArgumentException(String.format("Invalid number %d at [%d, %d]", num, row, col));
-                }
-                // Check if the number is a duplicate in the sets
-                if (rowSets[row].contains(num) || columnSets[col].contains(num) || boxSets[getBoxIndex(row, col)].contains(num)) {
-                    throw new IllegalArgumentException(String.format("Duplicate number %d at [%d, %d]", num, row, col));
-                }
-                // Add to hashsets if num != 0
-                if (num != 0) {
-                    rowSets[row].add(num);
-                    columnSets[col].add(num);
-                    boxSets[getBoxIndex(row, col)].add(num);
-                }
+    // Public function that returns true if the board is a complete valid solution
+    public boolean isValidSolution(int[][] board) {
+        if (board.length != boardSize) {
+            return false;
+        }
+        for (int[] row : board) {
+            if (row.length != boardSize) {
+                return false;
             }
         }
+        SolverContext context = contexts.acquire();
+        try {
+            return context.checkIfValidSolution(board);
+        } finally {
+            contexts.release(context);
+        }
     }
 
-    // Checks if final board is a valid solution
-    private Boolean checkIfValidSolution(int[][] board) {
-        // Clear hash sets
-        emptyHashSets();
-
-        for (int row = 0; row < BOARD_SIZE; row++) {
-            for (int col = 0; col < BOARD_SIZE; col++) {
-                int num = board[row][col];
-
-                // Check for empty cell or no answer
-                if (num == 0) {
-                    //StdOut.format("Empty cell found at [%d, %d]\n", row, col);
-                    return false;
-                }
-                // Check if the number is already in the sets
-                if (rowSets[row].contains(num) || columnSets[col].contains(num) || boxSets[getBoxIndex(row, col)].contains(num)) {
-                    //StdOut.format("Answer %d already in sets at [%d, %d]\n", num, row, col);
-                    return false;
-                }
-
-                // Add the number to the sets
-                rowSets[row].add(num);
-                columnSets[col].add(num);
-                boxSets[getBoxIndex(row, col)].add(num);
-            }
+    // Public function that returns true if the flat board is a complete valid solution
+    public boolean isValidSolution(int[] board) {
+        SolverContext context = contexts.acquire();
+        try {
+            return context.checkIfValidSolution(board);
+        } finally {
+            contexts.release(context);
         }
+    }
 
-        // Checks all the sets to make sure 1-9 is every row, column, and box
-        for (int i = 0; i < BOARD_SIZE; i++) {
-            for (int ans = 1; ans <= BOARD_SIZE; ans++) {
-                if (!rowSets[i].contains(ans)) {
-                    //StdOut.format("Answer %d was not found in rowSet[%d]\n", ans, i);
-                    return false;
-                }
-                if (!columnSets[i].contains(ans)) {
-                    //StdOut.format("Answer %d was not found in columnSet[%d]\n", ans, i);
-                    return false;
-                }
-                if (!boxSets[i].contains(ans)) {
-                    //StdOut.format("Answer %d was not found in boxSet[%d]\n", ans, i);
-                    return false;
-                }
-            }
+    // Checks if starting board is valid and follows the constraints
+    private void checkIfValidStartBoard(int[][] board) {
+        SolverContext context = contexts.acquire();
+        try {
+            context.checkIfValidStartBoard(board);
+        } finally {
+            contexts.release(context);
         }
-        return true;
+    }
+
+    // Borrows a context for a caller that runs several steps on one search state, give it back with releaseContext
+    SolverContext acquireContext() {
+        return contexts.acquire();
+    }
+
+    // Gives back a context from acquireContext, it must not be used afterwards
+    void releaseContext(SolverContext context) {
+        contexts.release(context);
     }
 
     // Function that parses custom string input and returns a 2d int
     private int[][] parseCustomBoard(String[][] input) {
-        int[][] tempBoard = new int[BOARD_SIZE][BOARD_SIZE];
-        for (int row = 0; row < BOARD_SIZE; row++) {
-            for (int col = 0; col < BOARD_SIZE; col++) {
+        int[][] tempBoard = new int[boardSize][boardSize];
+        for (int row = 0; row < boardSize; row++) {
+            for (int col = 0; col < boardSize; col++) {
                 try {
-                    int num = Integer.parseInt(input[row][col]);
+                    String cell = input[row][col];
+                    // A single letter or '.' is a symbol, anything else is a possibly multi-digit number
+                    int num = cell.length() == 1 && !Character.isDigit(cell.charAt(0)) ? parseSymbol(cell.charAt(0)) : Integer.parseInt(cell);
                     tempBoard[row][col] = num;
                 } catch (NumberFormatException e) {
                     throw new NumberFormatException(
@@ -341,181 +414,117 @@ public class SudokuSolver {
     }
 
 
+    // Returns the number for a symbol, '0' or '.' is an empty cell and boards larger than 9x9 continue with A-Z then a-z
+    private int parseSymbol(char symbol) {
+        if (symbol == '0' || symbol == '.') {
+            return 0;
+        }
+        int num = SYMBOLS.indexOf(symbol) + 1;
+        if (num == 0 || num > boardSize) {
+            throw new NumberFormatException(String.format("Invalid symbol %c for a %dx%d board", symbol, boardSize, boardSize));
+        }
+        return num;
+    }
+
+    // Returns the symbol for a number, empty cells are '0' on boards up to 9x9 and '.' on larger boards
+    private char numberToSymbol(int num) {
+        if (num == 0) {
+            return boardSize <= 9 ? '0' : '.';
+        }
+        return SYMBOLS.charAt(num - 1);
+    }
+
+    // Function that parses one line per row. A row is either one symbol per cell or cells separated by whitespace for multi-digit numbers
+    public int[][] parseBoardLines(String[] lines) {
+        if (lines.length != boardSize) {
+            throw new IllegalArgumentException(String.format("Sudoku board must have %d rows, found %d rows", boardSize, lines.length));
+        }
+        String[][] stringBoard = new String[boardSize][];
+        for (int row = 0; row < boardSize; row++) {
+            String line = lines[row].trim();
+            stringBoard[row] = line.matches(".*\\s.*") ? line.split("\\s+") : line.split("");
+            if (stringBoard[row].length != boardSize) {
+                throw new IllegalArgumentException(String.format("Sudoku board must have %d columns, found %d columns at row [%d]", boardSize, stringBoard[row].length, row));
+            }
+        }
+        return parseCustomBoard(stringBoard);
+    }
+
     // Function that takes custom user puzzle from input
     public int[][] createUserSudokuPuzzle() {
         StdOut.println("For copy and paste help:");
-        StdOut.println(
-                "000000000\n000000000\n000000000\n000000000\n000000000\n000000000\n000000000\n000000000\n000000000");
+        String emptyRow = "0".repeat(boardSize);
+        StdOut.println((emptyRow + "\n").repeat(boardSize - 1) + emptyRow);
 
         StdOut.println("Please enter a sudoku puzzle: ");
-        String[][] stringBoard = new String[BOARD_SIZE][BOARD_SIZE];
-        for (int row = 0; row < BOARD_SIZE; row++) {
-            String[] input = StdIn.readLine().trim().split("");
-            for (int col = 0; col < input.length; col++) {
-                stringBoard[row][col] = input[col];
-                //StdOut.format("%s", input[col]);
-            }
+        String[] lines = new String[boardSize];
+        for (int row = 0; row < boardSize; row++) {
+            lines[row] = StdIn.readLine();
+            //StdOut.format("%s", lines[row]);
             StdOut.println();
         }
-        return parseCustomBoard(stringBoard);
+        return parseBoardLines(lines);
     }
 
-    // Print full sudokuBoard
+    // Print full sudokuBoard, numbers are padded so multi-digit boards stay lined up
     public void printSudokuBoard(int[][] board) {
+        String cellFormat = "%" + String.valueOf(boardSize).length() + "d ";
         StdOut.println("Here's the sudoku board: ");
         for (int i = 0; i < board.length; i++) {
             for (int j = 0; j < board[i].length; j++) {
-                StdOut.format("%d ", board[i][j]);
+                StdOut.format(cellFormat, board[i][j]);
             }
             StdOut.println();
         }
     }
 
-    // Function returns the count of unique solutions for the puzzle, capped at 2
-    private int countUniqueSolutions(int[][] board) {
-        // Reset stack
-        Stack<int[]> backtrackStack = new Stack<>();
-
-        // Initialize local position and starting number outside of while loop
-        int[] rowCol = findNextZeroMRV(board);
-        int startingNumber = 0;
-        int solutionCount = 0;
-        int row;
-        int col;
-
-        while (rowCol != null) {
-            row = rowCol[0];
-            col = rowCol[1];
-            // Find answer for empty cell
-            int answer = findAnswer(row, col, startingNumber);
-
-            if (answer > 0) {
-                // Update solution to the board
-                board[row][col] = answer;
-                // Add solution to sets
-                rowSets[row].add(answer);
-                columnSets[col].add(answer);
-                boxSets[getBoxIndex(row, col)].add(answer);
-                // Push solution onto the stack
-                backtrackStack.push(new int[] {row, col});
-
-                // Update rowCol to next mrv cell position and reset startingNumber to 0
-                rowCol  = findNextZeroMRV(board);
-                startingNumber = 0;
-
-                // Check if puzzle is solved
-                if (rowCol == null) {
-                    solutionCount++;
-                    //StdOut.format("Solution found: %d\n", solutionCount);
-                    if (solutionCount > 1) {
-                        return solutionCount;
-                    }
-                    // Backtrack and search for another solution
-                    rowCol = backtrackStack.pop();
-                    row = rowCol[0];
-                    col = rowCol[1];
-                    startingNumber = board[row][col];
-                    deleteNumberFromSets(board, row, col);
-                }
-            }
-            else if (answer == 0) {
-                // findAnswer didn't find a possible solution
-                // Update board to 0 in case there was an answer there before
-                deleteNumberFromSets(board, row, col);
-
-                //StdOut.format("Did not find answer at [%d, %d]\n", row, col);
-
-                if (!backtrackStack.isEmpty()) {
-                    // Get last solution position
-                    rowCol = backtrackStack.pop();
-                    // Update startingNumber to last answer
-                    startingNumber = board[rowCol[0]][rowCol[1]];
-                    // Remove last solution from sets
-                    deleteNumberFromSets(board, rowCol[0], rowCol[1]);
-                } else {
-                    //StdOut.println("Break");
-                    break;
-                }
+    // Returns the board as one symbol per cell in row order, the same format parseBoardLines reads per row
+    public String toSymbolString(int[][] board) {
+        StringBuilder result = new StringBuilder(cellCount);
+        for (int row = 0; row < boardSize; row++) {
+            for (int col = 0; col < boardSize; col++) {
+                result.append(numberToSymbol(board[row][col]));
             }
         }
-        return solutionCount;
+        return result.toString();
+    }
+
+    // Returns a new board read from one symbol per cell in row order, e.g. an 81 character line for 9x9
+    public int[][] parseSymbolString(CharSequence symbols) {
+        int[][] board = new int[boardSize][boardSize];
+        readSymbols(symbols, board);
+        return board;
+    }
+
+    // Reads one symbol per cell in row order into an existing board, so a caller reading many puzzles can reuse one board
+    public void readSymbols(CharSequence symbols, int[][] board) {
+        if (symbols.length() != cellCount) {
+            throw new IllegalArgumentException(String.format("Sudoku board must have %d cells, found %d cells", cellCount, symbols.length()));
+        }
+        for (int cell = 0; cell < cellCount; cell++) {
+            board[cellRow[cell]][cellCol[cell]] = parseSymbol(symbols.charAt(cell));
+        }
     }
 
     // Generates a random unique starting board and returns the random unique board
     public int[][] generateRandomPuzzle() {
-        // Initialize and fill the board with zeroes
-        int[][] board = new int[BOARD_SIZE][BOARD_SIZE];
-
-        // Failsafe in case the board doesn't generate a unique solution from the random indices list, so we keep a stack of failed indices
-        Stack<Integer> btStack = new Stack<>();
-
-        // Random shuffled list all cells on a board
-        List<Integer> randomIndex = shuffleBoardHelper();
-        int[] rowCol = getDeepIndex(findRandomCell(randomIndex));
-        int row;
-        int col;
-        int solutionCount;
-        int[][] startBoard;
-
-        while (true) {
-            row = rowCol[0];
-            col = rowCol[1];
-
-            // This keeps removing the hashsets and adding the current start board to the hash sets
-            checkIfValidStartBoard(board);
-
-            int answer = findRandomAnswer(row, col);
-
-            if (answer > 0) {
-                // Add solution to board
-                board[row][col] = answer;
-                // Add solution to sets
-                rowSets[row].add(answer);
-                columnSets[col].add(answer);
-                boxSets[getBoxIndex(row, col)].add(answer);
-
-                // Copy the original state of the board before sending off to be solved
-                startBoard = deepCopyBoard(board);
-
-                solutionCount = countUniqueSolutions(board);
-                //StdOut.format("solutionCount: %d\n", solutionCount);
-
-                // Reset the board back to the original state
-                board = deepCopyBoard(startBoard);
-                if (solutionCount == 1) {
-                    break;
-                } else if (solutionCount == 0) {
-                    // Recent addition made it so the puzzle has no solutions
-                    // Remove the answer from the sets and board
-                    deleteNumberFromSets(board, row, col);
+        return generateRandomPuzzle(new Random());
+    }
 
-                    // Push the failed cell index to the stack for failsafe
-                    btStack.push(getFlattenIndex(row, col));
-                }
-            }
-            if (!randomIndex.isEmpty()) {
-                rowCol = getDeepIndex(findRandomCell(randomIndex));
-            }
-            else {
-                // There was never a unique solution found, so we pop all the failed indices back into the pool
-                //StdOut.println("Failed to find a unique solution, adding failed indices back to the pool");
-                while (!btStack.isEmpty()) {
-                    randomIndex.add(btStack.pop());
-                }
-                //StdOut.format("randomIndex size: %d\n", randomIndex.size());
-            }
+    // Generates a random unique starting board by digging holes in a random full board, so every clue left is needed for the solution
+    public int[][] generateRandomPuzzle(Random random) {
+        SolverContext context = contexts.acquire();
+        try {
+            return fromFlatBoard(context.generatePuzzle(random));
+        } finally {
+            contexts.release(context);
         }
-        return board;
     }
 
-    // Function that returns a shuffled array list of the board indexes
-    private List<Integer> shuffleBoardHelper() {
-        List<Integer> result = new ArrayList<>();
-        for (int i = 0; i < BOARD_SIZE * BOARD_SIZE; i++) {
-            result.add(i);
-        }
-        Collections.shuffle(result);
-        return result;
+    // Rates a puzzle by the hardest solving technique a person would need, the board is left unchanged.
+    // Each thread keeps its own grader, so grading many puzzles allocates little more than the grades
+    public DifficultyGrader.Grade gradePuzzle(int[][] board) {
+        return graders.get().grade(board);
     }
 
     // Function to copy boards to different memory locations \\ Used to store the original state of the board before the solver
@@ -529,12 +538,40 @@ public class SudokuSolver {
 
     public static void main (String[] args) {
         SudokuSolver sudokuSolver = new SudokuSolver();
-        sudokuSolver.initializeHashSets();
         // Unit tests below
         sudokuSolver.testPuzzles();
         sudokuSolver.testCustomPuzzles();
         sudokuSolver.testSolutionCounts();
         sudokuSolver.testGeneratingRandomPuzzle();
+        sudokuSolver.testGeneratingMinimalPuzzles();
+        sudokuSolver.testSolveAllocations();
+        sudokuSolver.testLargerBoards();
+        sudokuSolver.testBatchLines();
+        sudokuSolver.testMappedReader();
+        sudokuSolver.testParallelCounts();
+        sudokuSolver.testParallelSolve();
+        sudokuSolver.testSharedSolver();
+        sudokuSolver.testSearchStats();
+        sudokuSolver.testFlightRecorderEvents();
+        sudokuSolver.testSolveBudgets();
+        sudokuSolver.testSolutionCache();
+        sudokuSolver.testSolutionStream();
+        sudokuSolver.testDifficultyGrader();
+        sudokuSolver.testPackedBoard();
+        sudokuSolver.testFlatBoards();
+        sudokuSolver.testSolutionValidator();
+        sudokuSolver.testCandidateKernels();
+        sudokuSolver.testSolveService();
+        sudokuSolver.testBinarySolveServer();
+
+        // Same puzzles again with the dancing links engine
+        SudokuSolver dancingLinksSolver = new SudokuSolver();
+        dancingLinksSolver.setEngine(Engine.DANCING_LINKS);
+        dancingLinksSolver.testPuzzles();
+        dancingLinksSolver.testSolutionCounts();
+        dancingLinksSolver.testEnginesAgree();
+        dancingLinksSolver.testSearchStats();
+        dancingLinksSolver.testSolveBudgets();
 //
 //        int[][] randomBoard = sudokuSolver.generateRandomPuzzle();
 //        sudokuSolver.printSudokuBoard(randomBoard);
@@ -805,24 +842,19 @@ public class SudokuSolver {
 
     // Function that takes the starting sudoku board and checks if my application gets the right answer. Print's if it fails
     private void testPuzzleHelper(int[][] startBoard, int[][] expectedBoard) {
-        checkIfValidStartBoard(startBoard);
-        solveBoard(startBoard);
-        boolean isValid = checkIfValidSolution(startBoard);
+        boolean isValid = solveInPlace(startBoard);
         if (isValid) {
-            sudokuBoard = startBoard;
-            if (!Arrays.deepEquals(expectedBoard, sudokuBoard)) {
-                StdOut.format("Failed Puzzle: Expecting (%s), Actual (%s)\n", Arrays.deepToString(expectedBoard), Arrays.deepToString(sudokuBoard));
+            if (!Arrays.deepEquals(expectedBoard, startBoard)) {
+                StdOut.format("Failed Puzzle: Expecting (%s), Actual (%s)\n", Arrays.deepToString(expectedBoard), Arrays.deepToString(startBoard));
             }
         } else {
-            StdOut.format("Failed Puzzle: Expecting (%s), Actual (%s)\n", Arrays.deepToString(expectedBoard), Arrays.deepToString(sudokuBoard));
+            StdOut.format("Failed Puzzle: Expecting (%s), Actual (%s)\n", Arrays.deepToString(expectedBoard), Arrays.deepToString(startBoard));
         }
     }
 
     // Function that tests valid starting boards, but has no solution
     private void testNoSolutionPuzzleHelper(int[][] startBoard) {
-        checkIfValidSolution(startBoard);
-        solveBoard(startBoard);
-        boolean isValid = checkIfValidSolution(startBoard);
+        boolean isValid = solveInPlace(startBoard);
         if (isValid) {
             StdOut.println("Failed Puzzle: Did not pass valid solution check");
         }
@@ -926,16 +958,13 @@ public class SudokuSolver {
     // Function that tests custom string boards and checks if it gets the expected answer
     private void testCustomStringPuzzleHelper(String[][] input, int[][] expectedBoard) {
         int[][] parsedInput = parseCustomBoard(input);
-        checkIfValidStartBoard(parsedInput);
-        solveBoard(parsedInput);
-        boolean isValid = checkIfValidSolution(parsedInput);
+        boolean isValid = solveInPlace(parsedInput);
         if (isValid) {
-            sudokuBoard = parsedInput;
-            if (!Arrays.deepEquals(expectedBoard, sudokuBoard)) {
-                StdOut.format("Failed Puzzle: Expecting (%s), Actual (%s)\n", Arrays.deepToString(expectedBoard), Arrays.deepToString(sudokuBoard));
+            if (!Arrays.deepEquals(expectedBoard, parsedInput)) {
+                StdOut.format("Failed Puzzle: Expecting (%s), Actual (%s)\n", Arrays.deepToString(expectedBoard), Arrays.deepToString(parsedInput));
             }
         } else {
-            StdOut.format("Failed Puzzle: Expecting (%s), Actual (%s)\n", Arrays.deepToString(expectedBoard), Arrays.deepToString(sudokuBoard));
+            StdOut.format("Failed Puzzle: Expecting (%s), Actual (%s)\n", Arrays.deepToString(expectedBoard), Arrays.deepToString(parsedInput));
         }
     }
 
@@ -1020,26 +1049,1040 @@ public class SudokuSolver {
     }
 
     private void testSolutionCountsHelper(int[][] startBoard, int expectedSolutions) {
-        checkIfValidStartBoard(startBoard);
-        int solutions = countUniqueSolutions(startBoard);
+        int solutions = countSolutions(startBoard);
         if (solutions != expectedSolutions) {
             StdOut.format("Failed Puzzle: Expecting (%d) solutions, Actual (%d) solutions", expectedSolutions, solutions);
         }
     }
 
+    // Function that tests exact counts past the cap of 2, with the parallel counter and one thread agreeing for both engines
+    private void testParallelCounts() {
+        // Puzzle (1) in sudoku book with its first 10 clues removed
+        int[][] sparseBoard = parseSymbolString(".........................739...63.8..74...36..8.49...124..85..7.3.9..41...53....8");
+        int[][] startBoard = deepCopyBoard(sparseBoard);
+        long[][] limitsAndExpected = new long[][] {
+                {UNLIMITED, 1528},
+                {1000, 1000},
+                {1, 1}
+        };
+        for (Engine countEngine : Engine.values()) {
+            SudokuSolver solver = new SudokuSolver();
+            solver.setEngine(countEngine);
+            ParallelSolutionCounter counter = new ParallelSolutionCounter(BOX_SIZE, countEngine);
+            for (long[] limitAndExpected : limitsAndExpected) {
+                long count = solver.countSolutions(sparseBoard, limitAndExpected[0]);
+                long parallelCount = counter.countSolutions(sparseBoard, limitAndExpected[0]);
+                if (count != limitAndExpected[1] || parallelCount != limitAndExpected[1]) {
+                    StdOut.format("Failed Parallel Count: Expecting (%d) solutions, Actual (%d) and (%d) solutions\n", limitAndExpected[1], count, parallelCount);
+                }
+            }
+        }
+        if (!Arrays.deepEquals(sparseBoard, startBoard)) {
+            StdOut.format("Failed Parallel Count: Expecting (%s), Actual (%s)\n", Arrays.deepToString(startBoard), Arrays.deepToString(sparseBoard));
+        }
+
+        // Every 4x4 board, an empty board has 288 solutions
+        long emptyCount = new ParallelSolutionCounter(2, Engine.BACKTRACKING).countSolutions(new int[4][4], UNLIMITED);
+        if (emptyCount != 288) {
+            StdOut.format("Failed Parallel Count: Expecting (%d) solutions, Actual (%d) solutions\n", 288, emptyCount);
+        }
+    }
+
+    // Function that tests the parallel solver against one thread, an unsolvable puzzle, and a search cancelled before it starts
+    private void testParallelSolve() {
+        int[][] seventeenClues = parseSymbolString("000000010400000000020000000000050407008000300001090000300400200050100000000806000"); // 17 clue puzzle
+        int[][] aiEscargot = parseSymbolString("1....7.9..3..2...8..96..5....53..9...1..8...26....4...3......1..4......7..7...3.."); // Needs guesses after singles
+        int[][] noSolution = parseSymbolString("500003000009800053000025000052010060000000902030906007000470000000100000700000009"); // Puzzle with no solution
+        for (Engine solveEngine : Engine.values()) {
+            SudokuSolver solver = new SudokuSolver();
+            solver.setEngine(solveEngine);
+
+            try (ParallelSolver parallelSolver = new ParallelSolver(BOX_SIZE, solveEngine, 4)) {
+                for (int[][] startBoard : new int[][][] { seventeenClues, aiEscargot }) {
+                    int[][] expected = deepCopyBoard(startBoard);
+                    solver.solveInPlace(expected);
+                    int[][] actual = deepCopyBoard(startBoard);
+                    if (!parallelSolver.solveInPlace(actual) || !Arrays.deepEquals(expected, actual)) {
+                        StdOut.format("Failed Parallel Solve: Expecting (%s), Actual (%s)\n", Arrays.deepToString(expected), Arrays.deepToString(actual));
+                    }
+                }
+                int[][] unsolvable = deepCopyBoard(noSolution);
+                if (parallelSolver.solveInPlace(unsolvable) || !Arrays.deepEquals(unsolvable, noSolution)) {
+                    StdOut.format("Failed Parallel Solve: Expecting (%s), Actual (%s)\n", Arrays.deepToString(noSolution), Arrays.deepToString(unsolvable));
+                }
+            }
+
+            // A cancelled search gives up before finding anything, and the solver still counts once the flag is cleared
+            int[][] sparseBoard = parseSymbolString(".........................739...63.8..74...36..8.49...124..85..7.3.9..41...53....8");
+            AtomicBoolean cancelled = new AtomicBoolean(true);
+            SolverContext context = solver.acquireContext();
+            context.setCancelFlag(cancelled);
+            context.checkIfValidStartBoard(sparseBoard);
+            long cancelledCount = context.countSolutionsUpTo(deepCopyBoard(sparseBoard), UNLIMITED, solveEngine);
+            cancelled.set(false);
+            context.checkIfValidStartBoard(sparseBoard); // The cancelled search left its masks behind
+            long actualCount = context.countSolutionsUpTo(deepCopyBoard(sparseBoard), UNLIMITED, solveEngine);
+            solver.releaseContext(context);
+            if (cancelledCount != 0 || actualCount != 1528) {
+                StdOut.format("Failed Cancelled Search: Expecting (0, 1528) solutions, Actual (%d, %d) solutions\n", cancelledCount, actualCount);
+            }
+        }
+    }
+
+    // Function that tests one solver shared by several threads at once, every thread borrows its own context
+    private void testSharedSolver() {
+        String[][] puzzlesAndSolutions = new String[][] {
+                {"8....91...97..1.5.4..25..739...63.8..74...36..8.49...124..85..7.3.9..41...53....8",
+                        "852739146397641852416258973921563784574812369683497521249185637738926415165374298"}, // Puzzle (1) in sudoku book
+                {"004010030600000810001860090826400009500236008300008426090084700065000003030090200",
+                        "984512637653749812271863594826471359549236178317958426192384765465127983738695241"} // Puzzle (2) in sudoku book
+        };
+        AtomicInteger failures = new AtomicInteger();
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            String[] puzzleAndSolution = puzzlesAndSolutions[t % puzzlesAndSolutions.length];
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 200; i++) {
+                    try {
+                        int[][] board = parseSymbolString(puzzleAndSolution[0]);
+                        if (!solveInPlace(board) || !toSymbolString(board).equals(puzzleAndSolution[1])) {
+                            failures.incrementAndGet();
+                        }
+                    } catch (RuntimeException e) {
+                        failures.incrementAndGet(); // Search state shared by two threads can index out of bounds
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        if (failures.get() != 0) {
+            StdOut.format("Failed Shared Solver: Expecting (0) wrong solutions, Actual (%d) wrong solutions\n", failures.get());
+        }
+    }
+
+    // Function that tests the search counters for a puzzle that needs guessing, one that propagation alone solves, and the global totals
+    private void testSearchStats() {
+        String hardPuzzle = "100007090030020008009600500005300900010080002600004000300000010040000007007000300"; // AI Escargot
+        SolveResult hard = solveWithStats(parseSymbolString(hardPuzzle));
+        SearchStats stats = hard.getStats();
+        if (!hard.isSolved() || stats.getNodes() == 0 || stats.getBacktracks() == 0 || stats.getMaxDepth() == 0
+                || stats.getProbes() < stats.getNodes() || stats.getNanos() <= 0) {
+            StdOut.format("Failed Stats: Expecting (solved with guesses and backtracks), Actual (%s)\n", hard);
+        }
+
+        int[][] startBoard = new int[][] {
+                {0, 6, 0, 2, 0, 0, 0, 0, 5},
+                {0, 0, 9, 0, 0, 3, 8, 0, 0},
+                {7, 0, 0, 0, 0, 0, 0, 9, 0},
+                {0, 0, 3, 1, 0, 0, 4, 0, 7},
+                {0, 0, 0, 3, 0, 4, 0, 0, 0},
+                {6, 0, 8, 0, 0, 5, 1, 0, 0},
+                {0, 1, 0, 0, 0, 0, 0, 0, 3},
+                {0, 0, 6, 4, 0, 0, 9, 0, 0},
+                {4, 0, 0, 0, 0, 1, 0, 7, 0}
+        }; // Puzzle (166) in sudoku book
+        SolveResult count = countWithStats(startBoard, UNLIMITED);
+        if (count.getSolutionCount() != 1) {
+            StdOut.format("Failed Stats: Expecting (1) solution, Actual (%d)\n", count.getSolutionCount());
+        }
+        if (engine == Engine.BACKTRACKING && (count.getStats().getNodes() != 0 || count.getStats().getPropagations() == 0)) {
+            StdOut.format("Failed Stats: Expecting (no guesses, only forced answers), Actual (%s)\n", count);
+        }
+
+        // Global totals count every search while enabled, and nothing once disabled again
+        boolean wasEnabled = SearchStats.isGlobalEnabled();
+        SearchStats.resetGlobal();
+        SearchStats.setGlobalEnabled(true);
+        for (int i = 0; i < 3; i++) {
+            solveInPlace(parseSymbolString(hardPuzzle));
+        }
+        SearchStats.setGlobalEnabled(false);
+        solveInPlace(parseSymbolString(hardPuzzle));
+        SearchStats global = SearchStats.global();
+        if (global.getSearches() != 3 || global.getNodes() != 3 * stats.getNodes() || global.getMaxDepth() != stats.getMaxDepth()) {
+            StdOut.format("Failed Global Stats: Expecting (3 searches of %s), Actual (%s)\n", stats, global);
+        }
+        SearchStats.resetGlobal();
+        SearchStats.setGlobalEnabled(wasEnabled);
+    }
+
+    // Function that checks solving and counting allocate nothing per solve, using the JVM's allocated bytes counter for this thread
+    private void testSolveAllocations() {
+        ThreadMXBean threadBean = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        if (!threadBean.isThreadAllocatedMemorySupported() || !threadBean.isThreadAllocatedMemoryEnabled()) {
+            return; // JVM can't measure allocations, nothing to test
+        }
+        long threadId = Thread.currentThread().getId();
+        int[][] startBoard = new int[][] {
+                {0, 6, 0, 2, 0, 0, 0, 0, 5},
+                {0, 0, 9, 0, 0, 3, 8, 0, 0},
+                {7, 0, 0, 0, 0, 0, 0, 9, 0},
+                {0, 0, 3, 1, 0, 0, 4, 0, 7},
+                {0, 0, 0, 3, 0, 4, 0, 0, 0},
+                {6, 0, 8, 0, 0, 5, 1, 0, 0},
+                {0, 1, 0, 0, 0, 0, 0, 0, 3},
+                {0, 0, 6, 4, 0, 0, 9, 0, 0},
+                {4, 0, 0, 0, 0, 1, 0, 7, 0}
+        }; // Puzzle (166) in sudoku book
+        int[][] board = deepCopyBoard(startBoard);
+        int[] flatStart = toFlatBoard(startBoard);
+        int[] flatBoard = new int[cellCount];
+        long solveBytes = 0;
+        long flatSolveBytes = 0;
+        long countBytes = 0;
+
+        // Early runs warm up class loading and JIT compilation, so only the last run is measured. The Vector API kernel, turned on
+        // with -Dsudoku.vector=true, boxes its vectors until C2 compiles it and escape analysis removes them, which takes longer
+        // than the scalar path, so with it the runs go on until a run allocates nothing, up to a cap
+        boolean vectorKernel = Boolean.getBoolean("sudoku.vector") && CandidateKernel.vector(geometry) != null;
+        int maxRuns = vectorKernel ? 20_000 : 200;
+        for (int run = 0; run < 200 || (run < maxRuns && (solveBytes | flatSolveBytes | countBytes) != 0); run++) {
+            for (int row = 0; row < BOARD_SIZE; row++) {
+                System.arraycopy(startBoard[row], 0, board[row], 0, BOARD_SIZE);
+            }
+            // Borrowing and returning the pooled context is part of the measured solve
+            long before = threadBean.getThreadAllocatedBytes(threadId);
+            solveInPlace(board);
+            solveBytes = threadBean.getThreadAllocatedBytes(threadId) - before;
+
+            System.arraycopy(flatStart, 0, flatBoard, 0, cellCount);
+            before = threadBean.getThreadAllocatedBytes(threadId);
+            solveInPlace(flatBoard);
+            flatSolveBytes = threadBean.getThreadAllocatedBytes(threadId) - before;
+
+            for (int row = 0; row < BOARD_SIZE; row++) {
+                System.arraycopy(startBoard[row], 0, board[row], 0, BOARD_SIZE);
+            }
+            SolverContext context = acquireContext();
+            context.checkIfValidStartBoard(board);
+            before = threadBean.getThreadAllocatedBytes(threadId);
+            context.countSolutionsUpTo(board, 2, engine);
+            countBytes = threadBean.getThreadAllocatedBytes(threadId) - before;
+            releaseContext(context);
+        }
+        if (solveBytes != 0) {
+            StdOut.format("Failed Allocation: Expecting (0) bytes per solveInPlace, Actual (%d) bytes\n", solveBytes);
+        }
+        if (flatSolveBytes != 0) {
+            StdOut.format("Failed Allocation: Expecting (0) bytes per flat solveInPlace, Actual (%d) bytes\n", flatSolveBytes);
+        }
+        if (countBytes != 0) {
+            StdOut.format("Failed Allocation: Expecting (0) bytes per count, Actual (%d) bytes\n", countBytes);
+        }
+    }
+
+    // Function that tests the validator reports the first broken unit of int[][], flat and packed solutions, one at a time and in a batch
+    private void testSolutionValidator() {
+        int[][] solution = parseSymbolString("100007090030020008009600500005300900010080002600004000300000010040000007007000300"); // AI Escargot
+        solveInPlace(solution);
+        SolutionValidator validator = new SolutionValidator(BOX_SIZE);
+        int[][] swapped = deepCopyBoard(solution);
+        swapped[4][2] = solution[4][3]; // Swapping two cells of row 5 keeps the row full and breaks columns 3 and 4
+        swapped[4][3] = solution[4][2];
+        int[][] empty = deepCopyBoard(solution);
+        empty[8][8] = 0;
+        int[][] outOfRange = deepCopyBoard(solution);
+        outOfRange[0][0] = 65; // Would wrap around to bit 1 of a long mask
+        int[][][] boards = { solution, swapped, empty, outOfRange };
+        int[] expected = { SolutionValidator.VALID, BOARD_SIZE + 2, BOARD_SIZE - 1, 0 };
+        for (int i = 0; i < boards.length; i++) {
+            int actual = validator.firstInvalidUnit(boards[i]);
+            int flatActual = validator.firstInvalidUnit(toFlatBoard(boards[i]));
+            if (actual != expected[i] || flatActual != expected[i] || (actual == SolutionValidator.VALID) != isValidSolution(boards[i])) {
+                StdOut.format("Failed Solution Validator: Expecting (%s), Actual (%s and %s)\n", validator.describe(expected[i]), validator.describe(actual), validator.describe(flatActual));
+            }
+        }
+
+        // The same boards packed back to back in a buffer, and as packed boards. The out of range board can't be packed
+        int packedCount = boards.length - 1;
+        PackedBoard[] packed = new PackedBoard[packedCount];
+        ByteBuffer buffer = ByteBuffer.allocate(packedCount * 42);
+        for (int i = 0; i < packedCount; i++) {
+            packed[i] = PackedBoard.fromBoard(boards[i]);
+            buffer.put(packed[i].toBytes());
+        }
+        buffer.flip();
+        int[] bufferResults = new int[packedCount];
+        int[] packedResults = new int[packedCount];
+        int bufferValid = validator.validateAll(buffer, packedCount, bufferResults);
+        int packedValid = validator.validateAll(packed, packedResults);
+        if (bufferValid != 1 || packedValid != 1 || buffer.hasRemaining() || !Arrays.equals(bufferResults, Arrays.copyOf(expected, packedCount))
+                || !Arrays.equals(packedResults, bufferResults)) {
+            StdOut.format("Failed Solution Validator Batch: Expecting (%s), Actual (%s and %s)\n", Arrays.toString(Arrays.copyOf(expected, packedCount)), Arrays.toString(bufferResults), Arrays.toString(packedResults));
+        }
+
+        // 16x16 boards take 5 bits a cell, which run across bytes
+        SudokuSolver largeSolver = new SudokuSolver(4);
+        int[][] largeSolution = new int[16][16];
+        largeSolver.solveInPlace(largeSolution);
+        int[][] largeBroken = largeSolver.deepCopyBoard(largeSolution);
+        largeBroken[15][15] = largeSolution[15][0];
+        largeBroken[15][0] = largeSolution[15][15];
+        ByteBuffer largeBuffer = ByteBuffer.wrap(concat(PackedBoard.fromBoard(largeSolution).toBytes(), PackedBoard.fromBoard(largeBroken).toBytes()));
+        int[] largeResults = new int[2];
+        new SolutionValidator(4).validateAll(largeBuffer, 2, largeResults);
+        if (largeResults[0] != SolutionValidator.VALID || largeResults[1] != 16) {
+            StdOut.format("Failed Solution Validator 16x16: Expecting ([-1, 16]), Actual (%s)\n", Arrays.toString(largeResults));
+        }
+    }
+
+    private static byte[] concat(byte[] first, byte[] second) {
+        byte[] both = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, both, first.length, second.length);
+        return both;
+    }
+
+    // Function that tests the scalar candidate kernel, and the Vector API kernel when it was compiled in and its module is loaded,
+    // against candidates worked out cell by cell on boards of every size
+    private void testCandidateKernels() {
+        Random random = new Random(23);
+        for (int size = 2; size <= 5; size++) {
+            SudokuSolver generator = new SudokuSolver(size);
+            BoardGeometry boardGeometry = BoardGeometry.of(size);
+            int[] cells = generator.toFlatBoard(size <= BOX_SIZE ? generator.generateRandomPuzzle(random) : new int[boardGeometry.boardSize][boardGeometry.boardSize]);
+            if (size > BOX_SIZE) {
+                generator.solveInPlace(cells);
+                for (int cell = 0; cell < cells.length; cell++) {
+                    cells[cell] = random.nextInt(3) == 0 ? cells[cell] : 0; // A third of the solution as clues
+                }
+            }
+            long[] rowMasks = new long[boardGeometry.boardSize];
+            long[] columnMasks = new long[boardGeometry.boardSize];
+            long[] boxMasks = new long[boardGeometry.boardSize];
+            for (int cell = 0; cell < cells.length; cell++) {
+                long bit = cells[cell] == 0 ? 0 : 1L << cells[cell];
+                rowMasks[boardGeometry.cellRow[cell]] |= bit;
+                columnMasks[boardGeometry.cellCol[cell]] |= bit;
+                boxMasks[boardGeometry.cellBox[cell]] |= bit;
+            }
+            long[] expected = new long[cells.length];
+            for (int cell = 0; cell < cells.length; cell++) {
+                for (int num = 1; num <= boardGeometry.boardSize; num++) {
+                    boolean used = false;
+                    for (int peer : boardGeometry.peers[cell]) {
+                        used |= cells[peer] == num;
+                    }
+                    if (!used && cells[cell] != num) {
+                        expected[cell] |= 1L << num;
+                    }
+                }
+                if (cells[cell] != 0) {
+                    expected[cell] &= ~(1L << cells[cell]); // A filled cell's own number is used in its row
+                }
+            }
+            for (CandidateKernel kernel : new CandidateKernel[] { CandidateKernel.scalar(boardGeometry), CandidateKernel.vector(boardGeometry) }) {
+                if (kernel == null) {
+                    continue; // Vector API kernel not available
+                }
+                long[] actual = new long[cells.length];
+                kernel.candidates(rowMasks, columnMasks, boxMasks, actual);
+                if (!Arrays.equals(actual, expected)) {
+                    StdOut.format("Failed Candidate Kernel %s: Expecting (%s), Actual (%s)\n", kernel.getClass().getSimpleName(), Arrays.toString(expected), Arrays.toString(actual));
+                }
+            }
+        }
+    }
+
+    // Function that tests every endpoint of the solve service with text and JSON bodies, bad requests, and turning requests away when full
+    private void testSolveService() {
+        String puzzle = "100007090030020008009600500005300900010080002600004000300000010040000007007000300"; // AI Escargot
+        int[][] solution = parseSymbolString(puzzle);
+        solveInPlace(solution);
+        String solutionSymbols = toSymbolString(solution);
+        StringBuilder rows = new StringBuilder("{\"puzzle\": [");
+        for (int[] row : parseSymbolString(puzzle)) {
+            rows.append(rows.length() > 12 ? ", " : "").append(Arrays.toString(row));
+        }
+        rows.append("], \"timeoutMillis\": 2000}");
+        String twoSolutions = "0" + puzzle.substring(1, 40) + "0" + puzzle.substring(41); // Without two clues the puzzle isn't unique anymore
+        int[][] swapped = deepCopyBoard(solution);
+        swapped[4][2] = solution[4][3];
+        swapped[4][3] = solution[4][2];
+
+        try (SolveService service = new SolveService(BOX_SIZE, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 2)) {
+            service.start();
+            HttpClient client = HttpClient.newHttpClient();
+            String[][] cases = { // Method and path, body, expected status and a part of the expected answer
+                    { "POST /solve", puzzle, "200", "\"solution\":\"" + solutionSymbols + "\"" },
+                    { "POST /solve", rows.toString(), "200", "\"solution\":\"" + solutionSymbols + "\"" },
+                    { "POST /count", "{\"puzzle\": \"" + twoSolutions + "\", \"limit\": 5}", "200", "\"solutions\":" + countSolutions(parseSymbolString(twoSolutions), 5) + "," },
+                    { "POST /count", puzzle, "200", "\"status\":\"COUNTED\",\"solutions\":1,\"complete\":true" },
+                    { "POST /validate", solutionSymbols, "200", "{\"valid\":true}" },
+                    { "POST /validate", toSymbolString(swapped), "200", "{\"valid\":false,\"unit\":\"column 3\"}" },
+                    { "GET /generate?seed=7", "", "200", "\"puzzle\":\"" + toSymbolString(generateRandomPuzzle(new Random(7))) + "\"" },
+                    { "POST /solve", "11" + puzzle.substring(2), "400", "\"error\":" },
+                    { "POST /solve", "{\"puzzle\": [1, 2]}", "400", "found 2 cells" },
+                    { "POST /count", "{\"puzzle\": \"" + puzzle + "\", \"limit\": 0}", "400", "\"error\":" },
+                    { "POST /solve", "{\"puzzle\": ", "400", "Invalid JSON" },
+                    { "GET /solve", "", "405", "\"error\":" },
+                    { "POST /solver", puzzle, "404", "\"error\":" }
+            };
+            for (String[] test : cases) {
+                HttpResponse<String> response = serviceRequest(client, service.getPort(), test[0], test[1]);
+                if (response.statusCode() != Integer.parseInt(test[2]) || !response.body().contains(test[3])) {
+                    StdOut.format("Failed Solve Service %s: Expecting (%s %s), Actual (%d %s)\n", test[0], test[2], test[3], response.statusCode(), response.body());
+                }
+            }
+
+            // With every permit taken the next request is turned away straight away
+            service.admission.acquire(2);
+            HttpResponse<String> rejected = serviceRequest(client, service.getPort(), "POST /solve", puzzle);
+            service.admission.release(2);
+            HttpResponse<String> admitted = serviceRequest(client, service.getPort(), "POST /solve", puzzle);
+            if (rejected.statusCode() != 503 || !rejected.headers().firstValue("Retry-After").isPresent() || service.getRejectedCount() != 1 || admitted.statusCode() != 200) {
+                StdOut.format("Failed Solve Service Admission: Expecting (503 then 200, 1 rejected), Actual (%d then %d, %d rejected)\n", rejected.statusCode(), admitted.statusCode(), service.getRejectedCount());
+            }
+        } catch (IOException e) {
+            StdOut.format("Failed Solve Service: Expecting (answers), Actual (%s)\n", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Function that tests the binary protocol server answering on its selector thread and with workers: many pipelined solves
+    // on one connection each get their own solution back, and counts, checks and bad requests get the right answers
+    private void testBinarySolveServer() {
+        Random random = new Random(25);
+        PackedBoard[] puzzles = new PackedBoard[20];
+        String[] solutions = new String[puzzles.length];
+        for (int i = 0; i < puzzles.length; i++) {
+            int[][] puzzle = generateRandomPuzzle(random);
+            puzzles[i] = PackedBoard.fromBoard(puzzle);
+            solveInPlace(puzzle);
+            solutions[i] = toSymbolString(puzzle);
+        }
+        String puzzle = "100007090030020008009600500005300900010080002600004000300000010040000007007000300"; // AI Escargot
+        int[][] twoSolutions = parseSymbolString(puzzle);
+        twoSolutions[0][0] = 0;
+        twoSolutions[4][4] = 0;
+        int[][] solution = parseSymbolString(puzzle);
+        solveInPlace(solution);
+        int[][] swapped = deepCopyBoard(solution);
+        swapped[4][2] = solution[4][3];
+        swapped[4][3] = solution[4][2];
+        int[][] repeated = parseSymbolString(puzzle);
+        repeated[0][1] = 1; // Two 1s in the first row
+
+        for (int workers = 0; workers <= 2; workers += 2) {
+            // A window of 4 makes the server stop and start reading the connection while the requests come in
+            try (BinarySolveServer server = new BinarySolveServer(BOX_SIZE, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), workers, 4)) {
+                server.start();
+                try (BinarySolveClient client = new BinarySolveClient(new InetSocketAddress(InetAddress.getLoopbackAddress(), server.getPort()))) {
+                    List<CompletableFuture<BinarySolveClient.Reply>> replies = new ArrayList<>();
+                    for (int i = 0; i < 10 * puzzles.length; i++) {
+                        replies.add(client.solve(puzzles[i % puzzles.length]));
+                    }
+                    for (int i = 0; i < replies.size(); i++) {
+                        BinarySolveClient.Reply reply = replies.get(i).get(10, TimeUnit.SECONDS);
+                        if (reply.getStatus() != BinarySolveServer.Status.OK || !reply.getSolution().toString().equals(solutions[i % puzzles.length])) {
+                            StdOut.format("Failed Binary Server Solve with %d workers: Expecting (%s), Actual (%s)\n", workers, solutions[i % puzzles.length], reply);
+                            break;
+                        }
+                    }
+
+                    BinarySolveClient.Reply counted = client.count(PackedBoard.fromBoard(twoSolutions), 5).get(10, TimeUnit.SECONDS);
+                    BinarySolveClient.Reply valid = client.validate(PackedBoard.fromBoard(solution)).get(10, TimeUnit.SECONDS);
+                    BinarySolveClient.Reply invalid = client.validate(PackedBoard.fromBoard(swapped)).get(10, TimeUnit.SECONDS);
+                    BinarySolveClient.Reply badBoard = client.solve(PackedBoard.fromBoard(repeated)).get(10, TimeUnit.SECONDS);
+                    BinarySolveClient.Reply wrongSize = client.solve(new PackedBoard(4)).get(10, TimeUnit.SECONDS);
+                    if (counted.getStatus() != BinarySolveServer.Status.OK || counted.getSolutionCount() != countSolutions(twoSolutions, 5)
+                            || valid.getFirstInvalidUnit() != SolutionValidator.VALID || invalid.getFirstInvalidUnit() != BOARD_SIZE + 2
+                            || badBoard.getStatus() != BinarySolveServer.Status.BAD_REQUEST || wrongSize.getStatus() != BinarySolveServer.Status.BAD_REQUEST
+                            || !wrongSize.getMessage().contains("16x16")) {
+                        StdOut.format("Failed Binary Server Answers with %d workers: Expecting (%d solutions, valid, unit %d, 2 bad requests), Actual (%s; %s; %s; %s; %s)\n",
+                                workers, countSolutions(twoSolutions, 5), BOARD_SIZE + 2, counted, valid, invalid, badBoard, wrongSize);
+                    }
+                }
+            } catch (IOException | ExecutionException | TimeoutException e) {
+                StdOut.format("Failed Binary Server with %d workers: Expecting (answers), Actual (%s)\n", workers, e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        // Long messages are cut before a character that doesn't fit whole, a 2 byte and a 3 byte one straddling the limit,
+        // and a message that just fits is kept whole
+        String prefix = "x".repeat(BinarySolveServer.MAX_MESSAGE_BYTES - 1);
+        byte[] twoByte = (prefix + "\u00e9 and more").getBytes(StandardCharsets.UTF_8);
+        byte[] threeByte = (prefix.substring(1) + "\u20ac and more").getBytes(StandardCharsets.UTF_8);
+        byte[] exact = (prefix.substring(1) + "\u00e9").getBytes(StandardCharsets.UTF_8);
+        if (BinarySolveServer.messageLength(twoByte) != prefix.length() || BinarySolveServer.messageLength(threeByte) != prefix.length() - 1
+                || BinarySolveServer.messageLength(exact) != exact.length) {
+            StdOut.format("Failed Binary Server Message Cut: Expecting (%d, %d, %d), Actual (%d, %d, %d)\n", prefix.length(), prefix.length() - 1, exact.length,
+                    BinarySolveServer.messageLength(twoByte), BinarySolveServer.messageLength(threeByte), BinarySolveServer.messageLength(exact));
+        }
+    }
+
+    // Sends a request like "POST /solve" with the body to the solve service on localhost
+    private static HttpResponse<String> serviceRequest(HttpClient client, int port, String request, String body) throws IOException, InterruptedException {
+        String[] methodAndPath = request.split(" ");
+        return client.send(HttpRequest.newBuilder(URI.create(String.format("http://localhost:%d%s", port, methodAndPath[1])))
+                .method(methodAndPath[0], methodAndPath[0].equals("GET") ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body))
+                .build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    // Function that tests solving, counting and checking flat boards agree with the int[][] methods
+    private void testFlatBoards() {
+        String hardPuzzle = "100007090030020008009600500005300900010080002600004000300000010040000007007000300"; // AI Escargot
+        int[][] startBoard = parseSymbolString(hardPuzzle);
+        int[] cells = toFlatBoard(startBoard);
+        if (cells[0] != 1 || cells[5] != 7 || cells[BOARD_SIZE + 1] != 3 || !Arrays.deepEquals(fromFlatBoard(cells), startBoard)) {
+            StdOut.format("Failed Flat Board: Expecting (%s), Actual (%s)\n", hardPuzzle, Arrays.toString(cells));
+        }
+        if (countSolutions(cells, UNLIMITED) != 1 || !Arrays.equals(cells, toFlatBoard(startBoard))) {
+            StdOut.format("Failed Flat Board Count: Expecting (1) solution and the board unchanged, Actual (%s)\n", Arrays.toString(cells));
+        }
+        int[][] board = deepCopyBoard(startBoard);
+        solveInPlace(board);
+        if (!solveInPlace(cells) || !isValidSolution(cells) || !Arrays.deepEquals(fromFlatBoard(cells), board)) {
+            StdOut.format("Failed Flat Board Solve: Expecting (%s), Actual (%s)\n", toSymbolString(board), Arrays.toString(cells));
+        }
+        cells[0] = cells[1];
+        if (isValidSolution(cells)) {
+            StdOut.println("Failed Flat Board Check: Expecting (false) for a duplicate number, Actual (true)");
+        }
+
+        // A budget stops the flat search and leaves the puzzle as it was given
+        cells = toFlatBoard(startBoard);
+        SolveResult result = solveWithStats(cells, SolveOptions.NONE.withMaxNodes(5));
+        if (result.getStatus() != SolveResult.Status.BUDGET_EXCEEDED || !Arrays.equals(cells, toFlatBoard(startBoard))) {
+            StdOut.format("Failed Flat Board Budget: Expecting (BUDGET_EXCEEDED), Actual (%s with %s)\n", result, Arrays.toString(cells));
+        }
+
+        try {
+            solveInPlace(new int[cellCount - 1]);
+            StdOut.println("Failed Flat Board: Expecting (IllegalArgumentException for a short board), Actual (no exception)");
+        } catch (IllegalArgumentException expected) {
+            // Expected
+        }
+    }
+
+    // Function that tests a 16x16 board read as symbols and as space separated numbers, then solved by a 16x16 solver
+    private void testLargerBoards() {
+        SudokuSolver largeSolver = new SudokuSolver(4);
+        String[] symbolLines = new String[] {
+                "B9D2.6..1...5F.C",
+                "36A.1E..5F...9D2",
+                "1E4..F.C.9.2.6AG",
+                "5F8C.9D2....1E47",
+                "9..3...1.475F.CB",
+                "6AG.E475..CB9D23",
+                "E.7..8CB...36AG1",
+                "F8.B9D2.6AG...75",
+                "..36A.1E47..8C.9",
+                ".G.E..5F......3.",
+                ".75.8...D2.....E",
+                "8..9.236AG1E4...",
+                "2.6.G1E4.5F8C.9.",
+                ".1..7.F.C.9D23.A",
+                ".5.8.B...3.A.1E.",
+                "C..D236.G1...5F."
+        };
+        int[][] startBoard = largeSolver.parseBoardLines(symbolLines);
+
+        // The same puzzle written as multi-digit numbers must parse to the same board
+        String[] numberLines = new String[symbolLines.length];
+        for (int row = 0; row < startBoard.length; row++) {
+            numberLines[row] = Arrays.toString(startBoard[row]).replaceAll("[\\[\\],]", "");
+        }
+        if (!Arrays.deepEquals(startBoard, largeSolver.parseBoardLines(numberLines))) {
+            StdOut.format("Failed Parsing: Expecting (%s), Actual (%s)\n", Arrays.deepToString(startBoard), Arrays.deepToString(largeSolver.parseBoardLines(numberLines)));
+        }
+        if (!String.join("", symbolLines).equals(largeSolver.toSymbolString(startBoard))) {
+            StdOut.format("Failed Printing: Expecting (%s), Actual (%s)\n", String.join("", symbolLines), largeSolver.toSymbolString(startBoard));
+        }
+
+        int[][] board = deepCopyBoard(startBoard);
+        if (!largeSolver.solveInPlace(board)) {
+            StdOut.format("Failed 16x16 Puzzle: Actual (%s)\n", Arrays.deepToString(board));
+            return;
+        }
+        for (int row = 0; row < board.length; row++) {
+            for (int col = 0; col < board.length; col++) {
+                if (startBoard[row][col] != 0 && startBoard[row][col] != board[row][col]) {
+                    StdOut.format("Failed 16x16 Puzzle: Clue changed at [%d, %d]\n", row, col);
+                }
+            }
+        }
+    }
+
+    // Function that checks both engines give the same solution and count for a 17 clue puzzle and a 16x16 puzzle
+    private void testEnginesAgree() {
+        int[][] seventeenClues = new int[][] {
+                {0, 0, 0, 0, 0, 0, 0, 1, 0},
+                {4, 0, 0, 0, 0, 0, 0, 0, 0},
+                {0, 2, 0, 0, 0, 0, 0, 0, 0},
+                {0, 0, 0, 0, 5, 0, 4, 0, 7},
+                {0, 0, 8, 0, 0, 0, 3, 0, 0},
+                {0, 0, 1, 0, 9, 0, 0, 0, 0},
+                {3, 0, 0, 4, 0, 0, 2, 0, 0},
+                {0, 5, 0, 1, 0, 0, 0, 0, 0},
+                {0, 0, 0, 8, 0, 6, 0, 0, 0}
+        }; // 17 clue puzzle
+        int[][] largeBoard = SudokuBenchmark.randomPuzzle(4, 0.6, new Random(5));
+
+        for (int[][] startBoard : new int[][][] { seventeenClues, largeBoard }) {
+            SudokuSolver backtracking = new SudokuSolver(startBoard.length == BOARD_SIZE ? BOX_SIZE : 4);
+            SudokuSolver dancingLinks = new SudokuSolver(backtracking.getBoxSize());
+            dancingLinks.setEngine(Engine.DANCING_LINKS);
+
+            int[][] expected = deepCopyBoard(startBoard);
+            int[][] actual = deepCopyBoard(startBoard);
+            boolean expectedValid = backtracking.solveInPlace(expected);
+            boolean actualValid = dancingLinks.solveInPlace(actual);
+            int expectedCount = backtracking.countSolutions(startBoard);
+            int actualCount = dancingLinks.countSolutions(startBoard);
+            if (!expectedValid || !actualValid || (expectedCount == 1 && !Arrays.deepEquals(expected, actual))) {
+                StdOut.format("Failed Engines: Expecting (%s), Actual (%s)\n", Arrays.deepToString(expected), Arrays.deepToString(actual));
+            }
+            if (expectedCount != actualCount) {
+                StdOut.format("Failed Engines: Expecting (%d) solutions, Actual (%d) solutions\n", expectedCount, actualCount);
+            }
+        }
+    }
+
+    // Function that tests batch lines with '.' and '0' blanks, and lines that are unsolvable or invalid
+    private void testBatchLines() {
+        BatchSolver batchSolver = new BatchSolver(new SudokuSolver());
+        String[][] linesAndExpected = new String[][] {
+                {"8....91...97..1.5.4..25..739...63.8..74...36..8.49...124..85..7.3.9..41...53....8",
+                        "852739146397641852416258973921563784574812369683497521249185637738926415165374298"}, // Puzzle (1) in sudoku book
+                {"004010030600000810001860090826400009500236008300008426090084700065000003030090200",
+                        "984512637653749812271863594826471359549236178317958426192384765465127983738695241"}, // Puzzle (2) in sudoku book
+                {"500003000009800053000025000052010060000000902030906007000470000000100000700000009", "unsolvable"}, // Puzzle with no solution
+                {"5000030000098000530000250000520100600000009020309060070004700000001000007000000L9", "invalid"}, // Letter out of range
+                {"50000300000980005300002500005201006", "invalid"} // Too short
+        };
+        for (String[] lineAndExpected : linesAndExpected) {
+            String actual = batchSolver.solveLine(lineAndExpected[0]);
+            if (!actual.equals(lineAndExpected[1])) {
+                StdOut.format("Failed Batch Line: Expecting (%s), Actual (%s)\n", lineAndExpected[1], actual);
+            }
+        }
+    }
+
+    // Function that tests reading a mapped file split into regions, and solving it with several workers
+    private void testMappedReader() {
+        String puzzle = "8....91...97..1.5.4..25..739...63.8..74...36..8.49...124..85..7.3.9..41...53....8";
+        String solution = "852739146397641852416258973921563784574812369683497521249185637738926415165374298";
+        String invalid = "5000030000098000530000250000520100600000009020309060070004700000001000007000000L9";
+        StringBuilder input = new StringBuilder();
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 50; i++) {
+            // Mix of line endings, a blank line and an invalid record
+            String lineBreak = i % 2 == 0 ? "\n" : "\r\n";
+            String line = i % 10 == 7 ? invalid : puzzle;
+            input.append(line).append(lineBreak);
+            expected.append(i % 10 == 7 ? invalid : solution).append(lineBreak);
+            if (i == 20) {
+                input.append("\n");
+                expected.append("\n");
+            }
+        }
+
+        try {
+            Path inputFile = Files.createTempFile("puzzles", ".txt");
+            Path outputFile = Files.createTempFile("solutions", ".txt");
+            try {
+                Files.write(inputFile, input.toString().getBytes(StandardCharsets.US_ASCII));
+                int[][] expectedBoard = parseSymbolString(puzzle);
+                int[][] board = new int[boardSize][boardSize];
+                int records = 0;
+                int invalidRecords = 0;
+                for (MappedPuzzleReader reader : MappedPuzzleReader.split(inputFile, 7, boxSize)) {
+                    int result;
+                    while ((result = reader.next(board)) != MappedPuzzleReader.END_OF_REGION) {
+                        if (result == MappedPuzzleReader.INVALID_RECORD) {
+                            invalidRecords++;
+                        } else if (!Arrays.deepEquals(board, expectedBoard)) {
+                            StdOut.format("Failed Mapped Reader: Expecting (%s), Actual (%s)\n", Arrays.deepToString(expectedBoard), Arrays.deepToString(board));
+                        }
+                        records++;
+                    }
+                }
+                if (records != 50 || invalidRecords != 5) {
+                    StdOut.format("Failed Mapped Reader: Expecting (%d, %d) records, Actual (%d, %d) records\n", 50, 5, records, invalidRecords);
+                }
+
+                // The same records read into a flat board
+                int[] expectedCells = toFlatBoard(expectedBoard);
+                int[] cells = new int[cellCount];
+                records = 0;
+                invalidRecords = 0;
+                for (MappedPuzzleReader reader : MappedPuzzleReader.split(inputFile, 7, boxSize)) {
+                    int result;
+                    while ((result = reader.next(cells)) != MappedPuzzleReader.END_OF_REGION) {
+                        if (result == MappedPuzzleReader.INVALID_RECORD) {
+                            invalidRecords++;
+                        } else if (!Arrays.equals(cells, expectedCells)) {
+                            StdOut.format("Failed Mapped Reader Flat: Expecting (%s), Actual (%s)\n", Arrays.toString(expectedCells), Arrays.toString(cells));
+                        }
+                        records++;
+                    }
+                }
+                if (records != 50 || invalidRecords != 5) {
+                    StdOut.format("Failed Mapped Reader Flat: Expecting (%d, %d) records, Actual (%d, %d) records\n", 50, 5, records, invalidRecords);
+                }
+
+                BatchSolver.solveMappedFile(inputFile, outputFile, 3, engine);
+                String actual = new String(Files.readAllBytes(outputFile), StandardCharsets.US_ASCII);
+                if (!actual.equals(expected.toString())) {
+                    StdOut.format("Failed Mapped Batch: Expecting (%s), Actual (%s)\n", expected, actual);
+                }
+            } finally {
+                Files.deleteIfExists(inputFile);
+                Files.deleteIfExists(outputFile);
+            }
+        } catch (IOException | InterruptedException e) {
+            StdOut.format("Failed Mapped Reader: %s\n", e);
+        }
+    }
+
+    // Function that tests searches stopped by a node budget, a timeout and a cancel token, and that the solver works normally afterwards
+    private void testSolveBudgets() {
+        String hardPuzzle = "100007090030020008009600500005300900010080002600004000300000010040000007007000300"; // AI Escargot
+        int[][] startBoard = parseSymbolString(hardPuzzle);
+
+        int[][] board = deepCopyBoard(startBoard);
+        SolveResult result = solveWithStats(board, SolveOptions.NONE.withMaxNodes(5));
+        if (result.getStatus() != SolveResult.Status.BUDGET_EXCEEDED || result.getStats().getNodes() > 5 || !Arrays.deepEquals(board, startBoard)) {
+            StdOut.format("Failed Node Budget: Expecting (BUDGET_EXCEEDED within 5 nodes, board unchanged), Actual (%s)\n", result);
+        }
+
+        board = deepCopyBoard(startBoard);
+        AtomicBoolean token = new AtomicBoolean(true);
+        result = solveWithStats(board, SolveOptions.NONE.withCancelToken(token));
+        if (result.getStatus() != SolveResult.Status.CANCELLED || !Arrays.deepEquals(board, startBoard)) {
+            StdOut.format("Failed Cancel Token: Expecting (CANCELLED, board unchanged), Actual (%s)\n", result);
+        }
+
+        // The empty board has far too many solutions to count before the timeout
+        long start = System.nanoTime();
+        result = countWithStats(new int[BOARD_SIZE][BOARD_SIZE], UNLIMITED, SolveOptions.NONE.withTimeout(Duration.ofMillis(50)));
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        if (result.getStatus() != SolveResult.Status.BUDGET_EXCEEDED || result.getSolutionCount() == 0 || elapsedMillis > 1000) {
+            StdOut.format("Failed Timeout: Expecting (BUDGET_EXCEEDED with solutions in 50 ms), Actual (%s in %d ms)\n", result, elapsedMillis);
+        }
+
+        // Budgets large enough to finish, the context the stopped searches used is back in the pool without its budget
+        int[][] expected = deepCopyBoard(startBoard);
+        solveInPlace(expected);
+        board = deepCopyBoard(startBoard);
+        result = solveWithStats(board, SolveOptions.NONE.withMaxNodes(1_000_000).withTimeout(Duration.ofSeconds(60)).withCancelToken(new AtomicBoolean()));
+        if (result.getStatus() != SolveResult.Status.SOLVED || !Arrays.deepEquals(board, expected)) {
+            StdOut.format("Failed Solve Budget: Expecting (SOLVED), Actual (%s)\n", result);
+        }
+        result = countWithStats(startBoard, UNLIMITED, SolveOptions.NONE.withMaxNodes(1_000_000));
+        if (result.getStatus() != SolveResult.Status.COUNTED || result.getSolutionCount() != 1) {
+            StdOut.format("Failed Count Budget: Expecting (COUNTED 1), Actual (%s)\n", result);
+        }
+    }
+
+    // Function that tests streaming every solution of a sparse board in order and in parallel, and stopping a stream early on the empty board
+    private void testSolutionStream() {
+        // Puzzle (1) in sudoku book with its first 10 clues removed
+        int[][] sparseBoard = parseSymbolString(".........................739...63.8..74...36..8.49...124..85..7.3.9..41...53....8");
+        int[][] startBoard = deepCopyBoard(sparseBoard);
+        List<int[][]> solutions = solutions(sparseBoard).collect(Collectors.toList());
+        Set<String> distinct = new HashSet<>();
+        for (int[][] solution : solutions) {
+            boolean keepsClues = true;
+            for (int cell = 0; cell < cellCount; cell++) {
+                int clue = startBoard[cellRow[cell]][cellCol[cell]];
+                keepsClues &= clue == 0 || solution[cellRow[cell]][cellCol[cell]] == clue;
+            }
+            if (!keepsClues || !isValidSolution(solution)) {
+                StdOut.format("Failed Solution Stream: Expecting (a solution keeping the clues), Actual (%s)\n", toSymbolString(solution));
+            }
+            distinct.add(toSymbolString(solution));
+        }
+        if (solutions.size() != 1528 || distinct.size() != 1528) {
+            StdOut.format("Failed Solution Stream: Expecting (%d) distinct solutions, Actual (%d) of (%d)\n", 1528, distinct.size(), solutions.size());
+        }
+        int[][] firstSolution = deepCopyBoard(sparseBoard);
+        solveInPlace(firstSolution);
+        if (solutions.isEmpty() || !Arrays.deepEquals(solutions.get(0), firstSolution)) {
+            StdOut.format("Failed Solution Stream: Expecting first (%s), Actual (%s)\n", toSymbolString(firstSolution), solutions.isEmpty() ? "none" : toSymbolString(solutions.get(0)));
+        }
+
+        // The parallel stream finds the same solutions in some order
+        List<String> parallel = solutions(sparseBoard).parallel().map(this::toSymbolString).collect(Collectors.toList());
+        if (parallel.size() != distinct.size() || !distinct.equals(new HashSet<>(parallel))) {
+            StdOut.format("Failed Parallel Solution Stream: Expecting (%d) solutions, Actual (%d)\n", distinct.size(), parallel.size());
+        }
+        if (!Arrays.deepEquals(sparseBoard, startBoard)) {
+            StdOut.format("Failed Solution Stream: Expecting (%s), Actual (%s)\n", Arrays.deepToString(startBoard), Arrays.deepToString(sparseBoard));
+        }
+
+        // The empty board has too many solutions to list, so these only finish if the stream stops early
+        long firstFive = solutions(new int[BOARD_SIZE][BOARD_SIZE]).limit(5).count();
+        boolean found = solutions(new int[BOARD_SIZE][BOARD_SIZE]).parallel().findAny().isPresent();
+        if (firstFive != 5 || !found) {
+            StdOut.format("Failed Solution Stream: Expecting (5 and any), Actual (%d and %b)\n", firstFive, found);
+        }
+    }
+
+    // Function that tests packing boards, copying and comparing packed boards, and the binary format round trip
+    private void testPackedBoard() {
+        String hardPuzzle = "100007090030020008009600500005300900010080002600004000300000010040000007007000300"; // AI Escargot
+        int[][] startBoard = parseSymbolString(hardPuzzle);
+        PackedBoard packed = PackedBoard.fromBoard(startBoard);
+        if (!Arrays.deepEquals(packed.toBoard(), startBoard) || !packed.toString().equals(toSymbolString(startBoard))) {
+            StdOut.format("Failed Packed Board: Expecting (%s), Actual (%s)\n", toSymbolString(startBoard), packed);
+        }
+        byte[] bytes = packed.toBytes();
+        PackedBoard decoded = PackedBoard.fromBytes(bytes);
+        if (bytes.length != 42 || !decoded.equals(packed) || decoded.hashCode() != packed.hashCode()) {
+            StdOut.format("Failed Packed Board Bytes: Expecting (42 bytes decoding to %s), Actual (%d bytes decoding to %s)\n", packed, bytes.length, decoded);
+        }
+        // Cell (0, 0) holds 1 and cell (0, 1) is empty, so the first cell byte is 0x10
+        if (bytes[0] != BOX_SIZE || bytes[1] != 0x10) {
+            StdOut.format("Failed Packed Board Bytes: Expecting (%d, %d), Actual (%d, %d)\n", BOX_SIZE, 0x10, bytes[0], bytes[1]);
+        }
+
+        PackedBoard copy = packed.copy();
+        copy.set(0, 1, 2);
+        if (copy.equals(packed) || packed.get(0, 1) != 0 || copy.get(0, 1) != 2) {
+            StdOut.format("Failed Packed Board Copy: Expecting (%s), Actual (%s)\n", packed, copy);
+        }
+        copy.copyFrom(packed);
+        if (!copy.equals(packed)) {
+            StdOut.format("Failed Packed Board Copy: Expecting (%s), Actual (%s)\n", packed, copy);
+        }
+
+        // A solved 16x16 board needs 5 bits a cell, written back to back through a stream
+        SudokuSolver largeSolver = new SudokuSolver(4);
+        int[][] largeBoard = new int[16][16];
+        largeSolver.solveInPlace(largeBoard);
+        PackedBoard largePacked = PackedBoard.fromBoard(largeBoard);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            largePacked.writeTo(out);
+            packed.writeTo(out);
+            ByteArrayInputStream in = new ByteArrayInputStream(out.toByteArray());
+            PackedBoard first = PackedBoard.readFrom(in);
+            PackedBoard second = PackedBoard.readFrom(in);
+            if (out.size() != 1 + 160 + 42 || !Arrays.deepEquals(first.toBoard(), largeBoard) || !second.equals(packed)) {
+                StdOut.format("Failed Packed Board Stream: Expecting (%s and %s), Actual (%s and %s)\n", largePacked, packed, first, second);
+            }
+        } catch (IOException e) {
+            StdOut.format("Failed Packed Board Stream: Actual (%s)\n", e);
+        }
+
+        // Unpacking to a flat board, 16 cells a long on the 9x9 board and 12 on the 16x16 board, with the last long of both only partly used
+        int[] cells = new int[BOARD_SIZE * BOARD_SIZE];
+        packed.copyTo(cells);
+        int[] largeCells = new int[256];
+        largePacked.copyTo(largeCells);
+        if (!Arrays.equals(cells, toFlatBoard(startBoard)) || !Arrays.equals(largeCells, largeSolver.toFlatBoard(largeBoard))) {
+            StdOut.format("Failed Packed Board Flat Copy: Expecting (%s and %s), Actual (%s and %s)\n", Arrays.toString(toFlatBoard(startBoard)),
+                    Arrays.toString(largeSolver.toFlatBoard(largeBoard)), Arrays.toString(cells), Arrays.toString(largeCells));
+        }
+
+        try {
+            PackedBoard.fromBytes(Arrays.copyOf(bytes, 20));
+            StdOut.println("Failed Packed Board Bytes: Expecting (IllegalArgumentException for a short board), Actual (no exception)");
+        } catch (IllegalArgumentException expected) {
+            // Expected
+        }
+    }
+
+    // Function that tests grades of an easy and a hard puzzle, and that every answer the grader fills in agrees with the solution
+    private void testDifficultyGrader() {
+        // Puzzle (1) in sudoku book
+        int[][] easyBoard = parseSymbolString("8....91...97..1.5.4..25..739...63.8..74...36..8.49...124..85..7.3.9..41...53....8");
+        int[][] startBoard = deepCopyBoard(easyBoard);
+        DifficultyGrader.Grade grade = gradePuzzle(easyBoard);
+        if (!grade.isSolved() || grade.getHardest().compareTo(DifficultyGrader.Technique.NAKED_SINGLE) > 0 || grade.getSteps() != 45) {
+            StdOut.format("Failed Grading Easy Puzzle: Expecting (singles in 45 steps), Actual (%s)\n", grade);
+        }
+        if (!Arrays.deepEquals(easyBoard, startBoard)) {
+            StdOut.format("Failed Grading Easy Puzzle: Expecting (%s), Actual (%s)\n", Arrays.deepToString(startBoard), Arrays.deepToString(easyBoard));
+        }
+
+        // AI Escargot needs guesses after every technique
+        grade = gradePuzzle(parseSymbolString("100007090030020008009600500005300900010080002600004000300000010040000007007000300"));
+        if (grade.isSolved() || grade.getHardest() != DifficultyGrader.Technique.GUESS) {
+            StdOut.format("Failed Grading Hard Puzzle: Expecting (GUESS), Actual (%s)\n", grade);
+        }
+
+        // A 4x4 board missing one number in each of three rows is three naked singles
+        SudokuSolver smallSolver = new SudokuSolver(2);
+        int[][] smallBoard = smallSolver.parseSymbolString("1034341021404321");
+        grade = smallSolver.gradePuzzle(smallBoard);
+        DifficultyGrader.Grade direct = new DifficultyGrader(2).grade(smallBoard);
+        if (!grade.isSolved() || grade.getSteps() != 3 || grade.getHardest() != direct.getHardest() || grade.getSteps() != direct.getSteps()) {
+            StdOut.format("Failed Grading 4x4 Puzzle: Expecting (%s), Actual (%s)\n", direct, grade);
+        }
+
+        DifficultyGrader grader = new DifficultyGrader(BOX_SIZE);
+        Random random = new Random(19);
+        for (int i = 0; i < 20; i++) {
+            int[][] board = generateRandomPuzzle(random);
+            grade = grader.grade(board);
+            solveInPlace(board);
+            for (int cell = 0; cell < cellCount; cell++) {
+                int value = grader.valueAt(cell);
+                if ((grade.isSolved() && value == 0) || (value != 0 && value != board[cellRow[cell]][cellCol[cell]])) {
+                    StdOut.format("Failed Grading Puzzle: Expecting (%d) at [%d, %d], Actual (%d) with %s\n", board[cellRow[cell]][cellCol[cell]], cellRow[cell], cellCol[cell], value, grade);
+                    break;
+                }
+            }
+        }
+    }
+
+    // Function that tests a transformed copy of a solved puzzle is answered from the cache, and that the least recently used solution is dropped
+    private void testSolutionCache() {
+        String hardPuzzle = "100007090030020008009600500005300900010080002600004000300000010040000007007000300"; // AI Escargot
+        int[][] startBoard = parseSymbolString(hardPuzzle);
+        SudokuSolver cachedSolver = new SudokuSolver();
+        SolutionCache cache = new SolutionCache(2);
+        cachedSolver.setSolutionCache(cache);
+        cachedSolver.solveInPlace(deepCopyBoard(startBoard));
+
+        // Transposed, bands in reverse order, columns reversed within each stack and every number n relabeled 10 - n
+        int[][] transformed = new int[BOARD_SIZE][BOARD_SIZE];
+        for (int row = 0; row < BOARD_SIZE; row++) {
+            for (int col = 0; col < BOARD_SIZE; col++) {
+                int num = startBoard[(col / BOX_SIZE) * BOX_SIZE + (BOX_SIZE - 1 - col % BOX_SIZE)][(BOX_SIZE - 1 - row / BOX_SIZE) * BOX_SIZE + row % BOX_SIZE];
+                transformed[row][col] = num == 0 ? 0 : BOARD_SIZE + 1 - num;
+            }
+        }
+        int[][] expected = deepCopyBoard(transformed);
+        solveInPlace(expected);
+        int[][] actual = deepCopyBoard(transformed);
+        boolean solved = cachedSolver.solveInPlace(actual);
+        if (!solved || !Arrays.deepEquals(actual, expected) || cache.getHits() != 1) {
+            StdOut.format("Failed Solution Cache: Expecting (%s from 1 hit), Actual (%s from %d hits)\n",
+                    Arrays.deepToString(expected), Arrays.deepToString(actual), cache.getHits());
+        }
+
+        // Two other puzzles fill the cache, so the first one is dropped and solving it again misses
+        cachedSolver.solveInPlace(parseSymbolString("000000010400000000020000000000050407008000300001090000300400200050100000000806000"));
+        cachedSolver.solveInPlace(parseSymbolString("060200005009003800700000090003100407000304000608005100010000003006400900400001070"));
+        long misses = cache.getMisses();
+        cachedSolver.solveInPlace(deepCopyBoard(transformed));
+        if (cache.size() != 2 || cache.getMisses() != misses + 1) {
+            StdOut.format("Failed Solution Cache Eviction: Expecting (2 solutions, 1 more miss), Actual (%d solutions, %d more misses)\n",
+                    cache.size(), cache.getMisses() - misses);
+        }
+
+        // The empty board is too symmetric to key, it is solved without the cache
+        int[][] emptyBoard = new int[BOARD_SIZE][BOARD_SIZE];
+        if (!cachedSolver.solveInPlace(emptyBoard) || cache.getHits() != 1) {
+            StdOut.format("Failed Solution Cache: Expecting (empty board solved without the cache), Actual (%s)\n", Arrays.deepToString(emptyBoard));
+        }
+    }
+
+    // Function that tests a recording with every threshold at 0 gets one event of each kind, carrying the puzzle and search counters
+    private void testFlightRecorderEvents() {
+        String hardPuzzle = "100007090030020008009600500005300900010080002600004000300000010040000007007000300"; // AI Escargot
+        int[][] board = parseSymbolString(hardPuzzle);
+        long puzzleHash = SolverEvents.puzzleHash(board);
+        try {
+            Path recordingFile = Files.createTempFile("solver", ".jfr");
+            try {
+                try (Recording recording = new Recording()) {
+                    for (String name : new String[] {"TermProject.Validation", "TermProject.Search", "TermProject.Generation", "TermProject.Verification"}) {
+                        recording.enable(name).withThreshold(Duration.ZERO);
+                    }
+                    recording.start();
+                    solveInPlace(board);
+                    generateRandomPuzzle(new Random(5));
+                    recording.stop();
+                    recording.dump(recordingFile);
+                }
+
+                int[] eventCounts = new int[4];
+                for (RecordedEvent event : RecordingFile.readAllEvents(recordingFile)) {
+                    switch (event.getEventType().getName()) {
+                        case "TermProject.Validation":
+                            eventCounts[0]++;
+                            break;
+                        case "TermProject.Search":
+                            eventCounts[1]++;
+                            if (event.getLong("puzzleHash") == puzzleHash && (event.getInt("clueCount") != 23 || event.getLong("nodeCount") == 0
+                                    || !event.getString("outcome").equals("solved"))) {
+                                StdOut.format("Failed Search Event: Expecting (23 clues, nodes, solved), Actual (%s)\n", event);
+                            }
+                            break;
+                        case "TermProject.Generation":
+                            eventCounts[2]++;
+                            if (event.getInt("attempts") < 1 || event.getInt("clueCount") == 0) {
+                                StdOut.format("Failed Generation Event: Expecting (attempts and clues), Actual (%s)\n", event);
+                            }
+                            break;
+                        case "TermProject.Verification":
+                            eventCounts[3]++;
+                            break;
+                        default:
+                            break;
+                    }
+                }
+                for (int count : eventCounts) {
+                    if (count == 0) {
+                        StdOut.format("Failed Flight Recorder Events: Expecting (every kind recorded), Actual (%s)\n", Arrays.toString(eventCounts));
+                        break;
+                    }
+                }
+            } finally {
+                Files.deleteIfExists(recordingFile);
+            }
+        } catch (IOException e) {
+            StdOut.format("Failed Flight Recorder Events: %s\n", e);
+        }
+        if (SolverEvents.searchEnabled()) {
+            StdOut.println("Failed Flight Recorder Events: Expecting (disabled after the recording), Actual (enabled)");
+        }
+    }
+
+    // Function that tests generated puzzles have one solution, and that every clue left is needed for it
+    private void testGeneratingMinimalPuzzles() {
+        Random random = new Random(11);
+        for (int size = 2; size <= BOX_SIZE; size++) {
+            SudokuSolver generator = new SudokuSolver(size);
+            for (int i = 0; i < 5; i++) {
+                int[][] board = generator.generateRandomPuzzle(random);
+                long solutions = generator.countSolutions(board, UNLIMITED);
+                if (solutions != 1) {
+                    StdOut.format("Failed Generating Puzzle: Expecting (%d) solutions, Actual (%d) solutions\n", 1, solutions);
+                }
+                for (int row = 0; row < board.length; row++) {
+                    for (int col = 0; col < board.length; col++) {
+                        int clue = board[row][col];
+                        if (clue == 0) {
+                            continue;
+                        }
+                        board[row][col] = 0;
+                        int withoutClue = generator.countSolutions(board);
+                        board[row][col] = clue;
+                        if (withoutClue != 2) {
+                            StdOut.format("Failed Generating Puzzle: Expecting (%d) solutions without clue at [%d, %d], Actual (%d) solutions\n", 2, row, col, withoutClue);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
     private void testGeneratingRandomPuzzle() {
         int[][] board = generateRandomPuzzle();
-        int solutions = countUniqueSolutions(board);
+        int solutions = countSolutions(board);
         if (solutions != 1) {
             StdOut.format("Failed Generating Puzzle: Expecting (%d) solutions, Actual (%d) solutions", 1, solutions);
         }
         int[][] startBoard = deepCopyBoard(board);
-        checkIfValidStartBoard(board);
-        solveBoard(board);
-        boolean isValid = checkIfValidSolution(board);
+        boolean isValid = solveInPlace(board);
         if (isValid) {
-            sudokuBoard = board;
-            testPuzzleHelper(startBoard, sudokuBoard); // Redundant because I'm using the same solver for the solution
+            testPuzzleHelper(startBoard, board); // Redundant because I'm using the same solver for the solution
         } else {
             StdOut.format("Failed is valid check: Actual (%s)\n", Arrays.deepToString(board));
         }
@@ -0,0 +1,125 @@
+package TermProject;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// JMH benchmarks for solving, counting, checking and generating, over the corpora of SudokuBenchmarkSuite: easy, medium, hard and
+// 17 clue puzzles, with every engine where the engine matters. Every benchmark and parameter set runs in its own forked JVMs,
+// so the JIT profile of one can't skew the next. Run with mvn test-compile exec:exec, see pom.xml, which adds -prof gc for
+// bytes allocated per operation and writes the results as CSV to compare between releases
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 5, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+@Fork(2)
+public class SolverBenchmarks {
+
+    // Puzzles of one corpus and a solver with one engine, for the benchmarks that search
+    @State(Scope.Thread)
+    public static class Search {
+        @Param({ "BACKTRACKING", "DANCING_LINKS" })
+        public String engine;
+        @Param({ "easy", "medium", "hard", "17-clue" })
+        public String corpus;
+
+        SudokuSolver solver;
+        int[][][] puzzles;
+        int[][] board; // Reused so solving measures no copy allocation
+        int index;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            solver = new SudokuSolver();
+            solver.setEngine(SudokuSolver.Engine.valueOf(engine));
+            puzzles = SudokuBenchmarkSuite.buildCorpora(new SudokuSolver()).get(corpus);
+            board = new int[SudokuSolver.BOARD_SIZE][SudokuSolver.BOARD_SIZE];
+        }
+
+        // Returns the next puzzle of the corpus, going round
+        int[][] next() {
+            index = index + 1 == puzzles.length ? 0 : index + 1;
+            return puzzles[index];
+        }
+    }
+
+    // Solutions of one corpus, for the benchmarks that check them
+    @State(Scope.Thread)
+    public static class Solved {
+        @Param({ "easy", "medium", "hard", "17-clue" })
+        public String corpus;
+
+        SudokuSolver solver;
+        SolutionValidator validator;
+        int[][][] solutions;
+        int index;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            solver = new SudokuSolver();
+            validator = new SolutionValidator(SudokuSolver.BOX_SIZE);
+            solutions = SudokuBenchmarkSuite.buildCorpora(solver).get(corpus);
+            for (int[][] board : solutions) {
+                solver.solveInPlace(board);
+            }
+        }
+
+        int[][] next() {
+            index = index + 1 == solutions.length ? 0 : index + 1;
+            return solutions[index];
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Generator {
+        SudokuSolver solver;
+        Random random;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            solver = new SudokuSolver();
+            random = new Random(403);
+        }
+    }
+
+    @Benchmark
+    public boolean solve(Search state) {
+        int[][] puzzle = state.next();
+        for (int row = 0; row < puzzle.length; row++) {
+            System.arraycopy(puzzle[row], 0, state.board[row], 0, puzzle.length);
+        }
+        return state.solver.solveInPlace(state.board);
+    }
+
+    @Benchmark
+    public int count(Search state) {
+        return state.solver.countSolutions(state.next());
+    }
+
+    @Benchmark
+    public boolean validate(Solved state) {
+        return state.solver.isValidSolution(state.next());
+    }
+
+    @Benchmark
+    public int validateBitmask(Solved state) {
+        return state.validator.firstInvalidUnit(state.next());
+    }
+
+    @Benchmark
+    public int[][] generate(Generator state) {
+        return state.solver.generateRandomPuzzle(state.random);
+    }
+}
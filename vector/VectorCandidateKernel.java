@@ -0,0 +1,51 @@
+package TermProject;
+
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorSpecies;
+
+// Vector API kernel for CandidateKernel: works a row at a time, ORing the column masks, the box masks spread out to one per column
+// and the row mask for SPECIES.length() cells per instruction. Every load is contiguous, so no gathers are needed. The widest
+// species the CPU prefers is used, 8 cells a step with AVX-512 and 4 with AVX2, and the cells past the last full step are done one at a time.
+// Kept out of the main sources because it needs javac and java to run with --add-modules jdk.incubator.vector.
+// CandidateKernel loads it by name and falls back to the scalar kernel without it. Holds scratch space, so each context builds its own.
+// Allocates nothing once C2 has compiled it, when escape analysis keeps the vectors in registers. Until then every vector is an
+// object, so the first few thousand searches with it allocate where the scalar kernel doesn't
+final class VectorCandidateKernel implements CandidateKernel {
+
+    private static final VectorSpecies<Long> SPECIES = LongVector.SPECIES_PREFERRED;
+
+    private final int boxSize;
+    private final int boardSize;
+    private final long fullMask;
+    private final int vectorColumns; // Columns of a row covered by full steps
+    private final long[] bandBoxMasks; // Box mask of every column within the current band of rows
+
+    VectorCandidateKernel(BoardGeometry geometry) {
+        this.boxSize = geometry.boxSize;
+        this.boardSize = geometry.boardSize;
+        this.fullMask = geometry.fullMask;
+        this.vectorColumns = SPECIES.loopBound(boardSize);
+        this.bandBoxMasks = new long[boardSize];
+    }
+
+    @Override
+    public void candidates(long[] rowMasks, long[] columnMasks, long[] boxMasks, long[] candidates) {
+        for (int row = 0; row < boardSize; row++) {
+            if (row % boxSize == 0) {
+                for (int col = 0; col < boardSize; col++) {
+                    bandBoxMasks[col] = boxMasks[row + col / boxSize];
+                }
+            }
+            long rowMask = rowMasks[row];
+            int rowStart = row * boardSize;
+            int col = 0;
+            for (; col < vectorColumns; col += SPECIES.length()) {
+                LongVector used = LongVector.fromArray(SPECIES, columnMasks, col).or(LongVector.fromArray(SPECIES, bandBoxMasks, col)).or(rowMask);
+                used.not().and(fullMask).intoArray(candidates, rowStart + col);
+            }
+            for (; col < boardSize; col++) {
+                candidates[rowStart + col] = ~(rowMask | columnMasks[col] | bandBoxMasks[col]) & fullMask;
+            }
+        }
+    }
+}